@@ -18,6 +18,7 @@ package nl.knaw.dans.dvingest;
 import io.dropwizard.configuration.ConfigurationException;
 import lombok.AllArgsConstructor;
 import nl.knaw.dans.dvingest.core.DataverseIngestBag;
+import nl.knaw.dans.dvingest.core.DepositTimings;
 import nl.knaw.dans.dvingest.core.bagprocessor.BagProcessor;
 import nl.knaw.dans.dvingest.core.bagprocessor.BagProcessorFactory;
 import nl.knaw.dans.dvingest.core.service.DataverseService;
@@ -32,11 +33,12 @@ public class BagProcessorFactoryImpl implements BagProcessorFactory {
     private final UtilityServices utilityServices;
 
     @Override
-    public BagProcessor createBagProcessor(UUID depositId, DataverseIngestBag bag) throws ConfigurationException, IOException {
+    public BagProcessor createBagProcessor(UUID depositId, DataverseIngestBag bag, DepositTimings timings) throws ConfigurationException, IOException {
         return BagProcessor.builder()
             .depositId(depositId)
             .bag(bag)
-            .dataverseService(dataverseService)
+            .timings(timings)
+            .dataverseService(timings.meter(dataverseService))
             .utilityServices(utilityServices)
             .build();
     }
@@ -16,6 +16,7 @@
 
 package nl.knaw.dans.dvingest;
 
+import com.codahale.metrics.Gauge;
 import io.dropwizard.core.Application;
 import io.dropwizard.core.setup.Bootstrap;
 import io.dropwizard.core.setup.Environment;
@@ -28,6 +29,7 @@ import nl.knaw.dans.dvingest.config.IngestAreaConfig;
 import nl.knaw.dans.dvingest.config.IngestConfig;
 import nl.knaw.dans.dvingest.core.AutoIngestArea;
 import nl.knaw.dans.dvingest.core.DataverseIngestDepositFactory;
+import nl.knaw.dans.dvingest.core.DepositLanes;
 import nl.knaw.dans.lib.util.healthcheck.DependenciesReadyCheck;
 import nl.knaw.dans.lib.util.healthcheck.HealthChecksDependenciesReadyCheck;
 import nl.knaw.dans.dvingest.core.IngestArea;
@@ -37,12 +39,24 @@ import nl.knaw.dans.dvingest.core.dansbag.DansBagMappingServiceImpl;
 import nl.knaw.dans.dvingest.core.dansbag.DansDepositSupportFactory;
 import nl.knaw.dans.dvingest.core.dansbag.SupportedLicenses;
 import nl.knaw.dans.dvingest.core.dansbag.mapper.DepositToDvDatasetMetadataMapper;
+import nl.knaw.dans.dvingest.core.dansbag.xml.XmlReader;
+import nl.knaw.dans.dvingest.core.dansbag.xml.XmlReaderImpl;
+import nl.knaw.dans.dvingest.core.service.CoalescingDataverseService;
+import nl.knaw.dans.dvingest.core.service.DatasetFilesCache;
+import nl.knaw.dans.dvingest.core.service.DataverseCallMetrics;
 import nl.knaw.dans.dvingest.core.service.DataverseService;
 import nl.knaw.dans.dvingest.core.service.DataverseServiceImpl;
+import nl.knaw.dans.dvingest.core.service.MeteredDataverseService;
+import nl.knaw.dans.dvingest.core.service.MimeTypeCache;
+import nl.knaw.dans.dvingest.core.service.PagedFilesReader;
+import nl.knaw.dans.dvingest.core.service.PublishDurationHistory;
+import nl.knaw.dans.dvingest.core.service.RoleAssignmentsCache;
 import nl.knaw.dans.dvingest.core.service.UtilityServices;
+import nl.knaw.dans.dvingest.core.service.UploadBatchSizer;
 import nl.knaw.dans.dvingest.core.service.UtilityServicesImpl;
 import nl.knaw.dans.dvingest.core.service.YamlService;
 import nl.knaw.dans.dvingest.core.service.YamlServiceImpl;
+import nl.knaw.dans.dvingest.core.service.ZipStreamUploader;
 import nl.knaw.dans.dvingest.resources.DefaultApiResource;
 import nl.knaw.dans.dvingest.resources.IllegalArgumentExceptionMapper;
 import nl.knaw.dans.dvingest.resources.IngestApiResource;
@@ -52,10 +66,14 @@ import nl.knaw.dans.lib.util.MappingLoader;
 import nl.knaw.dans.lib.util.PropertiesBasedDirectoryComparator;
 import nl.knaw.dans.lib.util.inbox.Inbox;
 import org.apache.commons.io.FileUtils;
+import org.apache.tika.Tika;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
 import java.util.regex.Pattern;
 
 @Slf4j
@@ -95,13 +113,25 @@ public class DdDataverseIngestApplication extends Application<DdDataverseIngestC
         /*
          * Create service components
          */
+        var mimeTypeCache = new MimeTypeCache(new Tika(), configuration.getIngest().getMimeTypeCacheSize());
+        environment.metrics().register("mime-type-cache.hits", (Gauge<Long>) mimeTypeCache::getHits);
+        environment.metrics().register("mime-type-cache.misses", (Gauge<Long>) mimeTypeCache::getMisses);
         var utilityServices = UtilityServicesImpl.builder()
             .tempDir(configuration.getIngest().getTempDir())
-            .maxNumberOfFilesPerUpload(configuration.getIngest().getMaxNumberOfFilesPerUploadBatch())
+            .maxNumberOfFilesPerUpload(configuration.getIngest().getEffectiveMaxNumberOfFilesPerUploadBatch())
             .maxUploadSize(configuration.getIngest().getMaxByteSizePerUploadBatch().toBytes())
+            .maxNumberOfUploadBatchesInFlight(configuration.getIngest().getMaxNumberOfUploadBatchesInFlight())
+            .streamUploadBatches(configuration.getIngest().isStreamUploadBatches())
+            .mimeTypeCache(mimeTypeCache)
+            .uploadBatchSizer(configuration.getIngest().isAdaptiveUploadBatchSize() ? new UploadBatchSizer(
+                configuration.getIngest().getEffectiveMaxNumberOfFilesPerUploadBatch(),
+                configuration.getIngest().getMaxByteSizePerUploadBatch().toBytes(),
+                Duration.ofMillis(configuration.getIngest().getTargetUploadBatchDuration().toMilliseconds())) : null)
             .build();
         var yamlService = new YamlServiceImpl(configuration.getYamlServiceConfig());
         var dataverseIngestDepositFactory = new DataverseIngestDepositFactoryImpl(yamlService);
+        var publishDurationHistory = new PublishDurationHistory(configuration.getIngest().getWaitForReleasedState().getPublishDurationHistorySize());
+        var xmlReader = new XmlReaderImpl(environment.metrics().timer("xml-reader.parse"));
         var dependenciesReadyCheck = new HealthChecksDependenciesReadyCheck(environment, configuration.getDependenciesReadyCheck());
         environment.lifecycle().manage(dependenciesReadyCheck);
 
@@ -110,13 +140,13 @@ public class DdDataverseIngestApplication extends Application<DdDataverseIngestC
          */
         DansDepositConversionConfig dansDepositConversionConfig = configuration.getDansDepositConversion();
         var importArea = getImportArea(configuration.getIngest(), configuration.getIngest().getImportConfig(), dansDepositConversionConfig, configuration.getDataverse(), environment,
-            yamlService, utilityServices, dataverseIngestDepositFactory, dependenciesReadyCheck);
+            yamlService, utilityServices, dataverseIngestDepositFactory, dependenciesReadyCheck, publishDurationHistory, xmlReader);
 
         /*
          * Auto ingest area
          */
         var autoIngestArea = getAutoIngestArea(configuration.getIngest(), configuration.getIngest().getAutoIngest(), dansDepositConversionConfig, configuration.getDataverse(), environment,
-            yamlService, utilityServices, dataverseIngestDepositFactory, dependenciesReadyCheck);
+            yamlService, utilityServices, dataverseIngestDepositFactory, dependenciesReadyCheck, publishDurationHistory, xmlReader);
 
         /*
          * Register components with Dropwizard
@@ -129,31 +159,74 @@ public class DdDataverseIngestApplication extends Application<DdDataverseIngestC
         environment.healthChecks().register("dataverse", new DataverseHealthCheck(configuration.getDataverse().build(environment, "dataverse/health")));
     }
 
-    private DataverseService getDataverseServiceForIngestArea(IngestConfig ingestConfig, DataverseClientFactory clientFactory, Environment environment, String name, String apiKeyOverride) {
-        return DataverseServiceImpl.builder()
+    private DataverseService getDataverseServiceForIngestArea(IngestConfig ingestConfig, DataverseClientFactory clientFactory, Environment environment, String name, String apiKeyOverride,
+        PublishDurationHistory publishDurationHistory) {
+        // One cache per ingest area, because the areas may use different API keys, which may see different draft file lists
+        DatasetFilesCache datasetFilesCache = null;
+        var datasetFilesCacheConfig = ingestConfig.getDatasetFilesCache();
+        if (datasetFilesCacheConfig.isEnabled()) {
+            datasetFilesCache = new DatasetFilesCache(datasetFilesCacheConfig.getMaxNumberOfDatasets(), datasetFilesCacheConfig.getMaxNumberOfFilesPerDataset(),
+                Duration.ofMillis(datasetFilesCacheConfig.getMaxAge().toMilliseconds()));
+            environment.metrics().register(name + ".dataset-files-cache.hits", (Gauge<Long>) datasetFilesCache::getHits);
+            environment.metrics().register(name + ".dataset-files-cache.misses", (Gauge<Long>) datasetFilesCache::getMisses);
+        }
+        // Likewise for role assignments
+        RoleAssignmentsCache roleAssignmentsCache = null;
+        var roleAssignmentsCacheConfig = ingestConfig.getRoleAssignmentsCache();
+        if (roleAssignmentsCacheConfig.isEnabled()) {
+            roleAssignmentsCache = new RoleAssignmentsCache(roleAssignmentsCacheConfig.getMaxNumberOfEntries(), Duration.ofMillis(roleAssignmentsCacheConfig.getMaxAge().toMilliseconds()));
+            environment.metrics().register(name + ".role-assignments-cache.hits", (Gauge<Long>) roleAssignmentsCache::getHits);
+            environment.metrics().register(name + ".role-assignments-cache.misses", (Gauge<Long>) roleAssignmentsCache::getMisses);
+        }
+        var callMetrics = new DataverseCallMetrics(environment.metrics(), name);
+        var dataverseService = DataverseServiceImpl.builder()
             .dataverseClient(clientFactory.build(environment, name, apiKeyOverride))
             .metadataKeys(ingestConfig.getMetadataKeys())
             .timeout(ingestConfig.getWaitForReleasedState().getTimeout().toMilliseconds())
             .leadTimePerFile(ingestConfig.getWaitForReleasedState().getLeadTimePerFile().toMilliseconds())
             .pollingInterval(ingestConfig.getWaitForReleasedState().getPollingInterval().toMilliseconds())
+            .zipStreamUploader(ingestConfig.isStreamUploadBatches()
+                ? new ZipStreamUploader(clientFactory.getBaseUrl(), apiKeyOverride != null ? apiKeyOverride : clientFactory.getApiKey(), Duration.ofSeconds(30))
+                : null)
+            .datasetFilesCache(datasetFilesCache)
+            .roleAssignmentsCache(roleAssignmentsCache)
+            .publishDurationHistory(publishDurationHistory)
+            .pagedFilesReader(ingestConfig.getFileListPageSize() != null
+                ? new PagedFilesReader(clientFactory.getBaseUrl(), apiKeyOverride != null ? apiKeyOverride : clientFactory.getApiKey(), ingestConfig.getFileListPageSize(), Duration.ofSeconds(30))
+                : null)
+            .callMetrics(callMetrics)
             .build();
+        // Metered inside the coalescing decorator, so that coalesced calls are counted once. File and role assignment listings are metered behind the caches by the service itself.
+        var coalescingDataverseService = new CoalescingDataverseService(new MeteredDataverseService(dataverseService, callMetrics));
+        environment.metrics().register(name + ".calls-saved", (Gauge<Long>) coalescingDataverseService::getNumberOfCallsSaved);
+        return coalescingDataverseService;
     }
 
     private AutoIngestArea getAutoIngestArea(IngestConfig ingestConfig, IngestAreaConfig ingestAreaConfig, DansDepositConversionConfig dansDepositConversionConfig,
         DataverseClientFactory dataverseClientFactory, Environment environment,
         YamlService yamlService, UtilityServices utilityServices, DataverseIngestDepositFactory dataverseIngestDepositFactory,
-        DependenciesReadyCheck dependenciesReadyCheck) {
+        DependenciesReadyCheck dependenciesReadyCheck, PublishDurationHistory publishDurationHistory, XmlReader xmlReader) {
         DansDepositSupportFactory dansDepositSupportFactory = new DansDepositSupportDisabledFactory();
-        var dataverseService = getDataverseServiceForIngestArea(ingestConfig, dataverseClientFactory, environment, "dataverse/auto-ingest", ingestAreaConfig.getApiKey());
+        var dataverseService = getDataverseServiceForIngestArea(ingestConfig, dataverseClientFactory, environment, "dataverse/auto-ingest", ingestAreaConfig.getApiKey(),
+            publishDurationHistory);
         if (dansDepositConversionConfig != null) {
-            var dansBagMappingService = createDansBagMappingService(dansDepositConversionConfig, dansDepositConversionConfig.getDepositorAuthorization().getAutoIngest(), dataverseService);
+            var dansBagMappingService = createDansBagMappingService(dansDepositConversionConfig, dansDepositConversionConfig.getDepositorAuthorization().getAutoIngest(), dataverseService, xmlReader);
             var validateDansBagService = new ValidateDansBagServiceImpl(dansDepositConversionConfig.getValidateDansBag(), environment);
             dansDepositSupportFactory = new DansDepositSupportFactoryImpl(validateDansBagService, dansBagMappingService, dataverseService, yamlService, ingestAreaConfig.getRequireDansBag());
         }
 
         var bagProcessorFactory = new BagProcessorFactoryImpl(dataverseService, utilityServices);
-        var depositTaskFactory = new DepositTaskFactoryImpl(bagProcessorFactory, dansDepositSupportFactory, dependenciesReadyCheck, ingestAreaConfig.getDelayBetweenDeposits().toMilliseconds());
-        var inboxTaskFactory = new InboxTaskFactoryImpl(dataverseIngestDepositFactory, depositTaskFactory, ingestAreaConfig.getOutbox());
+        var depositTaskFactory = new DepositTaskFactoryImpl(bagProcessorFactory, dansDepositSupportFactory, dependenciesReadyCheck, ingestAreaConfig.getDelayBetweenDeposits().toMilliseconds(),
+            environment.metrics(), "auto-ingest.deposit");
+        DepositLanes depositLanes = null;
+        if (ingestAreaConfig.getNumberOfWorkers() > 1) {
+            var laneExecutors = new ArrayList<ExecutorService>();
+            for (int i = 0; i < ingestAreaConfig.getNumberOfWorkers(); i++) {
+                laneExecutors.add(environment.lifecycle().executorService("auto-ingest-lane-" + i).minThreads(1).maxThreads(1).build());
+            }
+            depositLanes = new DepositLanes("auto-ingest", laneExecutors, environment.metrics());
+        }
+        var inboxTaskFactory = new InboxTaskFactoryImpl(dataverseIngestDepositFactory, depositTaskFactory, ingestAreaConfig.getOutbox(), depositLanes);
         var inbox = Inbox.builder()
             .interval(Math.toIntExact(ingestAreaConfig.getPollingInterval().toMilliseconds()))
             .inbox(ingestAreaConfig.getInbox())
@@ -166,24 +239,33 @@ public class DdDataverseIngestApplication extends Application<DdDataverseIngestC
     private IngestArea getImportArea(IngestConfig ingestConfig, IngestAreaConfig ingestAreaConfig, DansDepositConversionConfig dansDepositConversionConfig,
         DataverseClientFactory dataverseClientFactory, Environment environment,
         YamlService yamlService, UtilityServices utilityServices, DataverseIngestDepositFactory dataverseIngestDepositFactory,
-        DependenciesReadyCheck dependenciesReadyCheck) {
+        DependenciesReadyCheck dependenciesReadyCheck, PublishDurationHistory publishDurationHistory, XmlReader xmlReader) {
         DansDepositSupportFactory dansDepositSupportFactory = new DansDepositSupportDisabledFactory();
-        var dataverseService = getDataverseServiceForIngestArea(ingestConfig, dataverseClientFactory, environment, "dataverse/import", ingestAreaConfig.getApiKey());
+        var dataverseService = getDataverseServiceForIngestArea(ingestConfig, dataverseClientFactory, environment, "dataverse/import", ingestAreaConfig.getApiKey(),
+            publishDurationHistory);
         if (dansDepositConversionConfig != null) {
-            var dansBagMappingService = createDansBagMappingService(dansDepositConversionConfig, dansDepositConversionConfig.getDepositorAuthorization().getImportConfig(), dataverseService);
+            var dansBagMappingService = createDansBagMappingService(dansDepositConversionConfig, dansDepositConversionConfig.getDepositorAuthorization().getImportConfig(), dataverseService, xmlReader);
             var validateDansBag = new ValidateDansBagServiceImpl(dansDepositConversionConfig.getValidateDansBag(), environment);
             dansDepositSupportFactory = new DansDepositSupportFactoryImpl(validateDansBag, dansBagMappingService, dataverseService, yamlService,
                 ingestAreaConfig.getRequireDansBag());
         }
         var bagProcessorFactory = new BagProcessorFactoryImpl(dataverseService, utilityServices);
-        var depositTaskFactory = new DepositTaskFactoryImpl(bagProcessorFactory, dansDepositSupportFactory, dependenciesReadyCheck, ingestAreaConfig.getDelayBetweenDeposits().toMilliseconds());
-        var jobFactory = new ImportJobFactoryImpl(dataverseIngestDepositFactory, depositTaskFactory);
+        var depositTaskFactory = new DepositTaskFactoryImpl(bagProcessorFactory, dansDepositSupportFactory, dependenciesReadyCheck, ingestAreaConfig.getDelayBetweenDeposits().toMilliseconds(),
+            environment.metrics(), "import.deposit");
+        ExecutorService depositWorkers = null;
+        if (ingestAreaConfig.getNumberOfWorkers() > 1) {
+            depositWorkers = environment.lifecycle().executorService("import-worker-%d")
+                .minThreads(ingestAreaConfig.getNumberOfWorkers())
+                .maxThreads(ingestAreaConfig.getNumberOfWorkers())
+                .build();
+        }
+        var jobFactory = new ImportJobFactoryImpl(dataverseIngestDepositFactory, depositTaskFactory, depositWorkers);
         return new IngestArea(jobFactory, ingestAreaConfig.getInbox(), ingestAreaConfig.getOutbox(),
             environment.lifecycle().executorService("import").minThreads(1).maxThreads(1).build());
     }
 
     private DansBagMappingService createDansBagMappingService(DansDepositConversionConfig dansDepositConversionConfig, DepositorAuthorizationConfig depositorAuthorizationConfig,
-        DataverseService dataverseService) {
+        DataverseService dataverseService, XmlReader xmlReader) {
         log.info("Configuring DANS Deposit conversion");
         var mapper = createMapper(dansDepositConversionConfig, dataverseService);
         return new DansBagMappingServiceImpl(
@@ -197,7 +279,8 @@ public class DdDataverseIngestApplication extends Application<DdDataverseIngestC
             dansDepositConversionConfig.getEmbargoExclusions(),
             dansDepositConversionConfig.getAssignDepositorRole().getAutoIngest(),
             depositorAuthorizationConfig.getPublishDataset(),
-            depositorAuthorizationConfig.getEditDataset());
+            depositorAuthorizationConfig.getEditDataset(),
+            xmlReader);
     }
 
     private DepositToDvDatasetMetadataMapper createMapper(DansDepositConversionConfig dansDepositConversionConfig, DataverseService dataverseService) {
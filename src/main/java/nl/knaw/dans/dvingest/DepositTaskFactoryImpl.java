@@ -15,6 +15,7 @@
  */
 package nl.knaw.dans.dvingest;
 
+import com.codahale.metrics.MetricRegistry;
 import lombok.AllArgsConstructor;
 import nl.knaw.dans.dvingest.core.DataverseIngestDeposit;
 import nl.knaw.dans.lib.util.healthcheck.DependenciesReadyCheck;
@@ -31,9 +32,12 @@ public class DepositTaskFactoryImpl implements DepositTaskFactory {
     private final DansDepositSupportFactory dansDepositSupportFactory;
     private final DependenciesReadyCheck dependenciesReadyCheck;
     private final long delayBetweenDeposits;
+    private final MetricRegistry metricRegistry;
+    // Prefix of the names of the histograms to which the timings of the deposits are added
+    private final String metricsPrefix;
 
     @Override
     public Runnable createDepositTask(DataverseIngestDeposit deposit, Path outputDir, boolean onlyConvertDansDeposit) {
-        return new DepositTask(deposit, outputDir, onlyConvertDansDeposit, bagProcessorFactory, dansDepositSupportFactory, dependenciesReadyCheck, delayBetweenDeposits);
+        return new DepositTask(deposit, outputDir, onlyConvertDansDeposit, bagProcessorFactory, dansDepositSupportFactory, dependenciesReadyCheck, delayBetweenDeposits, metricRegistry, metricsPrefix);
     }
 }
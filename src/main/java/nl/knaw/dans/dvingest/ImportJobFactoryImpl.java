@@ -24,6 +24,7 @@ import nl.knaw.dans.dvingest.core.ImportJob;
 import nl.knaw.dans.dvingest.core.ImportJobFactory;
 
 import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
 
 @AllArgsConstructor
 public class ImportJobFactoryImpl implements ImportJobFactory {
@@ -31,9 +32,11 @@ public class ImportJobFactoryImpl implements ImportJobFactory {
     private final DataverseIngestDepositFactory dataverseIngestDepositFactory;
     @NonNull
     private final DepositTaskFactory depositTaskFactory;
+    // If null, deposits are processed one by one
+    private final ExecutorService depositWorkers;
 
     @Override
     public ImportJob createImportJob(ImportCommandDto importCommand, String path, Path outputDir, boolean onlyConvertDansDeposit) {
-        return new ImportJob(importCommand, path, outputDir, onlyConvertDansDeposit, dataverseIngestDepositFactory, depositTaskFactory);
+        return new ImportJob(importCommand, path, outputDir, onlyConvertDansDeposit, dataverseIngestDepositFactory, depositTaskFactory, depositWorkers);
     }
 }
@@ -17,6 +17,7 @@ package nl.knaw.dans.dvingest;
 
 import lombok.AllArgsConstructor;
 import nl.knaw.dans.dvingest.core.DataverseIngestDepositFactory;
+import nl.knaw.dans.dvingest.core.DepositLanes;
 import nl.knaw.dans.dvingest.core.DepositTaskFactory;
 import nl.knaw.dans.lib.util.inbox.InboxTaskFactory;
 
@@ -27,10 +28,21 @@ public class InboxTaskFactoryImpl implements InboxTaskFactory {
     private final DataverseIngestDepositFactory dataverseIngestDepositFactory;
     private final DepositTaskFactory depositTaskFactory;
     private final Path outputDir;
+    // If null, the deposit task is executed directly by the inbox executor
+    private final DepositLanes depositLanes;
+
+    public InboxTaskFactoryImpl(DataverseIngestDepositFactory dataverseIngestDepositFactory, DepositTaskFactory depositTaskFactory, Path outputDir) {
+        this(dataverseIngestDepositFactory, depositTaskFactory, outputDir, null);
+    }
 
     @Override
     public Runnable createInboxTask(Path path) {
         var dataVerseIngestDeposit = dataverseIngestDepositFactory.createDataverseIngestDeposit(path);
-        return depositTaskFactory.createDepositTask(dataVerseIngestDeposit, outputDir, false);
+        var depositTask = depositTaskFactory.createDepositTask(dataVerseIngestDeposit, outputDir, false);
+        if (depositLanes == null) {
+            return depositTask;
+        }
+        // The inbox executor only dispatches the deposit to its lane, so that a slow deposit does not hold up deposits for other datasets
+        return () -> depositLanes.submit(dataVerseIngestDeposit.getTargetDatasetIdentifiers(), depositTask);
     }
 }
@@ -18,6 +18,7 @@ package nl.knaw.dans.dvingest.config;
 import io.dropwizard.util.Duration;
 import lombok.Data;
 
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.nio.file.Path;
 
@@ -35,4 +36,7 @@ public class IngestAreaConfig {
     private Duration pollingInterval = Duration.seconds(5);
 
     private Duration delayBetweenDeposits = Duration.seconds(0);
+
+    @Min(1)
+    private int numberOfWorkers = 1;
 }
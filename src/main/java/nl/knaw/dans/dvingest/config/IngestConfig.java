@@ -17,9 +17,11 @@ package nl.knaw.dans.dvingest.config;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.dropwizard.util.DataSize;
+import io.dropwizard.util.Duration;
 import lombok.Data;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import java.nio.file.Path;
 import java.util.HashMap;
@@ -42,9 +44,41 @@ public class IngestConfig {
 
     private DataSize maxByteSizePerUploadBatch = DataSize.gibibytes(1);
 
+    // Should be set to the value of :ZipUploadFilesLimit in Dataverse, if that is lower than maxNumberOfFilesPerUploadBatch
+    @Min(1)
+    private Integer zipUploadFilesLimit;
+
+    private boolean adaptiveUploadBatchSize = false;
+
+    private Duration targetUploadBatchDuration = Duration.minutes(2);
+
+    @Min(1)
+    private int maxNumberOfUploadBatchesInFlight = 1;
+
+    private boolean streamUploadBatches = false;
+
+    @Min(1)
+    private int mimeTypeCacheSize = 10000;
+
+    // If null, the file list of a dataset is read in a single request
+    @Min(1)
+    private Integer fileListPageSize;
+
     private Map<String, String> metadataKeys = new HashMap<>();
 
+    public int getEffectiveMaxNumberOfFilesPerUploadBatch() {
+        return zipUploadFilesLimit == null ? maxNumberOfFilesPerUploadBatch : Math.min(maxNumberOfFilesPerUploadBatch, zipUploadFilesLimit);
+    }
+
     @Valid
     @NotNull
     private WaitForReleasedStateConfig waitForReleasedState;
+
+    @Valid
+    @NotNull
+    private DatasetFilesCacheConfig datasetFilesCache = new DatasetFilesCacheConfig();
+
+    @Valid
+    @NotNull
+    private RoleAssignmentsCacheConfig roleAssignmentsCache = new RoleAssignmentsCacheConfig();
 }
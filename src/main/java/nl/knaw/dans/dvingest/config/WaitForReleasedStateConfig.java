@@ -18,6 +18,8 @@ package nl.knaw.dans.dvingest.config;
 import io.dropwizard.util.Duration;
 import lombok.Data;
 
+import javax.validation.constraints.Min;
+
 @Data
 public class WaitForReleasedStateConfig {
 
@@ -27,4 +29,7 @@ public class WaitForReleasedStateConfig {
 
     private Duration pollingInterval = Duration.seconds(10);
 
+    @Min(1)
+    private int publishDurationHistorySize = 100;
+
 }
@@ -17,10 +17,12 @@ package nl.knaw.dans.dvingest.core;
 
 import io.dropwizard.configuration.ConfigurationException;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import nl.knaw.dans.dvingest.core.service.YamlService;
 import nl.knaw.dans.dvingest.core.service.YamlServiceImpl;
 import nl.knaw.dans.dvingest.core.yaml.EditFiles;
 import nl.knaw.dans.dvingest.core.yaml.EditFilesRoot;
+import nl.knaw.dans.dvingest.core.yaml.EditFilesSidecar;
 import nl.knaw.dans.dvingest.core.yaml.EditMetadata;
 import nl.knaw.dans.dvingest.core.yaml.EditMetadataRoot;
 import nl.knaw.dans.dvingest.core.yaml.EditPermissions;
@@ -30,6 +32,7 @@ import nl.knaw.dans.dvingest.core.yaml.InitRoot;
 import nl.knaw.dans.dvingest.core.yaml.UpdateAction;
 import nl.knaw.dans.dvingest.core.yaml.UpdateStateRoot;
 import nl.knaw.dans.dvingest.core.yaml.tasklog.TaskLog;
+import nl.knaw.dans.dvingest.core.yaml.tasklog.TaskLogJournal;
 import nl.knaw.dans.dvingest.core.yaml.tasklog.TaskLogRoot;
 import nl.knaw.dans.lib.dataverse.model.dataset.Dataset;
 
@@ -37,7 +40,10 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
+@Slf4j
 public class DataverseIngestBag implements Comparable<DataverseIngestBag> {
     private final YamlServiceImpl yamService;
 
@@ -53,6 +59,9 @@ public class DataverseIngestBag implements Comparable<DataverseIngestBag> {
     @Getter
     private final TaskLog taskLog;
 
+    // The parsed instruction files by file name; null for an instruction file that is not present in the bag
+    private final Map<String, Object> instructions = new HashMap<>();
+
     public DataverseIngestBag(Path bagDir, YamlService yamlService) throws IOException {
         this.bagDir = bagDir;
         this.yamService = (YamlServiceImpl) yamlService;
@@ -68,6 +77,12 @@ public class DataverseIngestBag implements Comparable<DataverseIngestBag> {
             try {
                 var actionLogRoot = yamlService.readYaml(bagDir.resolve(TASK_LOG_YAML), TaskLogRoot.class);
                 taskLog = actionLogRoot.getTaskLog();
+                var journal = bagDir.resolve(TaskLogJournal.TASK_LOG_JOURNAL);
+                if (Files.exists(journal)) {
+                    // Processing of the bag was interrupted before the task log could be saved
+                    var numberApplied = TaskLogJournal.replay(journal, taskLog);
+                    log.info("Applied {} changes from task log journal {}", numberApplied, journal);
+                }
             }
             catch (ConfigurationException e) {
                 throw new IllegalStateException("Error reading action log", e);
@@ -80,58 +95,68 @@ public class DataverseIngestBag implements Comparable<DataverseIngestBag> {
     }
 
     public Init getInit() throws IOException, ConfigurationException {
-        if (!Files.exists(bagDir.resolve(INIT_YML))) {
-            return null;
-        }
-        var initRoot = yamService.readYaml(bagDir.resolve(INIT_YML), InitRoot.class);
-        return initRoot.getInit();
+        var initRoot = readInstructions(INIT_YML, InitRoot.class);
+        return initRoot == null ? null : initRoot.getInit();
     }
 
     public Dataset getDatasetMetadata() throws IOException, ConfigurationException {
-        if (!Files.exists(bagDir.resolve(DATASET_YML))) {
-            return null;
+        var dataset = readInstructions(DATASET_YML, Dataset.class);
+        if (dataset != null) {
+            dataset.getDatasetVersion().setFiles(Collections.emptyList()); // files = null or a list of files is not allowed
         }
-        var dataset = yamService.readYaml(bagDir.resolve(DATASET_YML), Dataset.class);
-        dataset.getDatasetVersion().setFiles(Collections.emptyList()); // files = null or a list of files is not allowed
         return dataset;
     }
 
     public EditFiles getEditFiles() throws IOException, ConfigurationException {
-        if (!Files.exists(bagDir.resolve(EDIT_FILES_YML))) {
-            return null;
+        if (!instructions.containsKey(EDIT_FILES_YML)) {
+            // Prefer the binary copy written during conversion of a DANS deposit, as long as the YAML file has not changed since
+            EditFilesSidecar.readIfFresh(bagDir.resolve(EditFilesSidecar.EDIT_FILES_BIN), bagDir.resolve(EDIT_FILES_YML))
+                .ifPresent(editFiles -> instructions.put(EDIT_FILES_YML, new EditFilesRoot(editFiles)));
         }
-        var editFilesRoot = yamService.readYaml(bagDir.resolve(EDIT_FILES_YML), EditFilesRoot.class);
-        return editFilesRoot.getEditFiles();
+        var editFilesRoot = readInstructions(EDIT_FILES_YML, EditFilesRoot.class);
+        return editFilesRoot == null ? null : editFilesRoot.getEditFiles();
     }
 
     public EditMetadata getEditMetadata() throws IOException, ConfigurationException {
-        if (!Files.exists(bagDir.resolve(EDIT_METADATA_YML))) {
-            return null;
-        }
-        var editMetadataRoot = yamService.readYaml(bagDir.resolve(EDIT_METADATA_YML), EditMetadataRoot.class);
-        return editMetadataRoot.getEditMetadata();
+        var editMetadataRoot = readInstructions(EDIT_METADATA_YML, EditMetadataRoot.class);
+        return editMetadataRoot == null ? null : editMetadataRoot.getEditMetadata();
     }
 
     public EditPermissions getEditPermissions() throws IOException, ConfigurationException {
-        if (!Files.exists(bagDir.resolve(EDIT_PERMISSIONS_YML))) {
-            return null;
-        }
-        var editPermissionsRoot = yamService.readYaml(bagDir.resolve(EDIT_PERMISSIONS_YML), EditPermissionsRoot.class);
-        return editPermissionsRoot.getEditPermissions();
+        var editPermissionsRoot = readInstructions(EDIT_PERMISSIONS_YML, EditPermissionsRoot.class);
+        return editPermissionsRoot == null ? null : editPermissionsRoot.getEditPermissions();
     }
 
     public UpdateAction getUpdateState() throws IOException, ConfigurationException {
-        if (!Files.exists(bagDir.resolve(UPDATE_STATE_YML))) {
-            return null;
+        var updateStateRoot = readInstructions(UPDATE_STATE_YML, UpdateStateRoot.class);
+        return updateStateRoot == null ? null : updateStateRoot.getUpdateState();
+    }
+
+    /*
+     * Parses the instruction file only the first time it is requested, as the larger ones take a while to parse.
+     */
+    private <T> T readInstructions(String fileName, Class<T> target) throws IOException, ConfigurationException {
+        if (!instructions.containsKey(fileName)) {
+            var file = bagDir.resolve(fileName);
+            instructions.put(fileName, Files.exists(file) ? yamService.readYaml(file, target) : null);
         }
-        var updateStateRoot = yamService.readYaml(bagDir.resolve(UPDATE_STATE_YML), UpdateStateRoot.class);
-        return updateStateRoot.getUpdateState();
+        return target.cast(instructions.get(fileName));
     }
 
     public void saveTaskLog() throws IOException {
         yamService.writeYaml(new TaskLogRoot(taskLog), bagDir.resolve(TASK_LOG_YAML));
     }
 
+    /**
+     * Opens the journal in which changes to the task log are recorded until it is closed. See {@link TaskLogJournal}.
+     *
+     * @return the journal
+     * @throws IOException if the journal could not be opened
+     */
+    public TaskLogJournal openTaskLogJournal() throws IOException {
+        return TaskLogJournal.open(bagDir.resolve(TaskLogJournal.TASK_LOG_JOURNAL), taskLog);
+    }
+
     @Override
     public int compareTo(DataverseIngestBag dataverseIngestBag) {
         return bagDir.getFileName().toString().compareTo(dataverseIngestBag.bagDir.getFileName().toString());
@@ -19,7 +19,9 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.dvingest.core.dansbag.LightweightBagInfo;
 import nl.knaw.dans.dvingest.core.service.YamlService;
+import nl.knaw.dans.dvingest.core.yaml.InitRoot;
 import org.apache.commons.configuration2.PropertiesConfiguration;
 import org.apache.commons.configuration2.ex.ConfigurationException;
 
@@ -29,9 +31,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Getter
@@ -71,6 +77,139 @@ public class DataverseIngestDeposit implements Comparable<DataverseIngestDeposit
         return depositProperties.getString(UPDATES_DATASET_KEY);
     }
 
+    /**
+     * Returns the identifiers of the dataset targeted by this deposit. Deposits that share an identifier target the same dataset and must be processed one after the other, in order of creation
+     * timestamp. Deposits that share no identifier may be processed concurrently. The identifiers are taken from all of the following that are available:
+     *
+     * <ul>
+     *     <li>the <code>updates-dataset</code> property;</li>
+     *     <li>the <code>create.importPid</code> in the init.yml of the first bag, which later deposits refer to in their <code>updates-dataset</code> property;</li>
+     *     <li>the <code>dataverse.sword-token</code> property, which is shared by all versions of a dataset deposited through SWORD;</li>
+     *     <li>the Is-Version-Of field in the bag-info.txt of the first bag;</li>
+     *     <li>the <code>dataverse.bag-id</code> property, which the Is-Version-Of field of later versions refers to.</li>
+     * </ul>
+     * The identifiers are normalized, so that the same dataset is recognized whichever form a deposit uses: the <code>doi:</code>, <code>sword:</code> and <code>urn:uuid:</code> prefixes are removed
+     * and the result is in lower case. All identifiers are taken into account, rather than the first one available, because a deposit may gain an <code>updates-dataset</code> property during
+     * conversion, which must not change the dataset it is grouped with on a later run. If none is available, the deposit ID is returned.
+     *
+     * @return the normalized identifiers of the target dataset, never empty
+     */
+    public Set<String> getTargetDatasetIdentifiers() {
+        var identifiers = new LinkedHashSet<String>();
+        var firstBagDir = getFirstBagDir();
+        for (var identifier : Arrays.asList(
+            depositProperties.getString(UPDATES_DATASET_KEY),
+            firstBagDir == null ? null : getImportPid(firstBagDir),
+            depositProperties.getString(SWORD_TOKEN_KEY),
+            firstBagDir == null ? null : getIsVersionOf(firstBagDir),
+            depositProperties.getString(BAG_ID_KEY))) {
+            if (identifier != null && !identifier.isBlank()) {
+                identifiers.add(normalizeIdentifier(identifier.trim()));
+            }
+        }
+        if (identifiers.isEmpty()) {
+            identifiers.add(id.toString());
+        }
+        return identifiers;
+    }
+
+    /**
+     * Groups deposits by target dataset. Deposits that share an identifier of the target dataset, directly or through other deposits, end up in the same group. Within a group, the deposits are in
+     * order of creation timestamp; the groups are in order of their first deposit.
+     *
+     * @param deposits the deposits, in order of creation timestamp
+     * @return the groups of deposits
+     * @see #getTargetDatasetIdentifiers()
+     */
+    public static List<List<DataverseIngestDeposit>> groupByTargetDataset(Collection<DataverseIngestDeposit> deposits) {
+        var groups = new ArrayList<List<DataverseIngestDeposit>>();
+        var groupByIdentifier = new HashMap<String, List<DataverseIngestDeposit>>();
+        for (var deposit : deposits) {
+            var identifiers = deposit.getTargetDatasetIdentifiers();
+            List<DataverseIngestDeposit> group = null;
+            for (var identifier : identifiers) {
+                var other = groupByIdentifier.get(identifier);
+                if (other == null || other == group) {
+                    continue;
+                }
+                if (group == null) {
+                    group = other;
+                }
+                else {
+                    // The deposit links two groups that were separate until now
+                    group.addAll(other);
+                    var merged = group;
+                    groups.removeIf(g -> g == other);
+                    groupByIdentifier.replaceAll((key, value) -> value == other ? merged : value);
+                }
+            }
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.add(group);
+            }
+            group.add(deposit);
+            for (var identifier : identifiers) {
+                groupByIdentifier.put(identifier, group);
+            }
+        }
+        groups.forEach(group -> group.sort(null));
+        return groups;
+    }
+
+    private static String normalizeIdentifier(String identifier) {
+        for (var prefix : List.of("doi:", "sword:", "urn:uuid:")) {
+            if (identifier.toLowerCase().startsWith(prefix)) {
+                return identifier.substring(prefix.length()).toLowerCase();
+            }
+        }
+        return identifier.toLowerCase();
+    }
+
+    private Path getFirstBagDir() {
+        try (var files = Files.list(location)) {
+            return files.filter(Files::isDirectory)
+                .sorted()
+                .findFirst()
+                .orElse(null);
+        }
+        catch (IOException e) {
+            log.warn("[{}] Could not list bags", id, e);
+            return null;
+        }
+    }
+
+    private String getImportPid(Path bagDir) {
+        var initYml = bagDir.resolve(DataverseIngestBag.INIT_YML);
+        if (!Files.exists(initYml)) {
+            return null;
+        }
+        try {
+            var initRoot = yamlService.readYaml(initYml, InitRoot.class);
+            if (initRoot == null || initRoot.getInit() == null || initRoot.getInit().getCreate() == null) {
+                return null;
+            }
+            return initRoot.getInit().getCreate().getImportPid();
+        }
+        catch (IOException | ConfigurationException | RuntimeException e) {
+            log.warn("[{}] Could not read importPid from {}", id, initYml, e);
+            return null;
+        }
+    }
+
+    private String getIsVersionOf(Path bagDir) {
+        var bagInfo = bagDir.resolve("bag-info.txt");
+        if (!Files.exists(bagInfo)) {
+            return null;
+        }
+        try {
+            return new LightweightBagInfo(bagInfo).get("Is-Version-Of");
+        }
+        catch (IOException | RuntimeException e) {
+            log.warn("[{}] Could not read Is-Version-Of from bag-info.txt", id, e);
+            return null;
+        }
+    }
+
     @Override
     public boolean convertDansDepositIfNeeded() {
         return false;
@@ -29,6 +29,8 @@ public interface Deposit {
     String IDENTIFIER_NBN_KEY = "identifier.urn";
     String STATE_LABEL_KEY = "state.label";
     String STATE_DESCRIPTION_KEY = "state.description";
+    String SWORD_TOKEN_KEY = "dataverse.sword-token";
+    String BAG_ID_KEY = "dataverse.bag-id";
 
     /**
      * Convert the deposit to a DANS deposit if necessary. It is necessary if a DANS bag is required; in this case the deposit fails if it is not a DANS deposit. If a DANS bag is not required, but the
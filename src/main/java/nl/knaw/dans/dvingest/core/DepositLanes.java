@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Distributes deposit tasks over a fixed number of lanes. Each lane is backed by a single-threaded executor. A task is submitted with the keys of its target dataset; while a task is pending,
+ * its keys are claimed by its lane, so that later tasks that share any of these keys are submitted to the same lane and executed one after the other, in order of submission. Tasks without claimed
+ * keys are assigned a lane by the hash of their first key, so that they run concurrently with tasks in other lanes. For each lane the number of processed deposits (as a timer) and the number of
+ * waiting deposits (as a gauge) are registered in the metric registry.
+ */
+@Slf4j
+public class DepositLanes {
+    private final String name;
+    private final List<Lane> lanes = new ArrayList<>();
+
+    // The lane and the number of pending tasks for each claimed key; a key is released when its last task is done
+    private final Map<String, Claim> claims = new HashMap<>();
+
+    private static class Claim {
+        private final int laneNumber;
+        private int pendingTasks;
+
+        private Claim(int laneNumber) {
+            this.laneNumber = laneNumber;
+        }
+    }
+
+    private static class Lane {
+        private final ExecutorService executorService;
+        private final AtomicInteger queueDepth = new AtomicInteger();
+        private final Timer processed;
+
+        private Lane(ExecutorService executorService, Timer processed) {
+            this.executorService = executorService;
+            this.processed = processed;
+        }
+    }
+
+    /**
+     * Creates the lanes.
+     *
+     * @param name             the name of the lanes, used in metric names and log messages
+     * @param executorServices one single-threaded executor service per lane
+     * @param metricRegistry   the registry to register the lane metrics in
+     */
+    public DepositLanes(@NonNull String name, @NonNull List<ExecutorService> executorServices, @NonNull MetricRegistry metricRegistry) {
+        if (executorServices.isEmpty()) {
+            throw new IllegalArgumentException("At least one lane is required");
+        }
+        this.name = name;
+        for (int i = 0; i < executorServices.size(); i++) {
+            var lane = new Lane(executorServices.get(i), metricRegistry.timer(MetricRegistry.name(name, "lane-" + i, "processed")));
+            metricRegistry.register(MetricRegistry.name(name, "lane-" + i, "queue-depth"), (Gauge<Integer>) lane.queueDepth::get);
+            lanes.add(lane);
+        }
+        metricRegistry.register(MetricRegistry.name(name, "queue-depth"), (Gauge<Integer>) this::getQueueDepth);
+    }
+
+    /**
+     * Submits a task to the lane that the key maps to.
+     *
+     * @param key  the key that determines the lane, e.g. the target dataset of the deposit
+     * @param task the task to execute
+     * @see #submit(Set, Runnable)
+     */
+    public void submit(@NonNull String key, @NonNull Runnable task) {
+        submit(Set.of(key), task);
+    }
+
+    /**
+     * Submits a task to the lane that claimed one of the keys, or, if none of them is claimed, to the lane that the first key maps to. Tasks that must not run concurrently must share a key, so the
+     * keys must be in a normalized form, such as {@link DataverseIngestDeposit#getTargetDatasetIdentifiers()}.
+     *
+     * @param keys the keys that determine the lane, e.g. the identifiers of the target dataset of the deposit
+     * @param task the task to execute
+     */
+    public void submit(@NonNull Set<String> keys, @NonNull Runnable task) {
+        if (keys.isEmpty()) {
+            throw new IllegalArgumentException("At least one key is required");
+        }
+        var claimedKeys = new ArrayList<String>();
+        int laneNumber;
+        synchronized (claims) {
+            var claimedLanes = keys.stream()
+                .map(claims::get)
+                .filter(Objects::nonNull)
+                .map(claim -> claim.laneNumber)
+                .distinct()
+                .toList();
+            if (claimedLanes.size() > 1) {
+                log.warn("Keys {} are claimed by {} lanes {}; the task is not ordered with respect to the tasks in the other lanes", keys, name, claimedLanes);
+            }
+            laneNumber = claimedLanes.isEmpty() ? Math.floorMod(keys.iterator().next().hashCode(), lanes.size()) : claimedLanes.get(0);
+            for (var key : keys) {
+                var claim = claims.computeIfAbsent(key, k -> new Claim(laneNumber));
+                if (claim.laneNumber == laneNumber) {
+                    claim.pendingTasks++;
+                    claimedKeys.add(key);
+                }
+            }
+        }
+        var lane = lanes.get(laneNumber);
+        log.debug("Submitting task for keys {} to {} lane {}", keys, name, laneNumber);
+        lane.queueDepth.incrementAndGet();
+        try {
+            lane.executorService.execute(() -> {
+                lane.queueDepth.decrementAndGet();
+                try (var ignored = lane.processed.time()) {
+                    task.run();
+                }
+                finally {
+                    release(claimedKeys);
+                }
+            });
+        }
+        catch (RuntimeException e) {
+            lane.queueDepth.decrementAndGet();
+            release(claimedKeys);
+            throw e;
+        }
+    }
+
+    private void release(List<String> keys) {
+        synchronized (claims) {
+            for (var key : keys) {
+                var claim = claims.get(key);
+                if (--claim.pendingTasks == 0) {
+                    claims.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the total number of tasks waiting in all lanes, not counting the tasks that are currently running.
+     *
+     * @return the number of waiting tasks
+     */
+    public int getQueueDepth() {
+        return lanes.stream().mapToInt(lane -> lane.queueDepth.get()).sum();
+    }
+}
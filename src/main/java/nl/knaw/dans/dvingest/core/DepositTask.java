@@ -15,6 +15,7 @@
  */
 package nl.knaw.dans.dvingest.core;
 
+import com.codahale.metrics.MetricRegistry;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import nl.knaw.dans.lib.util.healthcheck.DependenciesReadyCheck;
@@ -40,44 +41,58 @@ public class DepositTask implements Runnable {
     private final BagProcessorFactory bagProcessorFactory;
     private final DependenciesReadyCheck dependenciesReadyCheck;
     private final long delayBetweenDeposits;
+    private final MetricRegistry metricRegistry;
+    private final String metricsPrefix;
 
     @Getter
     private Status status = Status.TODO;
 
     public DepositTask(DataverseIngestDeposit dataverseIngestDeposit, Path outputDir, boolean onlyConvertDansDeposit, BagProcessorFactory bagProcessorFactory,
-        DansDepositSupportFactory dansDepositSupportFactory, DependenciesReadyCheck dependenciesReadyCheck, long delayBetweenDeposits) {
+        DansDepositSupportFactory dansDepositSupportFactory, DependenciesReadyCheck dependenciesReadyCheck, long delayBetweenDeposits, MetricRegistry metricRegistry, String metricsPrefix) {
         this.deposit = dansDepositSupportFactory.addDansDepositSupportIfEnabled(dataverseIngestDeposit);
         this.outputDir = outputDir;
         this.onlyConvertDansDeposit = onlyConvertDansDeposit;
         this.bagProcessorFactory = bagProcessorFactory;
         this.dependenciesReadyCheck = dependenciesReadyCheck;
         this.delayBetweenDeposits = delayBetweenDeposits;
+        this.metricRegistry = metricRegistry;
+        this.metricsPrefix = metricsPrefix;
     }
 
     @Override
     public void run() {
         String pid = null;
-        try {
+        var timings = new DepositTimings();
+        try (var requestCounting = timings.countRequests()) {
             dependenciesReadyCheck.waitUntilReady();
-            deposit.validate();
-            if (deposit.convertDansDepositIfNeeded() && onlyConvertDansDeposit) {
+            try (var ignored = timings.phase("validate")) {
+                deposit.validate();
+            }
+            boolean converted;
+            try (var ignored = timings.phase("convert")) {
+                converted = deposit.convertDansDepositIfNeeded();
+            }
+            if (converted && onlyConvertDansDeposit) {
                 log.info("[{}] Only converting DANS deposit, LEAVING CONVERTED DEPOSIT IN PLACE", deposit.getId());
+                saveTimings(timings);
                 return;
             }
             pid = deposit.getUpdatesDataset();
 
             for (DataverseIngestBag bag : deposit.getBags()) {
                 log.info("[{}] START processing bag: {}", deposit.getId(), bag);
-                pid = bagProcessorFactory.createBagProcessor(deposit.getId(), bag).run(pid);
+                pid = bagProcessorFactory.createBagProcessor(deposit.getId(), bag, timings).run(pid);
                 log.info("[{}] END processing bag: {}", deposit.getId(), bag);
             }
             deposit.onSuccess(pid, "Deposit processed successfully");
+            saveTimings(timings);
             deposit.moveTo(outputDir.resolve("processed"));
         }
         catch (RejectedDepositException e) {
             try {
                 log.error("[{}] Deposit rejected: {}", deposit.getId(), e.getMessage());
                 deposit.onRejected(pid, e.getMessage());
+                saveTimings(timings);
                 deposit.moveTo(outputDir.resolve("rejected"));
                 status = Status.REJECTED;
             }
@@ -89,6 +104,7 @@ public class DepositTask implements Runnable {
             try {
                 log.error("[{}] Failed to ingest deposit", deposit.getId(), e);
                 deposit.onFailed(pid, e.getMessage());
+                saveTimings(timings);
                 deposit.moveTo(outputDir.resolve("failed"));
                 status = Status.FAILED;
             }
@@ -105,4 +121,16 @@ public class DepositTask implements Runnable {
             log.warn("[{}] Interrupted while waiting after deposit finish", deposit.getId());
         }
     }
+
+    private void saveTimings(DepositTimings timings) {
+        log.info("[{}] Timings: {} ms per phase; {} API calls; {} bytes uploaded; {} files processed", deposit.getId(), timings.getPhaseMillis(), timings.getNumberOfApiCalls(),
+            timings.getBytesUploaded(), timings.getFilesProcessed());
+        timings.addTo(metricRegistry, metricsPrefix);
+        try {
+            timings.save(deposit.getLocation());
+        }
+        catch (IOException e) {
+            log.warn("[{}] Could not save timings", deposit.getId(), e);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import com.codahale.metrics.MetricRegistry;
+import nl.knaw.dans.dvingest.core.service.DataverseRequestCounter;
+import nl.knaw.dans.dvingest.core.service.DataverseService;
+import nl.knaw.dans.dvingest.core.service.MeteredDataverseService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Records where the time goes while a deposit is processed: the duration of each phase, e.g. validate, convert, create, files, metadata, publish and release-wait, together with the number of
+ * requests sent to Dataverse, the bytes uploaded and the number of files processed. The requests are counted while the processing thread is bound to the counter with
+ * {@link #countRequests()}, which includes the conversion and excludes listings served from a cache. Phases that occur once per bag are summed over the bags of the deposit.
+ * </p>
+ * <p>
+ * The record is saved in the deposit directory as {@value #TIMINGS_FILE} and added to the histograms of all deposits in a metric registry. Instances are not thread-safe; a deposit is processed
+ * by one thread at a time.
+ * </p>
+ */
+public class DepositTimings {
+    public static final String TIMINGS_FILE = "_timings.properties";
+
+    private static final String DATAVERSE = "dataverse";
+
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+    private final MetricRegistry dataverseCalls = new MetricRegistry();
+    private final DataverseRequestCounter requestCounter = new DataverseRequestCounter();
+    private final long start = System.currentTimeMillis();
+    private long filesProcessed = 0;
+
+    /**
+     * A running phase, which adds its duration to the record when closed.
+     */
+    public class Phase implements AutoCloseable {
+        private final String name;
+        private final long phaseStart = System.currentTimeMillis();
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void close() {
+            phaseMillis.merge(name, System.currentTimeMillis() - phaseStart, Long::sum);
+        }
+    }
+
+    /**
+     * Starts timing a phase. Use in a try-with-resources statement.
+     *
+     * @param name the name of the phase
+     * @return the running phase
+     */
+    public Phase phase(String name) {
+        return new Phase(name);
+    }
+
+    /**
+     * Counts the requests sent to Dataverse by the current thread until the returned binding is closed. Use in a try-with-resources statement around the processing of the deposit.
+     *
+     * @return the binding of the request counter to the current thread
+     */
+    public DataverseRequestCounter.Binding countRequests() {
+        return requestCounter.bind();
+    }
+
+    /**
+     * Wraps the Dataverse service, so that the bytes uploaded for this deposit are counted.
+     *
+     * @param dataverseService the service to wrap
+     * @return the wrapped service
+     */
+    public DataverseService meter(DataverseService dataverseService) {
+        return new MeteredDataverseService(dataverseService, dataverseCalls, DATAVERSE);
+    }
+
+    public void addFilesProcessed(long numberOfFiles) {
+        filesProcessed += numberOfFiles;
+    }
+
+    public Map<String, Long> getPhaseMillis() {
+        return Map.copyOf(phaseMillis);
+    }
+
+    public long getNumberOfApiCalls() {
+        return requestCounter.getCount();
+    }
+
+    public long getBytesUploaded() {
+        return dataverseCalls.counter(MetricRegistry.name(DATAVERSE, MeteredDataverseService.BYTES_SENT)).getCount();
+    }
+
+    public long getFilesProcessed() {
+        return filesProcessed;
+    }
+
+    /**
+     * Writes the record to the deposit directory.
+     *
+     * @param depositDir the deposit directory
+     * @throws IOException if the file could not be written
+     */
+    public void save(Path depositDir) throws IOException {
+        var lines = new StringBuilder();
+        phaseMillis.forEach((phase, millis) -> lines.append("phase.").append(phase).append(".ms=").append(millis).append('\n'));
+        lines.append("total.ms=").append(System.currentTimeMillis() - start).append('\n');
+        lines.append("api-calls=").append(getNumberOfApiCalls()).append('\n');
+        lines.append("bytes-uploaded=").append(getBytesUploaded()).append('\n');
+        lines.append("files-processed=").append(filesProcessed).append('\n');
+        Files.writeString(depositDir.resolve(TIMINGS_FILE), lines);
+    }
+
+    /**
+     * Adds the record to the histograms of all deposits, named after the given prefix, e.g. {@code import.deposit.phase.files}.
+     *
+     * @param metricRegistry the registry
+     * @param prefix         the prefix of the histogram names
+     */
+    public void addTo(MetricRegistry metricRegistry, String prefix) {
+        phaseMillis.forEach((phase, millis) -> metricRegistry.histogram(MetricRegistry.name(prefix, "phase", phase)).update(millis));
+        metricRegistry.histogram(MetricRegistry.name(prefix, "total")).update(System.currentTimeMillis() - start);
+        metricRegistry.histogram(MetricRegistry.name(prefix, "api-calls")).update(getNumberOfApiCalls());
+        metricRegistry.histogram(MetricRegistry.name(prefix, "bytes-uploaded")).update(getBytesUploaded());
+        metricRegistry.histogram(MetricRegistry.name(prefix, "files-processed")).update(filesProcessed);
+    }
+}
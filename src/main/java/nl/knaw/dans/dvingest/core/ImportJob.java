@@ -25,7 +25,12 @@ import nl.knaw.dans.dvingest.api.ImportJobStatusDto.StatusEnum;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 @Slf4j
 public class ImportJob implements Runnable {
@@ -37,18 +42,22 @@ public class ImportJob implements Runnable {
     private final boolean onlyConvertDansDeposit;
     private final DataverseIngestDepositFactory depositFactory;
     private final DepositTaskFactory depositTaskFactory;
+    // If null, all deposits are processed one by one on the thread running the job
+    private final ExecutorService depositWorkers;
 
     @Getter
     private final ImportJobStatusDto status;
 
-    private boolean cancelled = false;
+    private volatile boolean cancelled = false;
 
-    public ImportJob(ImportCommandDto importCommand, String path, Path outputDir, boolean onlyConvertDansDeposit, DataverseIngestDepositFactory depositFactory, DepositTaskFactory depositTaskFactory) {
+    public ImportJob(ImportCommandDto importCommand, String path, Path outputDir, boolean onlyConvertDansDeposit, DataverseIngestDepositFactory depositFactory, DepositTaskFactory depositTaskFactory,
+        ExecutorService depositWorkers) {
         this.importCommand = importCommand;
         this.outputDir = outputDir;
         this.onlyConvertDansDeposit = onlyConvertDansDeposit;
         this.depositFactory = depositFactory;
         this.depositTaskFactory = depositTaskFactory;
+        this.depositWorkers = depositWorkers;
         this.status = new ImportJobStatusDto().status(StatusEnum.PENDING).path(path).singleObject(importCommand.getSingleObject()).message("Import job pending");
     }
 
@@ -127,23 +136,63 @@ public class ImportJob implements Runnable {
         }
     }
 
-    private void processDeposits(TreeSet<DataverseIngestDeposit> deposits) {
+    private void processDeposits(TreeSet<DataverseIngestDeposit> deposits) throws InterruptedException, ExecutionException {
+        if (depositWorkers == null) {
+            processDepositsInOrder(deposits);
+        }
+        else {
+            processDepositsPerDataset(deposits);
+        }
+        if (cancelled) {
+            log.info("Import job cancelled");
+            status.setMessage("Import job cancelled");
+        }
+        else {
+            status.setMessage("Import job completed");
+        }
+        status.setStatus(StatusEnum.DONE);
+    }
+
+    /**
+     * Groups the deposits by target dataset and processes the groups concurrently on the deposit workers. The deposits within a group are processed one after the other, in order of creation
+     * timestamp, so that the versions of a dataset are created in the right order.
+     *
+     * @param deposits the deposits, sorted by creation timestamp
+     */
+    private void processDepositsPerDataset(TreeSet<DataverseIngestDeposit> deposits) throws InterruptedException, ExecutionException {
+        var depositsPerDataset = DataverseIngestDeposit.groupByTargetDataset(deposits);
+        log.debug("Processing {} deposits for {} target datasets concurrently", deposits.size(), depositsPerDataset.size());
+        var futures = new ArrayList<Future<?>>();
+        for (var datasetDeposits : depositsPerDataset) {
+            futures.add(depositWorkers.submit(() -> processDepositsInOrder(datasetDeposits)));
+        }
+        ExecutionException firstFailure = null;
+        for (var future : futures) {
+            try {
+                future.get();
+            }
+            catch (ExecutionException e) {
+                log.error("Failed to process deposits for target dataset", e.getCause());
+                if (firstFailure == null) {
+                    firstFailure = e;
+                }
+            }
+        }
+        if (firstFailure != null) {
+            throw firstFailure;
+        }
+    }
+
+    private void processDepositsInOrder(Collection<DataverseIngestDeposit> deposits) {
         for (DataverseIngestDeposit dataverseIngestDeposit : deposits) {
             if (cancelled) {
-                log.info("Import job cancelled");
-                status.setMessage("Import job cancelled");
-                status.setStatus(StatusEnum.DONE);
                 return;
             }
-            else {
-                log.info("[{}] START Processing deposit.", dataverseIngestDeposit.getId());
-                var task = depositTaskFactory.createDepositTask(dataverseIngestDeposit, outputDir, onlyConvertDansDeposit);
-                task.run();
-                log.info("[{}] END Processing deposit.", dataverseIngestDeposit.getId());
-                // TODO: record number of processed/rejected/failed deposits in ImportJob status
-            }
+            log.info("[{}] START Processing deposit.", dataverseIngestDeposit.getId());
+            var task = depositTaskFactory.createDepositTask(dataverseIngestDeposit, outputDir, onlyConvertDansDeposit);
+            task.run();
+            log.info("[{}] END Processing deposit.", dataverseIngestDeposit.getId());
+            // TODO: record number of processed/rejected/failed deposits in ImportJob status
         }
-        status.setMessage("Import job completed");
-        status.setStatus(StatusEnum.DONE);
     }
 }
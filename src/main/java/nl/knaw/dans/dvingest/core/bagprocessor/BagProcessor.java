@@ -19,8 +19,10 @@ import io.dropwizard.configuration.ConfigurationException;
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
 import nl.knaw.dans.dvingest.core.DataverseIngestBag;
+import nl.knaw.dans.dvingest.core.DepositTimings;
 import nl.knaw.dans.dvingest.core.service.DataverseService;
 import nl.knaw.dans.dvingest.core.service.UtilityServices;
+import nl.knaw.dans.dvingest.core.yaml.EditFiles;
 import nl.knaw.dans.lib.dataverse.DataverseException;
 
 import java.io.IOException;
@@ -37,30 +39,53 @@ public class BagProcessor {
     private final PermissionsEditor permissionsEditor;
     private final StateUpdater stateUpdater;
     private final DataverseIngestBag bag;
+    private final DepositTimings timings;
+    private final EditFiles editFiles;
 
     @Builder
-    private BagProcessor(UUID depositId, DataverseIngestBag bag, DataverseService dataverseService, UtilityServices utilityServices) throws IOException, ConfigurationException {
+    private BagProcessor(UUID depositId, DataverseIngestBag bag, DepositTimings timings, DataverseService dataverseService, UtilityServices utilityServices)
+        throws IOException, ConfigurationException {
         this.bag = bag;
+        this.timings = timings;
+        this.editFiles = bag.getEditFiles();
         var taskLog = bag.getTaskLog();
         this.datasetVersionCreator = new DatasetVersionCreator(depositId, dataverseService, bag.getInit(), bag.getDatasetMetadata(), taskLog.getInit(), taskLog.getDataset());
         this.permissionsEditor = new PermissionsEditor(depositId, bag.getEditPermissions(), taskLog.getEditPermissions(), dataverseService);
-        this.filesEditor = new FilesEditor(depositId, bag.getDataDir(), bag.getEditFiles(), dataverseService, utilityServices, taskLog.getEditFiles());
+        this.filesEditor = new FilesEditor(depositId, bag.getDataDir(), editFiles, dataverseService, utilityServices, taskLog.getEditFiles());
         this.metadataEditor = new MetadataEditor(depositId, bag.getEditMetadata(), taskLog.getEditMetadata(), dataverseService);
-        this.stateUpdater = new StateUpdater(depositId, bag.getUpdateState(), taskLog.getUpdateState(), dataverseService);
+        this.stateUpdater = new StateUpdater(depositId, bag.getUpdateState(), taskLog.getUpdateState(), dataverseService, timings);
     }
 
     public String run(String targetPid) throws IOException, DataverseException {
+        var taskLogJournal = bag.openTaskLogJournal();
         try {
-            targetPid = datasetVersionCreator.createDatasetVersion(targetPid);
-            permissionsEditor.editPermissions(targetPid);
-            filesEditor.editFiles(targetPid);
-            metadataEditor.editMetadata(targetPid);
+            try (var ignored = timings.phase("create")) {
+                targetPid = datasetVersionCreator.createDatasetVersion(targetPid);
+            }
+            try (var ignored = timings.phase("permissions")) {
+                permissionsEditor.editPermissions(targetPid);
+            }
+            try (var ignored = timings.phase("files")) {
+                filesEditor.editFiles(targetPid);
+            }
+            if (editFiles != null) {
+                timings.addFilesProcessed(editFiles.getDeleteFiles().size() + editFiles.getReplaceFiles().size() + editFiles.getAddUnrestrictedFiles().size()
+                    + editFiles.getAddUnrestrictedFilesSeparately().size() + editFiles.getAddRestrictedFiles().size() + editFiles.getAddRestrictedFilesSeparately().size()
+                    + editFiles.getAddUnrestrictedIndividually().size() + editFiles.getAddRestrictedIndividually().size());
+            }
+            try (var ignored = timings.phase("metadata")) {
+                metadataEditor.editMetadata(targetPid);
+            }
+            // The publish and release-wait phases are timed by the state updater
             stateUpdater.updateState(targetPid, filesEditor.getFilesInDatasetCache().getNumberOfFilesInDataset());
             return targetPid;
 
         }
         finally {
+            taskLogJournal.close();
             bag.saveTaskLog();
+            // The saved task log contains all changes recorded in the journal
+            taskLogJournal.delete();
         }
     }
 }
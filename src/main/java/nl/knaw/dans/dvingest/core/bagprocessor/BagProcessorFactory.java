@@ -17,6 +17,7 @@ package nl.knaw.dans.dvingest.core.bagprocessor;
 
 import io.dropwizard.configuration.ConfigurationException;
 import nl.knaw.dans.dvingest.core.DataverseIngestBag;
+import nl.knaw.dans.dvingest.core.DepositTimings;
 
 import java.io.IOException;
 import java.util.UUID;
@@ -31,10 +32,11 @@ public interface BagProcessorFactory {
      *
      * @param depositId the deposit id
      * @param bag       the bag
+     * @param timings   the timings of the deposit, to which the BagProcessor adds those of the bag
      * @return the BagProcessor
      * @throws ConfigurationException if the Yaml files in the bag are not valid
      * @throws IOException            if there was a problem readin the bag files
      */
-    BagProcessor createBagProcessor(UUID depositId, DataverseIngestBag bag) throws ConfigurationException, IOException;
+    BagProcessor createBagProcessor(UUID depositId, DataverseIngestBag bag, DepositTimings timings) throws ConfigurationException, IOException;
 
 }
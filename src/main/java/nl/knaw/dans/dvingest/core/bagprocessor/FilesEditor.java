@@ -20,26 +20,36 @@ import lombok.Getter;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import nl.knaw.dans.dvingest.core.service.DataverseService;
+import nl.knaw.dans.dvingest.core.service.UploadNotAcceptedException;
 import nl.knaw.dans.dvingest.core.service.UtilityServices;
 import nl.knaw.dans.dvingest.core.yaml.EditFiles;
 import nl.knaw.dans.dvingest.core.yaml.FromTo;
 import nl.knaw.dans.dvingest.core.yaml.tasklog.CompletableItemWithCount;
+import nl.knaw.dans.dvingest.core.yaml.tasklog.CompletableItemWithPlan;
 import nl.knaw.dans.dvingest.core.yaml.tasklog.EditFilesLog;
 import nl.knaw.dans.lib.dataverse.DataverseException;
 import nl.knaw.dans.lib.dataverse.model.dataset.Embargo;
+import nl.knaw.dans.lib.dataverse.model.dataset.FileList;
 import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
 import nl.knaw.dans.lib.dataverse.model.file.FileMetaUpdate;
 import nl.knaw.dans.lib.util.PathIterator;
-import org.apache.commons.collections4.IteratorUtils;
 import org.apache.commons.io.FileUtils;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -283,7 +293,7 @@ public class FilesEditor {
         addFiles("addUnrestrictedFilesSeparately", editFiles.getAddUnrestrictedFilesSeparately(), editFilesLog.getAddUnrestrictedFilesSeparately(), false);
     }
 
-    private void addFiles(String taskName, List<String> filesToAdd, CompletableItemWithCount fileAddLog, boolean restrict) throws IOException, DataverseException {
+    private void addFiles(String taskName, List<String> filesToAdd, CompletableItemWithPlan fileAddLog, boolean restrict) throws IOException, DataverseException {
         if (fileAddLog.isCompleted()) {
             log.debug("[{}] Task {} already completed.", depositId, taskName);
             return;
@@ -299,12 +309,20 @@ public class FilesEditor {
                 depositId, filesToAdd.size(),
                 restrict ? "restricted" : "unrestricted",
                 taskName.endsWith("Separately") ? " separately" : "");
-            var iterator = new PathIterator(
-                IteratorUtils.skippingIterator(
-                    filesToAdd.stream().map(dataDir::resolve).map(Path::toFile).iterator(),
-                    fileAddLog.getNumberCompleted()));
-            while (iterator.hasNext()) {
-                uploadFileBatch(iterator, restrict, fileAddLog);
+            var batches = getRemainingBatches(filesToAdd, fileAddLog);
+            if (utilityServices.isStreamUploadBatches() && dataverseService.isZipStreamSupported()) {
+                uploadFileBatchesStreaming(batches, restrict, fileAddLog);
+            }
+            else if (utilityServices.getMaxNumberOfUploadBatchesInFlight() > 1) {
+                uploadFileBatchesPipelined(batches, restrict, fileAddLog);
+            }
+            else {
+                for (var batch : batches) {
+                    var iterator = toPathIterator(batch);
+                    while (iterator.hasNext()) {
+                        uploadFileBatch(iterator, restrict, fileAddLog);
+                    }
+                }
             }
             log.debug("[{}] End adding {} {} files.{}",
                 depositId,
@@ -312,30 +330,218 @@ public class FilesEditor {
                 taskName.endsWith("Separately") ? " separately" : "");
         }
         fileAddLog.setCompleted(true);
+        fileAddLog.setPlan(null);
+    }
+
+    /**
+     * Returns the batches that still have to be uploaded. The first time this is called for a task, the files are bin-packed into batches, and the plan is stored in the task log, so that a resumed
+     * task uploads the same batches. The number of completed files in the task log counts the files in the order of the plan.
+     *
+     * @param filesToAdd the files to add, relative to the data directory
+     * @param fileAddLog the task log item
+     * @return the remaining batches
+     */
+    private List<List<Path>> getRemainingBatches(List<String> filesToAdd, CompletableItemWithPlan fileAddLog) throws IOException {
+        var numberCompleted = fileAddLog.getNumberCompleted();
+        if (fileAddLog.getPlan() == null) {
+            var plan = new ArrayList<List<String>>();
+            if (numberCompleted > 0) {
+                // Progress recorded without a plan refers to the order of filesToAdd
+                plan.add(new ArrayList<>(filesToAdd.subList(0, numberCompleted)));
+            }
+            var filesToPlan = filesToAdd.subList(numberCompleted, filesToAdd.size()).stream().map(dataDir::resolve).toList();
+            for (var batch : utilityServices.planUploadBatches(filesToPlan)) {
+                plan.add(batch.stream().map(file -> dataDir.relativize(file).toString()).toList());
+            }
+            log.debug("[{}] Planned {} files in {} batches", depositId, filesToPlan.size(), plan.size() - (numberCompleted > 0 ? 1 : 0));
+            fileAddLog.setPlan(plan);
+        }
+        var remaining = new ArrayList<List<Path>>();
+        var toSkip = numberCompleted;
+        for (var batch : fileAddLog.getPlan()) {
+            if (toSkip >= batch.size()) {
+                toSkip -= batch.size();
+                continue;
+            }
+            remaining.add(batch.subList(toSkip, batch.size()).stream().map(dataDir::resolve).toList());
+            toSkip = 0;
+        }
+        return remaining;
+    }
+
+    private PathIterator toPathIterator(List<Path> files) {
+        return new PathIterator(files.stream().map(Path::toFile).iterator());
     }
 
     private void uploadFileBatch(PathIterator iterator, boolean restrict, CompletableItemWithCount trackLog) throws IOException, DataverseException {
+        var zipFile = zipFileBatch(iterator);
+        try {
+            uploadZippedFileBatch(zipFile, restrict, trackLog);
+        }
+        finally {
+            Files.deleteIfExists(zipFile);
+        }
+    }
+
+    /**
+     * Uploads the files in batches, while building the next batches in a background thread. The uploads themselves are still done one after the other and in order, so that the number of completed
+     * files in the task log always corresponds to a prefix of the list of files to add. At most {@link UtilityServices#getMaxNumberOfUploadBatchesInFlight()} ZIP files exist at any time.
+     *
+     * @param batches   the planned batches of files to upload
+     * @param restrict  whether the files must be restricted
+     * @param trackLog  the task log item to record progress in
+     */
+    private void uploadFileBatchesPipelined(List<List<Path>> batches, boolean restrict, CompletableItemWithCount trackLog) throws IOException, DataverseException {
+        var batchSlots = new Semaphore(utilityServices.getMaxNumberOfUploadBatchesInFlight());
+        var zippedBatches = new LinkedBlockingQueue<Path>();
+        var zipper = Executors.newSingleThreadExecutor();
+        var producer = zipper.submit(() -> {
+            for (var batch : batches) {
+                var iterator = toPathIterator(batch);
+                while (iterator.hasNext()) {
+                    batchSlots.acquire();
+                    zippedBatches.put(zipFileBatch(iterator));
+                }
+            }
+            return null;
+        });
+        try {
+            while (true) {
+                var zipFile = zippedBatches.poll(100, TimeUnit.MILLISECONDS);
+                if (zipFile == null) {
+                    if (producer.isDone() && zippedBatches.isEmpty()) {
+                        getZipperResult(producer);
+                        break;
+                    }
+                    continue;
+                }
+                try {
+                    uploadZippedFileBatch(zipFile, restrict, trackLog);
+                }
+                finally {
+                    Files.deleteIfExists(zipFile);
+                    batchSlots.release();
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while uploading file batches", e);
+        }
+        finally {
+            producer.cancel(true);
+            zipper.shutdownNow();
+            awaitTermination(zipper);
+            for (var zipFile : zippedBatches) {
+                FileUtils.deleteQuietly(zipFile.toFile());
+            }
+        }
+    }
+
+    /**
+     * Uploads the files in batches, generating each ZIP file while it is being sent to Dataverse, so that no temporary ZIP file is needed. If a streaming upload fails before Dataverse could have
+     * added any of the files, the batch is uploaded again from a temporary ZIP file. Any other failure fails the task, as retrying could add the files to the dataset twice.
+     *
+     * @param batches  the planned batches of files to upload
+     * @param restrict whether the files must be restricted
+     * @param trackLog the task log item to record progress in
+     */
+    private void uploadFileBatchesStreaming(List<List<Path>> batches, boolean restrict, CompletableItemWithCount trackLog) throws IOException, DataverseException {
+        var renameMap = filesInDatasetCache.getAutoRenamedFiles();
+        for (var batch : batches) {
+            log.debug("[{}] Start streaming batch of {} files", depositId, batch.size());
+            try {
+                // Wait for the ingest of the previous batch first, so that it is not counted in the duration of this batch
+                dataverseService.awaitIngest(pid);
+                var start = System.nanoTime();
+                var addedFileMetaList = dataverseService.addZipStream(pid, out -> utilityServices.zipFiles(dataDir, batch, renameMap, out), restrict);
+                recordUploadedBatch(addedFileMetaList, trackLog);
+                dataverseService.awaitIngest(pid);
+                utilityServices.recordUploadBatch(addedFileMetaList.getFiles().size(), getTotalSize(batch), Duration.ofNanos(System.nanoTime() - start));
+            }
+            catch (UploadNotAcceptedException e) {
+                log.warn("[{}] Streaming upload of batch was not accepted; retrying with temporary ZIP file", depositId, e);
+                var zipFile = utilityServices.createTempZipFile();
+                try {
+                    try (var out = Files.newOutputStream(zipFile)) {
+                        utilityServices.zipFiles(dataDir, batch, renameMap, out);
+                    }
+                    uploadZippedFileBatch(zipFile, restrict, trackLog);
+                }
+                finally {
+                    Files.deleteIfExists(zipFile);
+                }
+            }
+        }
+    }
+
+    private void getZipperResult(Future<?> producer) throws IOException, InterruptedException {
+        try {
+            producer.get();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new RuntimeException("Failed to create ZIP file for upload batch", e.getCause());
+        }
+    }
+
+    private void awaitTermination(ExecutorService executorService) {
+        try {
+            if (!executorService.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("[{}] ZIP file creation did not stop within one minute", depositId);
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Path zipFileBatch(PathIterator iterator) throws IOException {
         var tempZipFile = utilityServices.createTempZipFile();
         try {
-            var zipFile = utilityServices.createPathIteratorZipperBuilder(filesInDatasetCache.getAutoRenamedFiles())
+            return utilityServices.createPathIteratorZipperBuilder(filesInDatasetCache.getAutoRenamedFiles())
                 .rootDir(dataDir)
                 .sourceIterator(iterator)
                 .targetZipFile(tempZipFile)
                 .build()
                 .zip();
-            var fileMeta = new FileMeta();
-            fileMeta.setRestricted(restrict);
-            log.debug("[{}] Start uploading batch in ZIP file: {}", depositId, zipFile);
-            var addedFileMetaList = dataverseService.addFile(pid, zipFile, fileMeta);
-            log.debug("[{}] End uploading batch in ZIP file: {}", depositId, zipFile);
-            trackLog.setNumberCompleted(trackLog.getNumberCompleted() + addedFileMetaList.getFiles().size());
-            log.debug("[{}] Added {} files in this batch; total: {}", depositId, addedFileMetaList.getFiles().size(), trackLog.getNumberCompleted());
-            for (var fm : addedFileMetaList.getFiles()) {
-                filesInDatasetCache.put(fm); // auto-rename is done by PathIteratorZipper
-            }
         }
-        finally {
+        catch (IOException | RuntimeException e) {
             Files.deleteIfExists(tempZipFile);
+            throw e;
+        }
+    }
+
+    private void uploadZippedFileBatch(Path zipFile, boolean restrict, CompletableItemWithCount trackLog) throws IOException, DataverseException {
+        var fileMeta = new FileMeta();
+        fileMeta.setRestricted(restrict);
+        log.debug("[{}] Start uploading batch in ZIP file: {}", depositId, zipFile);
+        var zipFileSize = Files.size(zipFile);
+        // Wait for the ingest of the previous batch first, so that it is not counted in the duration of this batch
+        dataverseService.awaitIngest(pid);
+        var start = System.nanoTime();
+        var addedFileMetaList = dataverseService.addFile(pid, zipFile, fileMeta);
+        log.debug("[{}] End uploading batch in ZIP file: {}", depositId, zipFile);
+        recordUploadedBatch(addedFileMetaList, trackLog);
+        dataverseService.awaitIngest(pid);
+        utilityServices.recordUploadBatch(addedFileMetaList.getFiles().size(), zipFileSize, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private long getTotalSize(List<Path> files) throws IOException {
+        long totalSize = 0;
+        for (var file : files) {
+            totalSize += Files.size(file);
+        }
+        return totalSize;
+    }
+
+    private void recordUploadedBatch(FileList addedFileMetaList, CompletableItemWithCount trackLog) {
+        trackLog.setNumberCompleted(trackLog.getNumberCompleted() + addedFileMetaList.getFiles().size());
+        log.debug("[{}] Added {} files in this batch; total: {}", depositId, addedFileMetaList.getFiles().size(), trackLog.getNumberCompleted());
+        for (var fm : addedFileMetaList.getFiles()) {
+            filesInDatasetCache.put(fm); // auto-rename is done by PathIteratorZipper
         }
     }
 
@@ -412,6 +618,7 @@ public class FilesEditor {
             if (numberOfEmbargoesAdded > 0) {
                 log.debug("[{}] Resuming adding embargoes from number {}", depositId, numberOfEmbargoesAdded);
             }
+            var embargoes = new ArrayList<Embargo>();
             for (int i = numberOfEmbargoesAdded; i < editFiles.getAddEmbargoes().size(); i++) {
                 var addEmbargo = editFiles.getAddEmbargoes().get(i);
                 log.debug("[{}] Adding embargo number {}", depositId, i);
@@ -423,9 +630,9 @@ public class FilesEditor {
                     .map(filesInDatasetCache::get)
                     .mapToInt(file -> file.getDataFile().getId()).toArray();
                 embargo.setFileIds(fileIds);
-                dataverseService.addEmbargo(pid, embargo);
-                editFilesLog.getAddEmbargoes().setNumberCompleted(++numberOfEmbargoesAdded);
+                embargoes.add(embargo);
             }
+            dataverseService.addEmbargoes(pid, embargoes, numberAdded -> editFilesLog.getAddEmbargoes().setNumberCompleted(numberOfEmbargoesAdded + numberAdded));
             log.debug("[{}] End adding {} embargoes.", depositId, editFiles.getAddEmbargoes().size());
         }
         editFilesLog.getAddEmbargoes().setCompleted(true);
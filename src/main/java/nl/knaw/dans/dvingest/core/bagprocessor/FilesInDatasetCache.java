@@ -15,6 +15,9 @@
  */
 package nl.knaw.dans.dvingest.core.bagprocessor;
 
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -34,6 +37,10 @@ import java.util.Map;
  */
 @Slf4j
 public class FilesInDatasetCache {
+    private static final ObjectMapper fileMetaMapper = new ObjectMapper()
+        .setSerializationInclusion(Include.NON_NULL)
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
     private final DataverseService dataverseService;
     /*
      * Key: filepath after auto-rename / Value: FileMeta object
@@ -75,7 +82,8 @@ public class FilesInDatasetCache {
 
     /**
      * A move operation is in fact a file metadata update operation in which the directory label and label are updated. This method allows to update cached FileMeta object before the move with the new
-     * filepath. The filepath will be auto-renamed if it is in the renamedFiles map, so the local path from the bag is used.
+     * filepath. The filepath will be auto-renamed if it is in the renamedFiles map, so the local path from the bag is used. The cached object is replaced by an updated copy, because the downloaded
+     * FileMeta objects may be shared with other users of the {@link DataverseService}.
      *
      * @param fromPath the current path, before auto-rename, so paths as found in the bag can be used
      * @param toPath   the new path, before auto-rename, so paths as found in the bag can be used
@@ -84,10 +92,11 @@ public class FilesInDatasetCache {
     public FileMeta modifyCachedFileMetaForFileMove(@NonNull String fromPath, @NonNull String toPath) {
         var fromDataversePath = new DataversePath(autoRenamePath(fromPath));
         var toDataversePath = new DataversePath(autoRenamePath(toPath));
-        var cachedFileMeta = filesInDataset.get(fromDataversePath.toString());
-        if (cachedFileMeta == null) {
+        var originalFileMeta = filesInDataset.get(fromDataversePath.toString());
+        if (originalFileMeta == null) {
             throw new IllegalArgumentException("File to move not found in dataset: " + fromDataversePath);
         }
+        var cachedFileMeta = copy(originalFileMeta);
         cachedFileMeta.setDirectoryLabel(toDataversePath.getDirectoryLabel());
         cachedFileMeta.setLabel(toDataversePath.getLabel());
         // Ensure that the file meta is findable under the new path.
@@ -98,23 +107,30 @@ public class FilesInDatasetCache {
 
     /**
      * Updates the cached FileMeta object with the new description, categories and restrict value. The filepath will be auto-renamed if it is in the renamedFiles map, so the local path from the bag is
-     * used. If restrict is not to changed, it must be set to null, otherwise the API will return an error.
+     * used. If restrict is not to changed, it must be set to null, otherwise the API will return an error. The cached object is replaced by an updated copy, as for
+     * {@link #modifyCachedFileMetaForFileMove(String, String)}.
      *
      * @param fileMeta the new FileMeta object with the updated values (without the datafile)
      * @return the updated cached FileMeta object
      */
     public FileMeta modifyFileMetaForUpdate(@NonNull FileMeta fileMeta) {
         var dataversePath = new DataversePath(fileMeta.getDirectoryLabel(), fileMeta.getLabel());
-        var cachedFileMeta = filesInDataset.get(dataversePath.toString());
-        if (cachedFileMeta == null) {
+        var originalFileMeta = filesInDataset.get(dataversePath.toString());
+        if (originalFileMeta == null) {
             throw new IllegalArgumentException("File to update not found in dataset: " + dataversePath);
         }
+        var cachedFileMeta = copy(originalFileMeta);
         cachedFileMeta.setDescription(fileMeta.getDescription());
         cachedFileMeta.setCategories(fileMeta.getCategories());
         cachedFileMeta.setRestricted(fileMeta.getRestrict());
+        filesInDataset.put(dataversePath.toString(), cachedFileMeta);
         return cachedFileMeta;
     }
 
+    private static FileMeta copy(FileMeta fileMeta) {
+        return fileMetaMapper.convertValue(fileMeta, FileMeta.class);
+    }
+
     /**
      * Removes the FileMeta object for the given filepath. The filepath will be auto-renamed if it is in the renamedFiles map, so the local path from the bag is used.
      *
@@ -138,10 +154,7 @@ public class FilesInDatasetCache {
             throw new IllegalStateException("Cache already initialized");
         }
 
-        var files = dataverseService.getFiles(pid, includeDraftVersion);
-        for (var file : files) {
-            filesInDataset.put(getPath(file), file);
-        }
+        dataverseService.getFiles(pid, includeDraftVersion, file -> filesInDataset.put(getPath(file), file));
         initialized = true;
     }
 
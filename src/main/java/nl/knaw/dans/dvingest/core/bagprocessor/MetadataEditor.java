@@ -19,10 +19,13 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import nl.knaw.dans.dvingest.core.service.DataverseService;
 import nl.knaw.dans.dvingest.core.yaml.EditMetadata;
+import nl.knaw.dans.dvingest.core.yaml.tasklog.CompletableItemWithCount;
 import nl.knaw.dans.dvingest.core.yaml.tasklog.EditMetadataLog;
 import nl.knaw.dans.lib.dataverse.DataverseException;
+import nl.knaw.dans.lib.dataverse.model.dataset.MetadataField;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
 
 @RequiredArgsConstructor
@@ -59,10 +62,14 @@ public class MetadataEditor {
         }
         else {
             log.debug("[{}] Start deleting {} field values.", depositId, editMetadata.getDeleteFieldValues().size());
-            for (var fieldValue : editMetadata.getDeleteFieldValues()) {
-                log.debug("[{}] Deleting field value: {}", depositId, fieldValue.getTypeName());
-                dataverseService.deleteDatasetMetadata(pid, editMetadata.getDeleteFieldValues());
+            var fieldValues = getRemainingFieldValues(editMetadata.getDeleteFieldValues(), editMetadataLog.getDeleteFieldValues());
+            if (fieldValues.isEmpty()) {
+                log.debug("[{}] All field values were already sent before processing was interrupted.", depositId);
             }
+            else {
+                dataverseService.deleteDatasetMetadata(pid, fieldValues);
+            }
+            editMetadataLog.getDeleteFieldValues().setNumberCompleted(editMetadata.getDeleteFieldValues().size());
             log.debug("[{}] End deleting field values.", depositId);
         }
         editMetadataLog.getDeleteFieldValues().setCompleted(true);
@@ -78,10 +85,14 @@ public class MetadataEditor {
         }
         else {
             log.debug("[{}] Start adding {} field values.", depositId, editMetadata.getAddFieldValues().size());
-            for (var fieldValue : editMetadata.getAddFieldValues()) {
-                log.debug("[{}] Adding field value: {}", depositId, fieldValue.getTypeName());
-                dataverseService.editMetadata(pid, editMetadata.getAddFieldValues(), false);
+            var fieldValues = getRemainingFieldValues(editMetadata.getAddFieldValues(), editMetadataLog.getAddFieldValues());
+            if (fieldValues.isEmpty()) {
+                log.debug("[{}] All field values were already sent before processing was interrupted.", depositId);
+            }
+            else {
+                dataverseService.editMetadata(pid, fieldValues, false);
             }
+            editMetadataLog.getAddFieldValues().setNumberCompleted(editMetadata.getAddFieldValues().size());
             log.debug("[{}] End adding field values.", depositId);
         }
         editMetadataLog.getAddFieldValues().setCompleted(true);
@@ -96,13 +107,29 @@ public class MetadataEditor {
             log.debug("[{}] No field values to replace.", depositId);
         }
         else {
-            log.debug("Start replacing field values for deposit {}", depositId);
-            for (var fieldValue : editMetadata.getReplaceFieldValues()) {
-                log.debug("Replacing field value: {}", fieldValue.getTypeName());
-                dataverseService.editMetadata(pid, editMetadata.getReplaceFieldValues(), true);
+            log.debug("[{}] Start replacing {} field values.", depositId, editMetadata.getReplaceFieldValues().size());
+            var fieldValues = getRemainingFieldValues(editMetadata.getReplaceFieldValues(), editMetadataLog.getReplaceFieldValues());
+            if (fieldValues.isEmpty()) {
+                log.debug("[{}] All field values were already sent before processing was interrupted.", depositId);
             }
-            log.debug("End replacing field values for deposit {}", depositId);
+            else {
+                dataverseService.editMetadata(pid, fieldValues, true);
+            }
+            editMetadataLog.getReplaceFieldValues().setNumberCompleted(editMetadata.getReplaceFieldValues().size());
+            log.debug("[{}] End replacing field values.", depositId);
         }
         editMetadataLog.getReplaceFieldValues().setCompleted(true);
     }
+
+    private List<MetadataField> getRemainingFieldValues(List<MetadataField> fieldValues, CompletableItemWithCount itemLog) {
+        int numberCompleted = itemLog.getNumberCompleted();
+        if (numberCompleted > 0) {
+            log.debug("[{}] Resuming from field value {}.", depositId, numberCompleted);
+        }
+        var remaining = fieldValues.subList(numberCompleted, fieldValues.size());
+        for (var fieldValue : remaining) {
+            log.debug("[{}] Field value: {}", depositId, fieldValue.getTypeName());
+        }
+        return remaining;
+    }
 }
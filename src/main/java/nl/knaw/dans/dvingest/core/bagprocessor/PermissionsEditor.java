@@ -62,12 +62,11 @@ public class PermissionsEditor {
             if (numberCompleted > 0) {
                 log.debug("[{}] Resuming adding role assignments from index {}.", depositId, numberCompleted);
             }
-            for (int i = numberCompleted; i < editPermissions.getAddRoleAssignments().size(); i++) {
-                var roleAssignment = editPermissions.getAddRoleAssignments().get(i);
+            var roleAssignments = editPermissions.getAddRoleAssignments().subList(numberCompleted, editPermissions.getAddRoleAssignments().size());
+            for (var roleAssignment : roleAssignments) {
                 log.debug("[{}] Adding role assignment: {}={}", depositId, roleAssignment.getAssignee(), roleAssignment.getRole());
-                dataverseService.addRoleAssignment(pid, roleAssignment);
-                editPermissionsLog.getAddRoleAssignments().setNumberCompleted(i + 1);
             }
+            dataverseService.addRoleAssignments(pid, roleAssignments, numberAdded -> editPermissionsLog.getAddRoleAssignments().setNumberCompleted(numberCompleted + numberAdded));
             log.debug("[{}] End adding role assignments.", depositId);
         }
         editPermissionsLog.getAddRoleAssignments().setCompleted(true);
@@ -87,11 +86,11 @@ public class PermissionsEditor {
             if (numberCompleted > 0) {
                 log.debug("[{}] Resuming deleting role assignments from index {}.", depositId, numberCompleted);
             }
-            for (int i = numberCompleted; i < editPermissions.getDeleteRoleAssignments().size(); i++) {
-                var roleAssignment = editPermissions.getDeleteRoleAssignments().get(i);
+            var roleAssignments = editPermissions.getDeleteRoleAssignments().subList(numberCompleted, editPermissions.getDeleteRoleAssignments().size());
+            for (var roleAssignment : roleAssignments) {
                 log.debug("[{}] Deleting role assignment: {}={}", depositId, roleAssignment.getAssignee(), roleAssignment.getRole());
-                dataverseService.deleteRoleAssignment(pid, roleAssignment);
             }
+            dataverseService.deleteRoleAssignments(pid, roleAssignments, numberDeleted -> editPermissionsLog.getDeleteRoleAssignments().setNumberCompleted(numberCompleted + numberDeleted));
             log.debug("[{}] End deleting role assignments.", depositId);
         }
         editPermissionsLog.getDeleteRoleAssignments().setCompleted(true);
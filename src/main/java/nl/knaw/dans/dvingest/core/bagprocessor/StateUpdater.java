@@ -17,6 +17,7 @@ package nl.knaw.dans.dvingest.core.bagprocessor;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.dvingest.core.DepositTimings;
 import nl.knaw.dans.dvingest.core.service.DataverseService;
 import nl.knaw.dans.dvingest.core.yaml.PublishAction;
 import nl.knaw.dans.dvingest.core.yaml.ReleaseMigratedAction;
@@ -36,6 +37,7 @@ public class StateUpdater {
     private final CompletableItem updateStateLog;
 
     private final DataverseService dataverseService;
+    private final DepositTimings timings;
 
     private String pid;
     private int numberOfFilesInDataset;
@@ -60,18 +62,26 @@ public class StateUpdater {
 
     private void publishVersion(UpdateType updateType) throws DataverseException, IOException {
         log.debug("[{}] Start publishing version; dataset = {}; updateType = {}", depositId, pid, updateType);
-        dataverseService.publishDataset(pid, updateType);
+        try (var ignored = timings.phase("publish")) {
+            dataverseService.publishDataset(pid, updateType);
+        }
         log.debug("[{}] Waiting for dataset to reach released state; dataset = {}", depositId, pid);
-        dataverseService.waitForReleasedState(pid, numberOfFilesInDataset);
+        try (var ignored = timings.phase("release-wait")) {
+            dataverseService.waitForReleasedState(pid, numberOfFilesInDataset);
+        }
         log.debug("[{}] Dataset reached released state; dataset = {}", depositId, pid);
         log.debug("[{}] End publishing version; dataset = {}; updateType = {}", depositId, pid, updateType);
     }
 
     public void releaseMigrated(String date) throws DataverseException, IOException {
         log.debug("[{}] Start releasing migrated dataset with pid {} and date {}", depositId, pid, date);
-        dataverseService.releaseMigratedDataset(pid, date);
+        try (var ignored = timings.phase("publish")) {
+            dataverseService.releaseMigratedDataset(pid, date);
+        }
         log.debug("[{}] Waiting for dataset to reach released state; dataset = {}", depositId, pid);
-        dataverseService.waitForReleasedState(pid, numberOfFilesInDataset);
+        try (var ignored = timings.phase("release-wait")) {
+            dataverseService.waitForReleasedState(pid, numberOfFilesInDataset);
+        }
         log.debug("[{}] Dataset reached released state; dataset = {}", depositId, pid);
         log.debug("[{}] End releasing migrated dataset with pid {} and date {}", depositId, pid, date);
     }
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.dansbag;
+
+import gov.loc.repository.bagit.hash.SupportedAlgorithm;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Checksums computed earlier for the files of a deposit, so that a re-run of the deposit does not have to read the files again. An entry is keyed on the path of the file relative to the deposit
+ * directory, its size and its last modified time. If the file was changed since its checksum was recorded, the entry is not used and the file must be hashed again.
+ * </p>
+ * <p>
+ * Entries are appended to the sidecar file as soon as they are recorded, so that the checksums computed before an interruption are kept. If a file has several entries for an algorithm, the last one
+ * wins. Lines that cannot be parsed are ignored.
+ * </p>
+ */
+@Slf4j
+public class ChecksumSidecar implements Closeable {
+    public static final String FILENAME = "_checksums.txt";
+
+    private record Key(String algorithm, String path) {
+    }
+
+    private record Entry(long size, long lastModified, String checksum) {
+    }
+
+    private final Path depositDir;
+    private final Path sidecarFile;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private BufferedWriter writer;
+
+    private ChecksumSidecar(Path depositDir) {
+        this.depositDir = depositDir;
+        this.sidecarFile = depositDir.resolve(FILENAME);
+    }
+
+    /**
+     * Opens the checksum sidecar of a deposit, reading the entries recorded earlier, if any.
+     *
+     * @param depositDir the deposit directory
+     * @return the sidecar
+     * @throws IOException if the sidecar file exists but could not be read
+     */
+    public static ChecksumSidecar open(Path depositDir) throws IOException {
+        var sidecar = new ChecksumSidecar(depositDir);
+        if (Files.exists(sidecar.sidecarFile)) {
+            try (var lines = Files.lines(sidecar.sidecarFile, StandardCharsets.UTF_8)) {
+                lines.forEach(sidecar::parseLine);
+            }
+            log.debug("Read {} checksums from {}", sidecar.entries.size(), sidecar.sidecarFile);
+        }
+        return sidecar;
+    }
+
+    /**
+     * Returns the recorded checksum of a file, if the file has not changed since it was recorded.
+     *
+     * @param file         the file
+     * @param size         the current size of the file
+     * @param lastModified the current last modified time of the file in milliseconds
+     * @param algorithm    the checksum algorithm
+     * @return the checksum, or empty if it is not known or out of date
+     */
+    public Optional<String> get(Path file, long size, long lastModified, SupportedAlgorithm algorithm) {
+        var entry = entries.get(new Key(algorithm.getBagitName(), toKeyPath(file)));
+        if (entry == null || entry.size() != size || entry.lastModified() != lastModified) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.checksum());
+    }
+
+    /**
+     * Records the checksum of a file and appends it to the sidecar file.
+     *
+     * @param file         the file
+     * @param size         the size of the file when it was hashed
+     * @param lastModified the last modified time of the file in milliseconds when it was hashed
+     * @param algorithm    the checksum algorithm
+     * @param checksum     the checksum
+     * @throws IOException if the entry could not be written
+     */
+    public synchronized void put(Path file, long size, long lastModified, SupportedAlgorithm algorithm, String checksum) throws IOException {
+        var key = new Key(algorithm.getBagitName(), toKeyPath(file));
+        var entry = new Entry(size, lastModified, checksum);
+        entries.put(key, entry);
+        if (writer == null) {
+            writer = Files.newBufferedWriter(sidecarFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        // The path goes last, so that it may contain tabs
+        writer.write(String.join("\t", key.algorithm(), Long.toString(size), Long.toString(lastModified), checksum, key.path()));
+        writer.newLine();
+        writer.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private String toKeyPath(Path file) {
+        return depositDir.toAbsolutePath().relativize(file.toAbsolutePath()).toString();
+    }
+
+    private void parseLine(String line) {
+        var fields = line.split("\t", 5);
+        if (fields.length != 5) {
+            log.warn("Ignoring invalid line in {}: {}", sidecarFile, line);
+            return;
+        }
+        try {
+            entries.put(new Key(fields[0], fields[4]), new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2]), fields[3]));
+        }
+        catch (NumberFormatException e) {
+            log.warn("Ignoring invalid line in {}: {}", sidecarFile, line);
+        }
+    }
+}
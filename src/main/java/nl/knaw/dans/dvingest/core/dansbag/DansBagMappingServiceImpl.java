@@ -87,13 +87,19 @@ public class DansBagMappingServiceImpl implements DansBagMappingService {
     public DansBagMappingServiceImpl(DepositToDvDatasetMetadataMapper depositToDvDatasetMetadataMapper, DataverseService dataverseService, SupportedLicenses supportedLicenses,
         Pattern fileExclusionPattern, Pattern filesForSeparateUploadPattern, List<String> embargoExclusions, String depositorRoleAutoIngest,
         String expectedDataverseRole, String expectedDatasetRole) {
+        this(depositToDvDatasetMetadataMapper, dataverseService, supportedLicenses, fileExclusionPattern, filesForSeparateUploadPattern, embargoExclusions, depositorRoleAutoIngest,
+            expectedDataverseRole, expectedDatasetRole, new XmlReaderImpl());
+    }
+
+    public DansBagMappingServiceImpl(DepositToDvDatasetMetadataMapper depositToDvDatasetMetadataMapper, DataverseService dataverseService, SupportedLicenses supportedLicenses,
+        Pattern fileExclusionPattern, Pattern filesForSeparateUploadPattern, List<String> embargoExclusions, String depositorRoleAutoIngest,
+        String expectedDataverseRole, String expectedDatasetRole, XmlReader xmlReader) {
         this.depositToDvDatasetMetadataMapper = depositToDvDatasetMetadataMapper;
         this.dataverseService = dataverseService;
         this.depositorRoleAutoIngest = depositorRoleAutoIngest;
         this.expectedDataverseRole = expectedDataverseRole;
         this.expectedDatasetRole = expectedDatasetRole;
         BagReader bagReader = new BagReader();
-        XmlReader xmlReader = new XmlReaderImpl();
 
         dansBagDepositReader = new DansBagDepositReaderImpl(xmlReader, bagReader);
         this.supportedLicenses = supportedLicenses;
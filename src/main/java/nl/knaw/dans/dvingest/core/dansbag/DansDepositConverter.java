@@ -21,6 +21,7 @@ import nl.knaw.dans.dvingest.core.DataverseIngestBag;
 import nl.knaw.dans.dvingest.core.dansbag.deposit.DansBagDeposit;
 import nl.knaw.dans.dvingest.core.service.YamlService;
 import nl.knaw.dans.dvingest.core.yaml.EditFilesRoot;
+import nl.knaw.dans.dvingest.core.yaml.EditFilesSidecar;
 import nl.knaw.dans.dvingest.core.yaml.EditPermissionsRoot;
 import nl.knaw.dans.dvingest.core.yaml.InitRoot;
 import nl.knaw.dans.dvingest.core.yaml.UpdateStateRoot;
@@ -33,7 +34,7 @@ import java.util.List;
 @Slf4j
 @AllArgsConstructor
 public class DansDepositConverter {
-    private static final List<String> YAML_FILES = List.of("init.yml", "dataset.yml", "edit-files.yml", "edit-permissions.yml", "update-state.yml");
+    private static final List<String> YAML_FILES = List.of("init.yml", "dataset.yml", "edit-files.yml", EditFilesSidecar.EDIT_FILES_BIN, "edit-permissions.yml", "update-state.yml");
 
     private final DansBagDeposit dansDeposit;
     private final String updatesDataset;
@@ -52,6 +53,7 @@ public class DansDepositConverter {
 
         var editFiles = mappingService.getEditFilesFromDansDeposit(dansDeposit, updatesDataset);
         yamlService.writeYaml(new EditFilesRoot(editFiles), dansDeposit.getBagDir().resolve(DataverseIngestBag.EDIT_FILES_YML));
+        EditFilesSidecar.write(editFiles, dansDeposit.getBagDir().resolve(EditFilesSidecar.EDIT_FILES_BIN), dansDeposit.getBagDir().resolve(DataverseIngestBag.EDIT_FILES_YML));
 
         var editPermissions = mappingService.getEditPermissionsFromDansDeposit(dansDeposit, updatesDataset != null);
         yamlService.writeYaml(new EditPermissionsRoot(editPermissions), dansDeposit.getBagDir().resolve(DataverseIngestBag.EDIT_PERMISSIONS_YML));
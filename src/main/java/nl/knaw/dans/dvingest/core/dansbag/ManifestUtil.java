@@ -15,12 +15,10 @@
  */
 package nl.knaw.dans.dvingest.core.dansbag;
 
-import gov.loc.repository.bagit.creator.CreatePayloadManifestsVistor;
-import gov.loc.repository.bagit.creator.CreateTagManifestsVistor;
 import gov.loc.repository.bagit.domain.Bag;
 import gov.loc.repository.bagit.domain.Manifest;
-import gov.loc.repository.bagit.hash.Hasher;
 import gov.loc.repository.bagit.hash.StandardSupportedAlgorithms;
+import gov.loc.repository.bagit.hash.SupportedAlgorithm;
 import gov.loc.repository.bagit.util.PathUtils;
 import gov.loc.repository.bagit.writer.ManifestWriter;
 import lombok.extern.slf4j.Slf4j;
@@ -30,11 +28,16 @@ import java.io.IOException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static gov.loc.repository.bagit.hash.StandardSupportedAlgorithms.SHA1;
@@ -42,7 +45,21 @@ import static gov.loc.repository.bagit.hash.StandardSupportedAlgorithms.SHA1;
 @Slf4j
 public class ManifestUtil {
 
+    private static final ParallelManifestHasher hasher = new ParallelManifestHasher();
+
     public static void ensureSha1ManifestPresent(Bag bag) throws NoSuchAlgorithmException, IOException {
+        ensureSha1ManifestPresent(bag, null);
+    }
+
+    /**
+     * Adds a SHA-1 payload manifest to the bag if it does not have one yet, and updates the tag manifests accordingly.
+     *
+     * @param bag     the bag
+     * @param sidecar the checksums computed in an earlier run, or null to hash all files
+     * @throws NoSuchAlgorithmException if one of the tag manifest algorithms is not supported
+     * @throws IOException              if a file could not be read or a manifest could not be written
+     */
+    public static void ensureSha1ManifestPresent(Bag bag, ChecksumSidecar sidecar) throws NoSuchAlgorithmException, IOException {
         log.debug("Ensure SHA-1 manifest is present in bag {}", bag.getRootDir());
         var manifests = bag.getPayLoadManifests();
         var algorithms = manifests.stream().map(Manifest::getAlgorithm);
@@ -52,52 +69,66 @@ public class ManifestUtil {
             return;
         }
 
-        var payloadFilesMap = Hasher.createManifestToMessageDigestMap(List.of(SHA1));
-        var payloadVisitor = new CreatePayloadManifestsVistor(payloadFilesMap, true);
-        Files.walkFileTree(PathUtils.getDataDir(bag), payloadVisitor);
-        manifests.addAll(payloadFilesMap.keySet());
+        var payloadFiles = listFiles(PathUtils.getDataDir(bag), path -> false);
+        manifests.addAll(createManifests(payloadFiles, List.of(SHA1), sidecar));
         ManifestWriter.writePayloadManifests(manifests, PathUtils.getBagitDir(bag), bag.getRootDir(), bag.getFileEncoding());
 
-        updateTagManifests(bag);
+        updateTagManifests(bag, sidecar);
         log.debug("SHA-1 manifest added to bag {}", bag.getRootDir());
     }
 
-    private static void updateTagManifests(Bag bag) throws NoSuchAlgorithmException, IOException {
+    private static void updateTagManifests(Bag bag, ChecksumSidecar sidecar) throws NoSuchAlgorithmException, IOException {
         var algorithms = bag.getTagManifests().stream()
             .map(Manifest::getAlgorithm)
             .collect(Collectors.toList());
-        var tagFilesMap = Hasher.createManifestToMessageDigestMap(algorithms);
         var bagRootDir = bag.getRootDir();
-        var tagVisitor = new CreateTagManifestsVistor(tagFilesMap, true) {
+        var dataDir = PathUtils.getDataDir(bag);
+        /*
+         * Fix for EASY-1306: a tag manifest must not contain an entry for itself, as this is practically
+         * impossible to calculate. It could in theory contain entries for other tag manifests. However,
+         * if an entry for a tag file is found in ONE of the tag manifests, an entry is added in ALL tag manifests.
+         *
+         * Therefore, we adopt the strategy NOT to calculate any checksums for the tag manifests themselves.
+         *
+         * Update: this is actually required in V1.0: https://tools.ietf.org/html/rfc8493#section-2.2.1
+         */
+        var tagFiles = listFiles(bagRootDir, path -> path.equals(dataDir) ||
+            bagRootDir.relativize(path).getNameCount() == 1 && path.getFileName().toString().startsWith("tagmanifest-"));
+
+        var tagManifests = createManifests(tagFiles, algorithms, sidecar);
+        bag.getTagManifests().clear();
+        bag.getTagManifests().addAll(tagManifests);
+        ManifestWriter.writeTagManifests(bag.getTagManifests(), PathUtils.getBagitDir(bag), bagRootDir, bag.getFileEncoding());
+    }
+
+    private static List<Path> listFiles(Path dir, Predicate<Path> exclude) throws IOException {
+        var files = new ArrayList<Path>();
+        Files.walkFileTree(dir, new SimpleFileVisitor<>() {
 
             @Override
-            public @NotNull FileVisitResult visitFile(@NotNull Path path, @NotNull BasicFileAttributes attrs) throws IOException {
-                /*
-                 * Fix for EASY-1306: a tag manifest must not contain an entry for itself, as this is practically
-                 * impossible to calculate. It could in theory contain entries for other tag manifests. However,
-                 * the CreateTagManifestsVisitor, once it finds an entry for a tag file in ONE of the tag manifests,
-                 * will add an entry in ALL tag manifests.
-                 *
-                 * Therefore, we adopt the strategy NOT to calculate any checksums for the tag manifests themselves.
-                 *
-                 * Update: this is actually required in V1.0: https://tools.ietf.org/html/rfc8493#section-2.2.1
-                 */
-                var isTagManifest = bagRootDir.relativize(path).getNameCount() == 1 &&
-                    path.getFileName().toString().startsWith("tagmanifest-");
-
-                if (isTagManifest) {
-                    return FileVisitResult.CONTINUE;
-                }
-                else {
-                    return super.visitFile(path, attrs);
+            public @NotNull FileVisitResult preVisitDirectory(@NotNull Path path, @NotNull BasicFileAttributes attrs) {
+                return exclude.test(path) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public @NotNull FileVisitResult visitFile(@NotNull Path path, @NotNull BasicFileAttributes attrs) {
+                if (!exclude.test(path)) {
+                    files.add(path);
                 }
+                return FileVisitResult.CONTINUE;
             }
-        };
+        });
+        return files;
+    }
 
-        Files.walkFileTree(bagRootDir, tagVisitor);
-        bag.getTagManifests().clear();
-        bag.getTagManifests().addAll(tagFilesMap.keySet());
-        ManifestWriter.writeTagManifests(bag.getTagManifests(), PathUtils.getBagitDir(bag), bagRootDir, bag.getFileEncoding());
+    private static Set<Manifest> createManifests(List<Path> files, List<SupportedAlgorithm> algorithms, ChecksumSidecar sidecar) throws NoSuchAlgorithmException, IOException {
+        var manifests = new HashSet<Manifest>();
+        for (var entry : hasher.hash(files, algorithms, sidecar).entrySet()) {
+            var manifest = new Manifest(entry.getKey());
+            manifest.setFileToChecksumMap(entry.getValue());
+            manifests.add(manifest);
+        }
+        return manifests;
     }
 
     static public Map<Path, String> getFilePathToSha1(Bag bag) {
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.dansbag;
+
+import gov.loc.repository.bagit.hash.SupportedAlgorithm;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the checksums for a bag manifest, hashing the files in parallel on a work-stealing pool. Each file is read once and fed to the message digests of all requested algorithms, unless its
+ * checksums can be taken from a {@link ChecksumSidecar}. The resulting maps are sorted by path, so that the manifests written from them do not depend on the order in which the files were hashed.
+ * <p>
+ * The pool is created once per hasher and shared by all calls, also concurrent ones; its idle threads are retired by the pool. The read buffers are heap buffers that live only as long as the
+ * hashing of one file, so no direct memory is held by idle or retired pool threads.
+ */
+@Slf4j
+public class ParallelManifestHasher {
+    private static final int MIN_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_BUFFER_SIZE = 1024 * 1024;
+
+    private final ForkJoinPool pool;
+
+    public ParallelManifestHasher() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParallelManifestHasher(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Computes the checksums of the given files for all algorithms.
+     *
+     * @param files      the files to hash
+     * @param algorithms the algorithms to compute checksums for
+     * @return per algorithm a map from file to checksum, sorted by file
+     * @throws NoSuchAlgorithmException if one of the algorithms is not supported by the JVM
+     * @throws IOException              if one of the files could not be read
+     */
+    public Map<SupportedAlgorithm, Map<Path, String>> hash(List<Path> files, Collection<SupportedAlgorithm> algorithms) throws NoSuchAlgorithmException, IOException {
+        return hash(files, algorithms, null);
+    }
+
+    /**
+     * Computes the checksums of the given files for all algorithms, taking the checksums of files that have not changed since they were last hashed from the sidecar. Newly computed checksums are
+     * recorded in the sidecar.
+     *
+     * @param files      the files to hash
+     * @param algorithms the algorithms to compute checksums for
+     * @param sidecar    the checksums computed earlier, or null to hash all files
+     * @return per algorithm a map from file to checksum, sorted by file
+     * @throws NoSuchAlgorithmException if one of the algorithms is not supported by the JVM
+     * @throws IOException              if one of the files could not be read
+     */
+    public Map<SupportedAlgorithm, Map<Path, String>> hash(List<Path> files, Collection<SupportedAlgorithm> algorithms, ChecksumSidecar sidecar) throws NoSuchAlgorithmException, IOException {
+        // Fail early on unsupported algorithms, instead of in every task
+        for (var algorithm : algorithms) {
+            MessageDigest.getInstance(algorithm.getMessageDigestName());
+        }
+        var checksums = new String[files.size()][];
+        var algorithmList = new ArrayList<>(algorithms);
+        try {
+            pool.submit(new HashTask(files, algorithmList, sidecar, checksums, 0, files.size())).get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while computing checksums", e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            throw new IOException("Could not compute checksums", e.getCause());
+        }
+
+        var result = new HashMap<SupportedAlgorithm, Map<Path, String>>();
+        for (int a = 0; a < algorithmList.size(); a++) {
+            var fileToChecksum = new TreeMap<Path, String>();
+            for (int f = 0; f < files.size(); f++) {
+                fileToChecksum.put(files.get(f), checksums[f][a]);
+            }
+            result.put(algorithmList.get(a), fileToChecksum);
+        }
+        return result;
+    }
+
+    private String[] getChecksums(Path file, List<SupportedAlgorithm> algorithms, ChecksumSidecar sidecar) throws IOException {
+        if (sidecar == null) {
+            return hashFile(file, algorithms);
+        }
+        var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        var size = attributes.size();
+        var lastModified = attributes.lastModifiedTime().toMillis();
+        var known = new String[algorithms.size()];
+        for (int i = 0; i < known.length; i++) {
+            var checksum = sidecar.get(file, size, lastModified, algorithms.get(i));
+            if (checksum.isEmpty()) {
+                known = null;
+                break;
+            }
+            known[i] = checksum.get();
+        }
+        if (known != null) {
+            log.trace("Reusing checksums for {}", file);
+            return known;
+        }
+
+        var result = hashFile(file, algorithms);
+        // Only record the checksums if the file did not change while it was being read
+        var after = Files.readAttributes(file, BasicFileAttributes.class);
+        if (after.size() == size && after.lastModifiedTime().toMillis() == lastModified) {
+            for (int i = 0; i < result.length; i++) {
+                sidecar.put(file, size, lastModified, algorithms.get(i), result[i]);
+            }
+        }
+        return result;
+    }
+
+    private String[] hashFile(Path file, List<SupportedAlgorithm> algorithms) throws IOException {
+        var digests = new MessageDigest[algorithms.size()];
+        try {
+            for (int i = 0; i < digests.length; i++) {
+                digests[i] = MessageDigest.getInstance(algorithms.get(i).getMessageDigestName());
+            }
+        }
+        catch (NoSuchAlgorithmException e) {
+            // Checked before the tasks were started
+            throw new IllegalStateException(e);
+        }
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var buffer = ByteBuffer.allocate((int) Math.max(MIN_BUFFER_SIZE, Math.min(MAX_BUFFER_SIZE, channel.size())));
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                for (var digest : digests) {
+                    buffer.mark();
+                    digest.update(buffer);
+                    buffer.reset();
+                }
+                buffer.clear();
+            }
+        }
+        var result = new String[digests.length];
+        for (int i = 0; i < digests.length; i++) {
+            result[i] = HexFormat.of().formatHex(digests[i].digest());
+        }
+        log.trace("Computed checksums for {}", file);
+        return result;
+    }
+
+    private class HashTask extends RecursiveAction {
+        private final List<Path> files;
+        private final List<SupportedAlgorithm> algorithms;
+        private final ChecksumSidecar sidecar;
+        private final String[][] checksums;
+        private final int from;
+        private final int to;
+
+        HashTask(List<Path> files, List<SupportedAlgorithm> algorithms, ChecksumSidecar sidecar, String[][] checksums, int from, int to) {
+            this.files = files;
+            this.algorithms = algorithms;
+            this.sidecar = sidecar;
+            this.checksums = checksums;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            // Split down to single files, so that a large file does not hold up the files after it
+            if (to - from <= 1) {
+                for (int i = from; i < to; i++) {
+                    try {
+                        checksums[i] = getChecksums(files.get(i), algorithms, sidecar);
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+            else {
+                var middle = (from + to) >>> 1;
+                invokeAll(new HashTask(files, algorithms, sidecar, checksums, from, middle), new HashTask(files, algorithms, sidecar, checksums, middle, to));
+            }
+        }
+    }
+}
@@ -27,9 +27,9 @@ import java.nio.file.Path;
 import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static nl.knaw.dans.dvingest.core.dansbag.xml.XPathConstants.DDM_PROFILE;
-import static nl.knaw.dans.dvingest.core.dansbag.xml.XPathConstants.FILES_FILE;
 
 /**
  * Represents a DANS bag deposit, i.e. a deposit containing a bag conforming to the DANS BagIt Profile.
@@ -67,7 +67,6 @@ public class DansBagDeposit {
     private Instant bagCreated;
 
     private Document ddm;
-    private Document filesXml;
     private Document amd;
     private Bag bag;
 
@@ -93,9 +92,7 @@ public class DansBagDeposit {
             .orElseThrow();
 
         var isNoAccessDataset = "NO_ACCESS".equals(accessRightsNode.getTextContent().trim());
-        var accessibleToNoneFilesPresent = XPathEvaluator
-            .strings(filesXml, FILES_FILE + "/files:accessibleToRights")
-            .map(String::trim)
+        var accessibleToNoneFilesPresent = getExplicitAccessibleToValues()
             .anyMatch("NONE"::equals);
 
         return !(isNoAccessDataset || accessibleToNoneFilesPresent);
@@ -103,9 +100,7 @@ public class DansBagDeposit {
 
     public boolean restrictedFilesPresent() {
         var numberOfFiles = files.size();
-        var explicitAccessibleToValues = XPathEvaluator
-            .strings(filesXml, FILES_FILE + "/files:accessibleToRights")
-            .map(String::trim).toList();
+        var explicitAccessibleToValues = getExplicitAccessibleToValues().toList();
         var explicitlyRestrictedFilesPresent = explicitAccessibleToValues.stream()
             .anyMatch(a -> !"ANONYMOUS".equals(a));
         var accessRights = XPathEvaluator.nodes(ddm, "/ddm:DDM/ddm:profile/ddm:accessRights")
@@ -117,6 +112,12 @@ public class DansBagDeposit {
         return explicitlyRestrictedFilesPresent || (implicitFilesPresent && implicitFilesAreRestricted);
     }
 
+    private Stream<String> getExplicitAccessibleToValues() {
+        return files.stream()
+            .flatMap(file -> file.getFilesXmlEntry().accessibleToRights().stream())
+            .map(String::trim);
+    }
+
     public String getDepositId() {
         return this.dir.getFileName().toString();
     }
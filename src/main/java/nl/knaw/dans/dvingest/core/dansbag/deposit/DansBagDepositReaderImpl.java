@@ -17,9 +17,10 @@ package nl.knaw.dans.dvingest.core.dansbag.deposit;
 
 import gov.loc.repository.bagit.domain.Bag;
 import gov.loc.repository.bagit.reader.BagReader;
+import nl.knaw.dans.dvingest.core.dansbag.ChecksumSidecar;
 import nl.knaw.dans.dvingest.core.dansbag.ManifestUtil;
 import nl.knaw.dans.dvingest.core.dansbag.exception.InvalidDepositException;
-import nl.knaw.dans.dvingest.core.dansbag.xml.XPathEvaluator;
+import nl.knaw.dans.dvingest.core.dansbag.xml.FilesXmlReader;
 import nl.knaw.dans.dvingest.core.dansbag.xml.XmlReader;
 import org.apache.commons.configuration2.Configuration;
 import org.apache.commons.configuration2.FileBasedConfiguration;
@@ -29,10 +30,10 @@ import org.apache.commons.configuration2.builder.fluent.Parameters;
 import org.apache.commons.configuration2.ex.ConfigurationException;
 import org.apache.commons.lang3.StringUtils;
 import org.w3c.dom.Document;
-import org.w3c.dom.Node;
 import org.xml.sax.SAXException;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -41,13 +42,12 @@ import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
-import static nl.knaw.dans.dvingest.core.dansbag.xml.XPathConstants.FILES_FILE;
-
 public class DansBagDepositReaderImpl implements DansBagDepositReader {
     private static final String DEPOSIT_PROPERTIES_FILENAME = "deposit.properties";
 
     private final XmlReader xmlReader;
     private final BagReader bagReader;
+    private final FilesXmlReader filesXmlReader = new FilesXmlReader();
 
     public DansBagDepositReaderImpl(XmlReader xmlReader, BagReader bagReader) {
         this.xmlReader = xmlReader;
@@ -61,13 +61,14 @@ public class DansBagDepositReaderImpl implements DansBagDepositReader {
 
             var depositProperties = readDepositProperties(depositDir);
             var bag = bagReader.read(bagDir);
-            ManifestUtil.ensureSha1ManifestPresent(bag);
+            try (var checksumSidecar = ChecksumSidecar.open(depositDir)) {
+                ManifestUtil.ensureSha1ManifestPresent(bag, checksumSidecar);
+            }
 
             var deposit = mapToDeposit(bag, depositProperties);
 
             deposit.setBag(bag);
             deposit.setDdm(readRequiredXmlFile(deposit.getDdmPath()));
-            deposit.setFilesXml(readRequiredXmlFile(deposit.getFilesXmlPath()));
             deposit.setAmd(readOptionalXmlFile(deposit.getAmdPath()));
 
             deposit.setFiles(getDepositFiles(deposit));
@@ -126,20 +127,23 @@ public class DansBagDepositReaderImpl implements DansBagDepositReader {
         return builder.getConfiguration();
     }
 
-    private List<DepositFile> getDepositFiles(DansBagDeposit dansBagDeposit) throws IOException {
+    private List<DepositFile> getDepositFiles(DansBagDeposit dansBagDeposit) throws IOException, XMLStreamException {
         var bag = dansBagDeposit.getBag();
         var filePathToSha1 = ManifestUtil.getFilePathToSha1(bag);
+        var filesXmlPath = dansBagDeposit.getFilesXmlPath();
+        if (!Files.exists(filesXmlPath)) {
+            throw new IllegalArgumentException("Required file not found: " + filesXmlPath);
+        }
 
-        return XPathEvaluator.nodes(dansBagDeposit.getFilesXml(), FILES_FILE)
-            .map(node -> {
-                var filePath = Optional.ofNullable(node.getAttributes().getNamedItem("filepath"))
-                    .map(Node::getTextContent)
+        return filesXmlReader.readFilesXml(filesXmlPath).stream()
+            .map(entry -> {
+                var filePath = Optional.ofNullable(entry.filepath())
                     .map(Path::of)
                     .orElseThrow(() -> new IllegalArgumentException("File element without filepath attribute"));
 
                 var sha1 = filePathToSha1.get(filePath);
 
-                return new DepositFile(filePath, sha1, node);
+                return new DepositFile(filePath, sha1, entry);
             })
             .collect(Collectors.toList());
     }
@@ -17,7 +17,7 @@ package nl.knaw.dans.dvingest.core.dansbag.deposit;
 
 import lombok.AllArgsConstructor;
 import lombok.Value;
-import org.w3c.dom.Node;
+import nl.knaw.dans.dvingest.core.dansbag.xml.FilesXmlEntry;
 
 import java.nio.file.Path;
 
@@ -26,5 +26,5 @@ import java.nio.file.Path;
 public class DepositFile {
     Path path;
     String checksum;
-    Node xmlNode;
+    FilesXmlEntry filesXmlEntry;
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.dansbag.mapper;
+
+import nl.knaw.dans.dvingest.core.dansbag.xml.XmlNamespaces;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * <p>
+ * The elements of a DDM document that the mapping rules read, collected in a single walk over the document. The children of ddm:profile and ddm:dcmiMetadata are bucketed by namespace and local
+ * name, in document order, so that a rule can get its input without running an XPath query over the whole document.
+ * </p>
+ * <p>
+ * Every lookup returns the same nodes in the same order as the XPath expression it replaces, e.g. {@code profile(dcterms("title"), dc("title"))} is equivalent to
+ * {@code /ddm:DDM/ddm:profile/dcterms:title} followed by {@code /ddm:DDM/ddm:profile/dc:title}.
+ * </p>
+ */
+public class DdmElements implements XmlNamespaces {
+
+    public record ElementName(String namespace, String localName) {
+    }
+
+    private final Map<ElementName, List<Node>> profileChildren = new HashMap<>();
+    private final Map<ElementName, List<Node>> dcmiMetadataChildren = new HashMap<>();
+    private final List<Node> dcmiMetadataDescendants = new ArrayList<>();
+    private final List<String> profileLanguageAttributes = new ArrayList<>();
+    private final List<String> dcmiMetadataLanguageAttributes = new ArrayList<>();
+
+    private DdmElements() {
+    }
+
+    public static DdmElements read(Document document) {
+        var result = new DdmElements();
+        var root = document.getDocumentElement();
+        if (root == null || !isElement(root, new ElementName(NAMESPACE_DDM, "DDM"))) {
+            return result;
+        }
+        for (var section = root.getFirstChild(); section != null; section = section.getNextSibling()) {
+            if (isElement(section, ddm("profile"))) {
+                result.walk(section, result.profileChildren, result.profileLanguageAttributes, null);
+            }
+            else if (isElement(section, ddm("dcmiMetadata"))) {
+                result.walk(section, result.dcmiMetadataChildren, result.dcmiMetadataLanguageAttributes, result.dcmiMetadataDescendants);
+            }
+        }
+        return result;
+    }
+
+    public static ElementName ddm(String localName) {
+        return new ElementName(NAMESPACE_DDM, localName);
+    }
+
+    public static ElementName dc(String localName) {
+        return new ElementName(NAMESPACE_DC, localName);
+    }
+
+    public static ElementName dcterms(String localName) {
+        return new ElementName(NAMESPACE_DCTERMS, localName);
+    }
+
+    public static ElementName dcxDai(String localName) {
+        return new ElementName(NAMESPACE_DCX_DAI, localName);
+    }
+
+    public static ElementName dcxGml(String localName) {
+        return new ElementName(NAMESPACE_DCX_GML, localName);
+    }
+
+    /**
+     * Returns the children of ddm:profile with the given names, first all elements with the first name, then all elements with the second name, etc.
+     *
+     * @param names the element names
+     * @return the elements
+     */
+    public Stream<Node> profile(ElementName... names) {
+        return Arrays.stream(names).flatMap(name -> profileChildren.getOrDefault(name, List.of()).stream());
+    }
+
+    /**
+     * Returns the children of ddm:dcmiMetadata with the given names, first all elements with the first name, then all elements with the second name, etc.
+     *
+     * @param names the element names
+     * @return the elements
+     */
+    public Stream<Node> dcmiMetadata(ElementName... names) {
+        return Arrays.stream(names).flatMap(name -> dcmiMetadataChildren.getOrDefault(name, List.of()).stream());
+    }
+
+    /**
+     * Returns all descendant elements of ddm:dcmiMetadata in document order, like {@code /ddm:DDM/ddm:dcmiMetadata//*}.
+     *
+     * @return the elements
+     */
+    public Stream<Node> dcmiMetadataDescendants() {
+        return dcmiMetadataDescendants.stream();
+    }
+
+    /**
+     * Returns the values of all xml:lang attributes in ddm:profile, followed by those in ddm:dcmiMetadata, like {@code /ddm:DDM/ddm:profile//@xml:lang} followed by
+     * {@code /ddm:DDM/ddm:dcmiMetadata//@xml:lang}.
+     *
+     * @return the attribute values
+     */
+    public Stream<String> languageAttributes() {
+        return Stream.concat(profileLanguageAttributes.stream(), dcmiMetadataLanguageAttributes.stream());
+    }
+
+    /*
+     * Walks the element and its descendants in document order. The children of the element are added to children, if that is not null. All xml:lang attribute values are added to
+     * languageAttributes. All descendant elements are added to descendants, if that is not null.
+     */
+    private void walk(Node element, Map<ElementName, List<Node>> children, List<String> languageAttributes, List<Node> descendants) {
+        var lang = ((Element) element).getAttributeNodeNS(NAMESPACE_XML, "lang");
+        if (lang != null) {
+            languageAttributes.add(lang.getValue());
+        }
+        for (var child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                if (children != null && child.getLocalName() != null) {
+                    children.computeIfAbsent(new ElementName(child.getNamespaceURI(), child.getLocalName()), k -> new ArrayList<>()).add(child);
+                }
+                if (descendants != null) {
+                    descendants.add(child);
+                }
+                walk(child, null, languageAttributes, descendants);
+            }
+        }
+    }
+
+    private static boolean isElement(Node node, ElementName name) {
+        return node.getNodeType() == Node.ELEMENT_NODE && name.namespace().equals(node.getNamespaceURI()) && name.localName().equals(node.getLocalName());
+    }
+}
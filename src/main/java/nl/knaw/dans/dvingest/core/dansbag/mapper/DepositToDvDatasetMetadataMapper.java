@@ -57,7 +57,6 @@ import nl.knaw.dans.dvingest.core.dansbag.mapper.mapping.Subject;
 import nl.knaw.dans.dvingest.core.dansbag.mapper.mapping.SubjectAat;
 import nl.knaw.dans.dvingest.core.dansbag.mapper.mapping.SubjectAbr;
 import nl.knaw.dans.dvingest.core.dansbag.mapper.mapping.TemporalAbr;
-import nl.knaw.dans.dvingest.core.dansbag.xml.XPathEvaluator;
 import nl.knaw.dans.lib.dataverse.CompoundFieldBuilder;
 import nl.knaw.dans.lib.dataverse.model.dataset.Dataset;
 import nl.knaw.dans.lib.dataverse.model.dataset.DatasetVersion;
@@ -68,6 +67,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
 import java.util.ArrayList;
@@ -76,13 +76,18 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static nl.knaw.dans.dvingest.core.dansbag.mapper.DepositDatasetFieldNames.RIGHTS_HOLDER;
 import static nl.knaw.dans.dvingest.core.dansbag.mapper.DepositDatasetFieldNames.SUBJECT;
 import static nl.knaw.dans.dvingest.core.dansbag.mapper.DepositDatasetFieldNames.TITLE;
-import static nl.knaw.dans.dvingest.core.dansbag.xml.XPathConstants.DDM_DCMI_METADATA;
-import static nl.knaw.dans.dvingest.core.dansbag.xml.XPathConstants.DDM_PROFILE;
+import static nl.knaw.dans.dvingest.core.dansbag.mapper.DdmElements.dc;
+import static nl.knaw.dans.dvingest.core.dansbag.mapper.DdmElements.dcterms;
+import static nl.knaw.dans.dvingest.core.dansbag.mapper.DdmElements.dcxDai;
+import static nl.knaw.dans.dvingest.core.dansbag.mapper.DdmElements.dcxGml;
+import static nl.knaw.dans.dvingest.core.dansbag.mapper.DdmElements.ddm;
+import static nl.knaw.dans.dvingest.core.dansbag.xml.XmlNamespaces.NAMESPACE_OPEN_GIS;
 
 @Slf4j
 @RequiredArgsConstructor
@@ -118,7 +123,7 @@ public class DepositToDvDatasetMetadataMapper {
     private final List<String> skipFields;
 
     public Dataset toDataverseDataset(
-        @NonNull Document ddm,
+        @NonNull Document ddmDocument,
         @Nullable String dateOfDeposit,
         @Nullable AuthenticatedUser contactData,
         @NonNull VaultMetadata vaultMetadata,
@@ -127,6 +132,7 @@ public class DepositToDvDatasetMetadataMapper {
         String hasOrganizationalIdentifier,
         String hasOrganizationalIdentifierVersion
     ) throws MissingRequiredFieldException {
+        var ddm = DdmElements.read(ddmDocument);
         var termsOfAccess = "";
         var citationFields = new CitationFieldBuilder();
         var rightsFields = new RightsFieldBuilder();
@@ -279,8 +285,8 @@ public class DepositToDvDatasetMetadataMapper {
         return dataset;
     }
 
-    private Stream<Node> getPersonalData(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_PROFILE + "/ddm:personalData");
+    private Stream<Node> getPersonalData(DdmElements ddm) {
+        return ddm.profile(ddm("personalData"));
     }
 
     void processMetadataBlock(boolean deduplicate, Map<String, MetadataBlock> fields, String title, String displayName, FieldBuilder builder, List<String> skipFields) {
@@ -311,170 +317,176 @@ public class DepositToDvDatasetMetadataMapper {
         fields.put(title, block);
     }
 
-    Stream<Node> getProfileDescriptions(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_PROFILE + "/dcterms:description", DDM_PROFILE + "/dc:description");
+    Stream<Node> getProfileDescriptions(DdmElements ddm) {
+        return ddm.profile(dcterms("description"), dc("description"));
     }
 
-    Stream<Node> getDcmiDctermsDescriptions(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/dcterms:description", DDM_DCMI_METADATA + "/dc:description");
+    Stream<Node> getDcmiDctermsDescriptions(DdmElements ddm) {
+        return ddm.dcmiMetadata(dcterms("description"), dc("description"));
     }
 
-    Stream<Node> getDcmiDdmDescriptions(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/ddm:description");
+    Stream<Node> getDcmiDdmDescriptions(DdmElements ddm) {
+        return ddm.dcmiMetadata(ddm("description"));
     }
 
-    Stream<Node> getDcmiContributors(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/dcterms:contributor", DDM_DCMI_METADATA + "/dc:contributor");
+    Stream<Node> getDcmiContributors(DdmElements ddm) {
+        return ddm.dcmiMetadata(dcterms("contributor"), dc("contributor"));
     }
 
-    Stream<Node> getProvenance(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/dcterms:provenance");
+    Stream<Node> getProvenance(DdmElements ddm) {
+        return ddm.dcmiMetadata(dcterms("provenance"));
     }
 
-    Stream<Node> getDctermsTemporal(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/dcterms:temporal");
+    Stream<Node> getDctermsTemporal(DdmElements ddm) {
+        return ddm.dcmiMetadata(dcterms("temporal"));
     }
 
-    Stream<Node> getDdmTemporal(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/ddm:temporal");
+    Stream<Node> getDdmTemporal(DdmElements ddm) {
+        return ddm.dcmiMetadata(ddm("temporal"));
     }
 
-    Stream<Node> getSpatial(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/dcterms:spatial");
+    Stream<Node> getSpatial(DdmElements ddm) {
+        return ddm.dcmiMetadata(dcterms("spatial"));
     }
 
-    Stream<Node> getDcxGmlSpatial(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/dcx-gml:spatial");
+    Stream<Node> getDcxGmlSpatial(DdmElements ddm) {
+        return ddm.dcmiMetadata(dcxGml("spatial"));
     }
 
-    Stream<Node> getBoundedBy(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/dcx-gml:spatial//gml:boundedBy");
+    Stream<Node> getBoundedBy(DdmElements ddm) {
+        // Like dcx-gml:spatial//gml:boundedBy: the descendants of each spatial element in document order
+        return getDcxGmlSpatial(ddm)
+            .flatMap(spatial -> {
+                var nodes = ((Element) spatial).getElementsByTagNameNS(NAMESPACE_OPEN_GIS, "boundedBy");
+                return IntStream.range(0, nodes.getLength()).mapToObj(nodes::item);
+            });
     }
 
-    Stream<Node> getSubjects(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/dcterms:subject", DDM_DCMI_METADATA + "/dc:subject");
+    Stream<Node> getSubjects(DdmElements ddm) {
+        return ddm.dcmiMetadata(dcterms("subject"), dc("subject"));
     }
 
-    Stream<Node> getDdmSubjects(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/ddm:subject");
+    Stream<Node> getDdmSubjects(DdmElements ddm) {
+        return ddm.dcmiMetadata(ddm("subject"));
     }
 
-    Stream<Node> getLanguages(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/dcterms:language", DDM_DCMI_METADATA + "/dc:language");
+    Stream<Node> getLanguages(DdmElements ddm) {
+        return ddm.dcmiMetadata(dcterms("language"), dc("language"));
     }
 
-    Stream<Node> getDdmLanguages(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/ddm:language");
+    Stream<Node> getDdmLanguages(DdmElements ddm) {
+        return ddm.dcmiMetadata(ddm("language"));
     }
 
-    Stream<Node> getAcquisitionMethods(Document ddm) {
-        var expr = DDM_DCMI_METADATA + "/ddm:acquisitionMethod";
-        return XPathEvaluator.nodes(ddm, expr);
+    Stream<Node> getAcquisitionMethods(DdmElements ddm) {
+        return ddm.dcmiMetadata(ddm("acquisitionMethod"));
     }
 
-    Stream<Node> getReportNumbers(Document ddm) {
-        return XPathEvaluator.nodes(ddm,
-            DDM_DCMI_METADATA + "/ddm:reportNumber");
+    Stream<Node> getReportNumbers(DdmElements ddm) {
+        return ddm.dcmiMetadata(ddm("reportNumber"));
     }
 
-    Stream<Node> getRelations(Document ddm) {
-        return XPathEvaluator.nodes(ddm,
-            DDM_DCMI_METADATA + "//*");
+    Stream<Node> getRelations(DdmElements ddm) {
+        return ddm.dcmiMetadataDescendants();
     }
 
-    Stream<Node> getInCollections(Document ddm) {
-        return XPathEvaluator.nodes(ddm,
-            DDM_DCMI_METADATA + "/ddm:inCollection");
+    Stream<Node> getInCollections(DdmElements ddm) {
+        return ddm.dcmiMetadata(ddm("inCollection"));
     }
 
-    Stream<String> getLanguageAttributes(Document ddm) {
-        return XPathEvaluator.strings(ddm, DDM_PROFILE + "//@xml:lang", DDM_DCMI_METADATA + "//@xml:lang");
+    Stream<String> getLanguageAttributes(DdmElements ddm) {
+        return ddm.languageAttributes();
     }
 
-    Stream<Node> getContributorDetailsOrganizations(Document ddm) {
-        return XPathEvaluator.nodes(ddm,
-            DDM_DCMI_METADATA + "/dcx-dai:contributorDetails/dcx-dai:organization");
+    Stream<Node> getContributorDetailsOrganizations(DdmElements ddm) {
+        return ddm.dcmiMetadata(dcxDai("contributorDetails")).flatMap(node -> getChildElements(node, dcxDai("organization")));
     }
 
-    Stream<Node> getContributorDetailsAuthors(Document ddm) {
-        return XPathEvaluator.nodes(ddm,
-            DDM_DCMI_METADATA + "/dcx-dai:contributorDetails/dcx-dai:author");
+    Stream<Node> getContributorDetailsAuthors(DdmElements ddm) {
+        return ddm.dcmiMetadata(dcxDai("contributorDetails")).flatMap(node -> getChildElements(node, dcxDai("author")));
     }
 
-    Stream<Node> getContributorDetails(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/dcx-dai:contributorDetails[dcx-dai:author]", DDM_DCMI_METADATA + "/dcx-dai:contributorDetails[dcx-dai:organization]");
+    Stream<Node> getContributorDetails(DdmElements ddm) {
+        return Stream.concat(
+            ddm.dcmiMetadata(dcxDai("contributorDetails")).filter(node -> getChildElements(node, dcxDai("author")).findAny().isPresent()),
+            ddm.dcmiMetadata(dcxDai("contributorDetails")).filter(node -> getChildElements(node, dcxDai("organization")).findAny().isPresent()));
     }
 
-    Stream<Node> getCreated(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_PROFILE + "/ddm:created");
+    Stream<Node> getCreated(DdmElements ddm) {
+        return ddm.profile(ddm("created"));
     }
 
-    Stream<String> getAudiences(Document ddm) {
-        return XPathEvaluator.strings(ddm, DDM_PROFILE + "/ddm:audience");
+    Stream<String> getAudiences(DdmElements ddm) {
+        return ddm.profile(ddm("audience")).map(Node::getTextContent);
     }
 
-    Stream<Node> getIdentifiers(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/dcterms:identifier", DDM_DCMI_METADATA + "/dc:identifier");
+    Stream<Node> getIdentifiers(DdmElements ddm) {
+        return ddm.dcmiMetadata(dcterms("identifier"), dc("identifier"));
     }
 
-    Stream<String> getTitles(Document ddm) {
-        return XPathEvaluator.strings(ddm, DDM_PROFILE + "/dc:title", DDM_PROFILE + "/dcterms:title");
+    Stream<String> getTitles(DdmElements ddm) {
+        return ddm.profile(dc("title"), dcterms("title")).map(Node::getTextContent);
     }
 
-    Stream<Node> getOtherTitles(Document ddm) {
-        return XPathEvaluator.nodes(ddm,
-            DDM_DCMI_METADATA + "/dcterms:title", DDM_DCMI_METADATA + "/dc:title", DDM_DCMI_METADATA + "/dcterms:alternative");
+    Stream<Node> getOtherTitles(DdmElements ddm) {
+        return ddm.dcmiMetadata(dcterms("title"), dc("title"), dcterms("alternative"));
     }
 
-    Stream<Node> getCreators(Document ddm) {
-        return XPathEvaluator.nodes(ddm,
-            DDM_PROFILE + "/dcx-dai:creatorDetails", DDM_PROFILE + "/dcx-dai:creator", DDM_PROFILE + "/dc:creator", DDM_PROFILE + "/dcterms:creator");
+    Stream<Node> getCreators(DdmElements ddm) {
+        return ddm.profile(dcxDai("creatorDetails"), dcxDai("creator"), dc("creator"), dcterms("creator"));
     }
 
-    Stream<Node> getOtherDescriptions(Document ddm) {
-        return XPathEvaluator.nodes(ddm,
-            DDM_DCMI_METADATA + "/dcterms:date",
-            DDM_DCMI_METADATA + "/dc:date",
-            DDM_DCMI_METADATA + "/dcterms:dateAccepted",
-            DDM_DCMI_METADATA + "/dcterms:dateCopyrighted",
-            DDM_DCMI_METADATA + "/dcterms:dateSubmitted",
-            DDM_DCMI_METADATA + "/dcterms:modified",
-            DDM_DCMI_METADATA + "/dcterms:issued",
-            DDM_DCMI_METADATA + "/dcterms:valid",
-            DDM_DCMI_METADATA + "/dcterms:coverage",
-            DDM_DCMI_METADATA + "/dc:coverage");
+    Stream<Node> getOtherDescriptions(DdmElements ddm) {
+        return ddm.dcmiMetadata(
+            dcterms("date"),
+            dc("date"),
+            dcterms("dateAccepted"),
+            dcterms("dateCopyrighted"),
+            dcterms("dateSubmitted"),
+            dcterms("modified"),
+            dcterms("issued"),
+            dcterms("valid"),
+            dcterms("coverage"),
+            dc("coverage"));
     }
 
-    Stream<Node> getDdmAccessRights(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_PROFILE + "/ddm:accessRights");
+    Stream<Node> getDdmAccessRights(DdmElements ddm) {
+        return ddm.profile(ddm("accessRights"));
     }
 
-    Stream<Node> getDctAccessRights(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/dcterms:accessRights");
+    Stream<Node> getDctAccessRights(DdmElements ddm) {
+        return ddm.dcmiMetadata(dcterms("accessRights"));
     }
 
-    Stream<Node> getPublishers(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/dcterms:publisher", DDM_DCMI_METADATA + "/dc:publisher");
+    Stream<Node> getPublishers(DdmElements ddm) {
+        return ddm.dcmiMetadata(dcterms("publisher"), dc("publisher"));
     }
 
-    Stream<Node> getAvailable(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_PROFILE + "/ddm:available");
+    Stream<Node> getAvailable(DdmElements ddm) {
+        return ddm.profile(ddm("available"));
     }
 
-    Stream<Node> getDatesOfCollection(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/ddm:datesOfCollection");
+    Stream<Node> getDatesOfCollection(DdmElements ddm) {
+        return ddm.dcmiMetadata(ddm("datesOfCollection"));
     }
 
-    Stream<String> getDataSources(Document ddm) {
-        return XPathEvaluator.strings(ddm, DDM_DCMI_METADATA + "/dc:source", DDM_DCMI_METADATA + "/dcterms:source");
+    Stream<String> getDataSources(DdmElements ddm) {
+        return ddm.dcmiMetadata(dc("source"), dcterms("source")).map(Node::getTextContent);
     }
 
-    Stream<String> getRightsHolders(Document ddm) {
-        return XPathEvaluator.strings(ddm, DDM_DCMI_METADATA + "/dcterms:rightsHolder");
+    Stream<String> getRightsHolders(DdmElements ddm) {
+        return ddm.dcmiMetadata(dcterms("rightsHolder")).map(Node::getTextContent);
     }
 
-    Stream<Node> getFunders(Document ddm) {
-        return XPathEvaluator.nodes(ddm, DDM_DCMI_METADATA + "/ddm:funding");
+    Stream<Node> getFunders(DdmElements ddm) {
+        return ddm.dcmiMetadata(ddm("funding"));
+    }
+
+    private Stream<Node> getChildElements(Node node, DdmElements.ElementName name) {
+        var children = node.getChildNodes();
+        return IntStream.range(0, children.getLength())
+            .mapToObj(children::item)
+            .filter(child -> child.getNodeType() == Node.ELEMENT_NODE && name.namespace().equals(child.getNamespaceURI()) && name.localName().equals(child.getLocalName()));
     }
 
     private void checkRequiredField(HashMap<String, MetadataBlock> blocks, String blockName, String fieldName) {
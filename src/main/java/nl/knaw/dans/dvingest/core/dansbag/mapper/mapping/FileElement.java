@@ -19,10 +19,10 @@ import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import nl.knaw.dans.dvingest.core.dansbag.deposit.DansBagDeposit;
 import nl.knaw.dans.dvingest.core.dansbag.deposit.FileInfo;
+import nl.knaw.dans.dvingest.core.dansbag.xml.FilesXmlEntry;
 import nl.knaw.dans.dvingest.core.dansbag.xml.XPathEvaluator;
 import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
 import org.apache.commons.lang3.StringUtils;
-import org.w3c.dom.Node;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -50,9 +50,8 @@ public class FileElement extends Base {
         FileMeta fileMeta;
     }
 
-    public static FileMetaResult toFileMeta(Node node, boolean defaultRestrict) {
-        var filepathAttribute = getAttribute(node, "filepath")
-            .map(Node::getTextContent)
+    public static FileMetaResult toFileMeta(FilesXmlEntry entry, boolean defaultRestrict) {
+        var filepathAttribute = Optional.ofNullable(entry.filepath())
             .orElseThrow(() -> new RuntimeException("File node without a filepath attribute"));
 
         if (!filepathAttribute.startsWith("data/")) {
@@ -71,8 +70,7 @@ public class FileElement extends Base {
         var sanitizedDirLabel = replaceForbiddenCharactersInPath(dirPath);
 
         // FIL005
-        var restricted = getChildNode(node, "files:accessibleToRights")
-            .map(Node::getTextContent)
+        var restricted = entry.accessibleToRights().stream().findFirst()
             .map(accessibilityToRestrict::get)
             .orElse(defaultRestrict);
 
@@ -81,7 +79,7 @@ public class FileElement extends Base {
             ? pathInDataset.toString()
             : null;
 
-        var kv = getKeyValuePairs(node, filename, originalFilePath);
+        var kv = getKeyValuePairs(entry, filename, originalFilePath);
 
         var description = getDescription(kv);
 
@@ -116,7 +114,7 @@ public class FileElement extends Base {
             .collect(Collectors.joining("; "));
     }
 
-    private static Map<String, List<String>> getKeyValuePairs(Node node, String filename, String originalFilePath) {
+    private static Map<String, List<String>> getKeyValuePairs(FilesXmlEntry entry, String filename, String originalFilePath) {
         var result = new HashMap<String, List<String>>() {
 
             void addValue(String key, String value) {
@@ -132,8 +130,7 @@ public class FileElement extends Base {
         }
 
         // FIL004(A)
-        getChildNodes(node, "dcterms:description")
-            .map(Node::getTextContent)
+        entry.descriptions().stream()
             .filter(n -> !StringUtils.equalsIgnoreCase(filename, n))
             .forEach(n -> result.addValue("description", n));
         return result;
@@ -164,7 +161,7 @@ public class FileElement extends Base {
         var bagDir = dansBagDeposit.getBagDir();
 
         dansBagDeposit.getFiles().forEach(depositFile -> {
-            var fileMetaResult = toFileMeta(depositFile.getXmlNode(), defaultRestrict);
+            var fileMetaResult = toFileMeta(depositFile.getFilesXmlEntry(), defaultRestrict);
             result.put(depositFile.getPath(), new FileInfo(
                 bagDir.resolve(depositFile.getPath()),
                 depositFile.getChecksum(),
@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.dansbag.xml;
+
+import java.util.List;
+
+/**
+ * The parts of a file element in files.xml that are used in the mapping to Dataverse.
+ *
+ * @param filepath           the filepath attribute, relative to the bag root
+ * @param accessibleToRights the texts of the files:accessibleToRights elements, in document order; the mapping uses the first one, the access-rights checks use all of them
+ * @param descriptions       the texts of the dcterms:description elements, in document order
+ */
+public record FilesXmlEntry(String filepath, List<String> accessibleToRights, List<String> descriptions) {
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.dansbag.xml;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads files.xml with StAX, keeping only a {@link FilesXmlEntry} per file element. Unlike a DOM, the memory used does not depend on the size of the rest of the document, which matters for
+ * deposits with a very large number of files. As with {@link XmlReaderImpl}, documents with a DOCTYPE declaration are rejected.
+ */
+public class FilesXmlReader implements XmlNamespaces {
+    private final XMLInputFactory factory;
+
+    public FilesXmlReader() {
+        factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    }
+
+    public List<FilesXmlEntry> readFilesXml(Path path) throws IOException, XMLStreamException {
+        try (var inputStream = Files.newInputStream(path)) {
+            return readFilesXml(inputStream);
+        }
+    }
+
+    public List<FilesXmlEntry> readFilesXml(InputStream inputStream) throws XMLStreamException {
+        var entries = new ArrayList<FilesXmlEntry>();
+        var reader = factory.createXMLStreamReader(inputStream);
+        try {
+            int depth = 0;
+            boolean filesRoot = false;
+            while (reader.hasNext()) {
+                var event = reader.next();
+                if (event == XMLStreamConstants.DTD) {
+                    throw new XMLStreamException("DOCTYPE declarations are not allowed in files.xml", reader.getLocation());
+                }
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    if (depth == 1) {
+                        filesRoot = isElement(reader, NAMESPACE_FILES_XML, "files");
+                    }
+                    else if (depth == 2 && filesRoot && isElement(reader, NAMESPACE_FILES_XML, "file")) {
+                        entries.add(readFileElement(reader));
+                        depth--;
+                    }
+                }
+                else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+        finally {
+            reader.close();
+        }
+        return entries;
+    }
+
+    /*
+     * Reads the current file element up to and including its end tag.
+     */
+    private FilesXmlEntry readFileElement(XMLStreamReader reader) throws XMLStreamException {
+        var filepath = reader.getAttributeValue(null, "filepath");
+        var accessibleToRights = new ArrayList<String>();
+        var descriptions = new ArrayList<String>();
+        int depth = 1;
+        while (depth > 0) {
+            var event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (depth == 1 && isElement(reader, NAMESPACE_FILES_XML, "accessibleToRights")) {
+                    accessibleToRights.add(readTextContent(reader));
+                }
+                else if (depth == 1 && isElement(reader, NAMESPACE_DCTERMS, "description")) {
+                    descriptions.add(readTextContent(reader));
+                }
+                else {
+                    depth++;
+                }
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+        return new FilesXmlEntry(filepath, List.copyOf(accessibleToRights), List.copyOf(descriptions));
+    }
+
+    /*
+     * Returns the concatenated text of the current element and its descendants, like Node.getTextContent(), leaving the reader at the end tag of the element.
+     */
+    private String readTextContent(XMLStreamReader reader) throws XMLStreamException {
+        var text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            var event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+            else if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+                text.append(reader.getText());
+            }
+        }
+        return text.toString();
+    }
+
+    private boolean isElement(XMLStreamReader reader, String namespaceUri, String localName) {
+        return namespaceUri.equals(reader.getNamespaceURI()) && localName.equals(reader.getLocalName());
+    }
+}
@@ -21,58 +21,66 @@ import org.w3c.dom.NodeList;
 import javax.xml.namespace.NamespaceContext;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 public final class XPathEvaluator implements XmlNamespaces {
 
-    private static XPath xpath;
-
-    private static XPath getXpath() {
-        if (xpath == null) {
-            xpath = XPathFactory
-                .newInstance()
-                .newXPath();
-
-            final var namespaceMap = new HashMap<String, String>();
-            namespaceMap.put("xml", XmlNamespaces.NAMESPACE_XML);
-            namespaceMap.put("dc", XmlNamespaces.NAMESPACE_DC);
-            namespaceMap.put("dcx-dai", XmlNamespaces.NAMESPACE_DCX_DAI);
-            namespaceMap.put("ddm", XmlNamespaces.NAMESPACE_DDM);
-            namespaceMap.put("dcterms", XmlNamespaces.NAMESPACE_DCTERMS);
-            namespaceMap.put("xsi", XmlNamespaces.NAMESPACE_XSI);
-            namespaceMap.put("id-type", XmlNamespaces.NAMESPACE_ID_TYPE);
-            namespaceMap.put("dcx-gml", XmlNamespaces.NAMESPACE_DCX_GML);
-            namespaceMap.put("files", XmlNamespaces.NAMESPACE_FILES_XML);
-            namespaceMap.put("afm", XmlNamespaces.NAMESPACE_AFM_XML);
-            namespaceMap.put("gml", XmlNamespaces.NAMESPACE_OPEN_GIS);
-            namespaceMap.put("wfs", XmlNamespaces.NAMESPACE_EASY_WORKFLOW);
-            namespaceMap.put("damd", XmlNamespaces.NAMESPACE_DAMD);
-            namespaceMap.put("agreements", XmlNamespaces.NAMESPACE_AGREEMENTS);
-
-            xpath.setNamespaceContext(new NamespaceContext() {
-
-                @Override
-                public String getNamespaceURI(String s) {
-                    return namespaceMap.get(s);
-                }
-
-                @Override
-                public String getPrefix(String s) {
-                    return null;
-                }
-
-                @Override
-                public Iterator<String> getPrefixes(String s) {
-                    return null;
-                }
-            });
-        }
+    // Expressions are almost all constants, so this only guards against unbounded growth if an expression is ever built from input
+    private static final int MAX_CACHED_EXPRESSIONS_PER_THREAD = 1000;
+
+    /*
+     * Neither XPath nor XPathExpression objects are thread-safe, so every thread gets its own XPath object and its own compiled expressions. This avoids both a global lock and recompiling the same
+     * expression for every node.
+     */
+    private static final ThreadLocal<XPath> xpath = ThreadLocal.withInitial(XPathEvaluator::createXpath);
+    private static final ThreadLocal<Map<String, XPathExpression>> compiledExpressions = ThreadLocal.withInitial(HashMap::new);
+
+    private static XPath createXpath() {
+        var xpath = XPathFactory
+            .newInstance()
+            .newXPath();
+
+        final var namespaceMap = new HashMap<String, String>();
+        namespaceMap.put("xml", XmlNamespaces.NAMESPACE_XML);
+        namespaceMap.put("dc", XmlNamespaces.NAMESPACE_DC);
+        namespaceMap.put("dcx-dai", XmlNamespaces.NAMESPACE_DCX_DAI);
+        namespaceMap.put("ddm", XmlNamespaces.NAMESPACE_DDM);
+        namespaceMap.put("dcterms", XmlNamespaces.NAMESPACE_DCTERMS);
+        namespaceMap.put("xsi", XmlNamespaces.NAMESPACE_XSI);
+        namespaceMap.put("id-type", XmlNamespaces.NAMESPACE_ID_TYPE);
+        namespaceMap.put("dcx-gml", XmlNamespaces.NAMESPACE_DCX_GML);
+        namespaceMap.put("files", XmlNamespaces.NAMESPACE_FILES_XML);
+        namespaceMap.put("afm", XmlNamespaces.NAMESPACE_AFM_XML);
+        namespaceMap.put("gml", XmlNamespaces.NAMESPACE_OPEN_GIS);
+        namespaceMap.put("wfs", XmlNamespaces.NAMESPACE_EASY_WORKFLOW);
+        namespaceMap.put("damd", XmlNamespaces.NAMESPACE_DAMD);
+        namespaceMap.put("agreements", XmlNamespaces.NAMESPACE_AGREEMENTS);
+
+        xpath.setNamespaceContext(new NamespaceContext() {
+
+            @Override
+            public String getNamespaceURI(String s) {
+                return namespaceMap.get(s);
+            }
+
+            @Override
+            public String getPrefix(String s) {
+                return null;
+            }
+
+            @Override
+            public Iterator<String> getPrefixes(String s) {
+                return null;
+            }
+        });
 
         return xpath;
     }
@@ -97,8 +105,21 @@ public final class XPathEvaluator implements XmlNamespaces {
         }
     }
 
-    private static synchronized Object evaluateXpath(Node node, String expr) throws XPathExpressionException {
-        return getXpath().compile(expr).evaluate(node, XPathConstants.NODESET);
+    private static Object evaluateXpath(Node node, String expr) throws XPathExpressionException {
+        return getCompiledExpression(expr).evaluate(node, XPathConstants.NODESET);
+    }
+
+    private static XPathExpression getCompiledExpression(String expr) throws XPathExpressionException {
+        var cache = compiledExpressions.get();
+        var compiled = cache.get(expr);
+        if (compiled == null) {
+            if (cache.size() >= MAX_CACHED_EXPRESSIONS_PER_THREAD) {
+                cache.clear();
+            }
+            compiled = xpath.get().compile(expr);
+            cache.put(expr, compiled);
+        }
+        return compiled;
     }
 
     private static Stream<Node> xpathToStream(Node node, String expression) throws XPathExpressionException {
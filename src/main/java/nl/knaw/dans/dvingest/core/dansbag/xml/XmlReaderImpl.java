@@ -15,11 +15,13 @@
  */
 package nl.knaw.dans.dvingest.core.dansbag.xml;
 
+import com.codahale.metrics.Timer;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
 import javax.xml.XMLConstants;
 import javax.xml.namespace.NamespaceContext;
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPath;
@@ -33,7 +35,28 @@ public class XmlReaderImpl implements XmlReader {
 
     private final XPath xpath;
 
+    /*
+     * Looking up a DocumentBuilderFactory goes through the service loader, which is slow, so the factory is created once. DocumentBuilders are not thread-safe, so each thread reuses its own,
+     * resetting it after every parse.
+     */
+    private final DocumentBuilderFactory factory;
+    private final ThreadLocal<DocumentBuilder> documentBuilders = ThreadLocal.withInitial(this::newDocumentBuilder);
+
+    // If null, parse times are not recorded
+    private final Timer parseTimer;
+
     public XmlReaderImpl() {
+        this(null);
+    }
+
+    public XmlReaderImpl(Timer parseTimer) {
+        this.parseTimer = parseTimer;
+        try {
+            this.factory = getFactory();
+        }
+        catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Cannot configure XML parser", e);
+        }
         this.xpath = XPathFactory
             .newInstance()
             .newXPath();
@@ -73,11 +96,29 @@ public class XmlReaderImpl implements XmlReader {
 
     @Override
     public Document readXmlFile(Path path) throws ParserConfigurationException, IOException, SAXException {
-        var factory = getFactory();
+        var documentBuilder = documentBuilders.get();
+        var context = parseTimer == null ? null : parseTimer.time();
+        try {
+            return documentBuilder.parse(path.toFile());
+        }
+        finally {
+            documentBuilder.reset();
+            if (context != null) {
+                context.stop();
+            }
+        }
+    }
 
-        return factory
-            .newDocumentBuilder()
-            .parse(path.toFile());
+    private DocumentBuilder newDocumentBuilder() {
+        // DocumentBuilderFactory is not guaranteed to be thread-safe
+        synchronized (factory) {
+            try {
+                return factory.newDocumentBuilder();
+            }
+            catch (ParserConfigurationException e) {
+                throw new IllegalStateException("Cannot create XML parser", e);
+            }
+        }
     }
 
     public DocumentBuilderFactory getFactory() throws ParserConfigurationException {
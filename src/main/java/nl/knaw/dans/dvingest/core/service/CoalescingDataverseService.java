@@ -0,0 +1,295 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.lib.dataverse.DataverseException;
+import nl.knaw.dans.lib.dataverse.model.RoleAssignment;
+import nl.knaw.dans.lib.dataverse.model.RoleAssignmentReadOnly;
+import nl.knaw.dans.lib.dataverse.model.dataset.Dataset;
+import nl.knaw.dans.lib.dataverse.model.dataset.DatasetVersion;
+import nl.knaw.dans.lib.dataverse.model.dataset.Embargo;
+import nl.knaw.dans.lib.dataverse.model.dataset.FileList;
+import nl.knaw.dans.lib.dataverse.model.dataset.License;
+import nl.knaw.dans.lib.dataverse.model.dataset.MetadataField;
+import nl.knaw.dans.lib.dataverse.model.dataset.UpdateType;
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+import nl.knaw.dans.lib.dataverse.model.file.FileMetaUpdate;
+import nl.knaw.dans.lib.dataverse.model.user.AuthenticatedUser;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Decorates a {@link DataverseService}, combining the items of a batch call into fewer requests to the delegate where the Dataverse API allows it:
+ * <ul>
+ *     <li>embargoes with the same date and reason are set in one request on all their files;</li>
+ *     <li>duplicate role assignments to add or delete on the same dataset are sent only once.</li>
+ * </ul>
+ * Progress is reported in terms of the original items, so that callers can resume after the last item that is certainly done. All other calls are passed on unchanged; metadata edits are
+ * already sent as one request per operation by the MetadataEditor. The number of requests saved this way is available through {@link #getNumberOfCallsSaved()}.
+ */
+@RequiredArgsConstructor
+@Slf4j
+public class CoalescingDataverseService implements DataverseService {
+    @NonNull
+    private final DataverseService delegate;
+
+    private final AtomicLong numberOfCallsSaved = new AtomicLong();
+
+    private record EmbargoKey(String dateAvailable, String reason) {
+    }
+
+    private record RoleAssignmentKey(String assignee, String role) {
+    }
+
+    public long getNumberOfCallsSaved() {
+        return numberOfCallsSaved.get();
+    }
+
+    /*
+     * The combined requests are sent in the order in which their first item occurs in the original list. So, after n combined requests, all original items before the first item of request n + 1 are
+     * done; that is the progress reported to the caller.
+     */
+
+    @Override
+    public void addEmbargoes(String pid, List<Embargo> embargoes, IntConsumer progress) throws IOException, DataverseException {
+        var fileIdsPerEmbargo = new LinkedHashMap<EmbargoKey, Set<Integer>>();
+        var firstIndexes = new ArrayList<Integer>();
+        for (int i = 0; i < embargoes.size(); i++) {
+            var embargo = embargoes.get(i);
+            var key = new EmbargoKey(embargo.getDateAvailable(), embargo.getReason());
+            if (!fileIdsPerEmbargo.containsKey(key)) {
+                firstIndexes.add(i);
+            }
+            var fileIds = fileIdsPerEmbargo.computeIfAbsent(key, k -> new LinkedHashSet<>());
+            for (var fileId : embargo.getFileIds()) {
+                fileIds.add(fileId);
+            }
+        }
+        saved(embargoes.size() - fileIdsPerEmbargo.size());
+        int numberSent = 0;
+        for (var entry : fileIdsPerEmbargo.entrySet()) {
+            var embargo = new Embargo();
+            embargo.setDateAvailable(entry.getKey().dateAvailable());
+            embargo.setReason(entry.getKey().reason());
+            embargo.setFileIds(entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+            log.debug("Setting embargo until {} on {} files of dataset {}", embargo.getDateAvailable(), embargo.getFileIds().length, pid);
+            delegate.addEmbargo(pid, embargo);
+            progress.accept(toOriginalProgress(++numberSent, firstIndexes, embargoes.size()));
+        }
+    }
+
+    @Override
+    public void addRoleAssignments(String pid, List<RoleAssignment> roleAssignments, IntConsumer progress) throws DataverseException, IOException {
+        var firstIndexes = firstIndexesOfDistinct(roleAssignments);
+        saved(roleAssignments.size() - firstIndexes.size());
+        delegate.addRoleAssignments(pid, firstIndexes.stream().map(roleAssignments::get).toList(),
+            numberDone -> progress.accept(toOriginalProgress(numberDone, firstIndexes, roleAssignments.size())));
+    }
+
+    @Override
+    public void deleteRoleAssignments(String pid, List<RoleAssignment> roleAssignments, IntConsumer progress) throws DataverseException, IOException {
+        var firstIndexes = firstIndexesOfDistinct(roleAssignments);
+        saved(roleAssignments.size() - firstIndexes.size());
+        delegate.deleteRoleAssignments(pid, firstIndexes.stream().map(roleAssignments::get).toList(),
+            numberDone -> progress.accept(toOriginalProgress(numberDone, firstIndexes, roleAssignments.size())));
+    }
+
+    private List<Integer> firstIndexesOfDistinct(List<RoleAssignment> roleAssignments) {
+        var seen = new HashSet<RoleAssignmentKey>();
+        var firstIndexes = new ArrayList<Integer>();
+        for (int i = 0; i < roleAssignments.size(); i++) {
+            if (seen.add(new RoleAssignmentKey(roleAssignments.get(i).getAssignee(), roleAssignments.get(i).getRole()))) {
+                firstIndexes.add(i);
+            }
+        }
+        return firstIndexes;
+    }
+
+    private static int toOriginalProgress(int numberOfCombinedDone, List<Integer> firstIndexes, int numberOfOriginal) {
+        return numberOfCombinedDone < firstIndexes.size() ? firstIndexes.get(numberOfCombinedDone) : numberOfOriginal;
+    }
+
+    private void saved(int numberOfCalls) {
+        if (numberOfCalls > 0) {
+            log.debug("Saved {} calls to Dataverse by combining them", numberOfCalls);
+            numberOfCallsSaved.addAndGet(numberOfCalls);
+        }
+    }
+
+    @Override
+    public String createDataset(Dataset datasetMetadata) throws DataverseException, IOException {
+        return delegate.createDataset(datasetMetadata);
+    }
+
+    @Override
+    public FileList addFile(String persistentId, Path file, FileMeta fileMeta) throws DataverseException, IOException {
+        return delegate.addFile(persistentId, file, fileMeta);
+    }
+
+    @Override
+    public boolean isZipStreamSupported() {
+        return delegate.isZipStreamSupported();
+    }
+
+    @Override
+    public FileList addZipStream(String persistentId, StreamingContent zipContent, boolean restrict) throws DataverseException, IOException {
+        return delegate.addZipStream(persistentId, zipContent, restrict);
+    }
+
+    @Override
+    public void awaitIngest(String persistentId) throws DataverseException, IOException {
+        delegate.awaitIngest(persistentId);
+    }
+
+    @Override
+    public void publishDataset(String persistentId, UpdateType updateType) throws DataverseException, IOException {
+        delegate.publishDataset(persistentId, updateType);
+    }
+
+    @Override
+    public List<FileMeta> getFiles(String pid, boolean includeDraftVersion) throws IOException, DataverseException {
+        return delegate.getFiles(pid, includeDraftVersion);
+    }
+
+    @Override
+    public void getFiles(String pid, boolean includeDraftVersion, Consumer<FileMeta> consumer) throws IOException, DataverseException {
+        delegate.getFiles(pid, includeDraftVersion, consumer);
+    }
+
+    @Override
+    public FileMeta replaceFile(String targetDatasetPid, FileMeta fileToReplace, Path replacement) throws DataverseException, IOException {
+        return delegate.replaceFile(targetDatasetPid, fileToReplace, replacement);
+    }
+
+    @Override
+    public void deleteFiles(String pid, List<Integer> ids) throws DataverseException, IOException {
+        delegate.deleteFiles(pid, ids);
+    }
+
+    @Override
+    public String getDatasetUrnNbn(String datasetId) throws IOException, DataverseException {
+        return delegate.getDatasetUrnNbn(datasetId);
+    }
+
+    @Override
+    public void updateMetadata(String targetDatasetPid, DatasetVersion datasetMetadata) throws DataverseException, IOException {
+        delegate.updateMetadata(targetDatasetPid, datasetMetadata);
+    }
+
+    @Override
+    public void updateFileMetadatas(String pid, List<FileMetaUpdate> fileMetaUpdates) throws DataverseException, IOException {
+        delegate.updateFileMetadatas(pid, fileMetaUpdates);
+    }
+
+    @Override
+    public void deleteDatasetMetadata(String pid, List<MetadataField> fields) throws DataverseException, IOException {
+        delegate.deleteDatasetMetadata(pid, fields);
+    }
+
+    @Override
+    public void editMetadata(String pid, List<MetadataField> addFieldValues, boolean b) throws DataverseException, IOException {
+        delegate.editMetadata(pid, addFieldValues, b);
+    }
+
+    @Override
+    public void addRoleAssignment(String pid, RoleAssignment roleAssignment) throws DataverseException, IOException {
+        delegate.addRoleAssignment(pid, roleAssignment);
+    }
+
+    @Override
+    public void deleteRoleAssignment(String pid, RoleAssignment roleAssignment) throws DataverseException, IOException {
+        delegate.deleteRoleAssignment(pid, roleAssignment);
+    }
+
+    @Override
+    public Optional<AuthenticatedUser> getUserById(String userId) {
+        return delegate.getUserById(userId);
+    }
+
+    @Override
+    public List<License> getSupportedLicenses() throws IOException, DataverseException {
+        return delegate.getSupportedLicenses();
+    }
+
+    @Override
+    public Set<String> getActiveMetadataBlockNames() throws IOException, DataverseException {
+        return delegate.getActiveMetadataBlockNames();
+    }
+
+    @Override
+    public void addEmbargo(String pid, Embargo embargo) throws IOException, DataverseException {
+        delegate.addEmbargo(pid, embargo);
+    }
+
+    @Override
+    public List<String> findDoiByMetadataField(String fieldName, String value) throws IOException, DataverseException {
+        return delegate.findDoiByMetadataField(fieldName, value);
+    }
+
+    @Override
+    public DatasetVersion getDatasetMetadata(String pid) throws IOException, DataverseException {
+        return delegate.getDatasetMetadata(pid);
+    }
+
+    @Override
+    public DatasetVersion getDatasetMetadataFirstVersion(String pid) throws IOException, DataverseException {
+        return delegate.getDatasetMetadataFirstVersion(pid);
+    }
+
+    @Override
+    public String getDatasetState(String targetPid) throws IOException, DataverseException {
+        return delegate.getDatasetState(targetPid);
+    }
+
+    @Override
+    public void importDataset(String pid, Dataset dataset) throws IOException, DataverseException {
+        delegate.importDataset(pid, dataset);
+    }
+
+    @Override
+    public void releaseMigratedDataset(String pid, String date) throws DataverseException, IOException {
+        delegate.releaseMigratedDataset(pid, date);
+    }
+
+    @Override
+    public void waitForReleasedState(String persistentId, int numberOfFilesInDataset) throws DataverseException, IOException {
+        delegate.waitForReleasedState(persistentId, numberOfFilesInDataset);
+    }
+
+    @Override
+    public List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataverse(String dataverseAlias) throws DataverseException, IOException {
+        return delegate.getRoleAssignmentsOnDataverse(dataverseAlias);
+    }
+
+    @Override
+    public List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataset(String persistentId) throws DataverseException, IOException {
+        return delegate.getRoleAssignmentsOnDataset(persistentId);
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.lib.dataverse.DataverseException;
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Caches the file lists of dataset versions across bags and deposits, so that the conversion of a deposit and the processing of its bags do not each download the complete file list of the target
+ * dataset. Entries are keyed on the persistent identifier of the dataset and the version (":latest" or ":latest-published"). As these are not concrete version numbers, a cached list is not
+ * recognized as outdated when another client creates a new version; the invalidation and the maximum age below are what keep the lists correct. Draft file lists may differ per API key, so
+ * one cache must only be used with one API key.
+ * </p>
+ * <p>
+ * All versions of a dataset are invalidated when the service changes the dataset. A file list that is still being loaded when the dataset is invalidated is not cached, so that it cannot
+ * replace a newer listing. To bound the effect of changes made by others (e.g. through the Dataverse UI), entries also expire after a
+ * maximum age. The least recently used entries are evicted when the maximum number of datasets is reached. File lists with more than the maximum number of files per dataset are not cached at
+ * all, so that reading the file list of a very large dataset in pages does not require the complete list to be held in memory.
+ * </p>
+ */
+@Slf4j
+public class DatasetFilesCache {
+    public static final String LATEST = ":latest";
+    public static final String LATEST_PUBLISHED = ":latest-published";
+
+    private final Map<Key, Entry> entries;
+    // Loads in progress; a load is only cached if its token was not removed by an invalidation in the meantime
+    private final Map<Key, Object> pendingLoads = new HashMap<>();
+    private final int maxFilesPerDataset;
+    private final Duration maxAge;
+    private final Clock clock;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * Loads the files of the dataset version.
+         *
+         * @return the files, or null if the loader already handed them out and did not keep them, because there were more than {@link #getMaxFilesPerDataset()}
+         * @throws IOException        if an I/O error occurs
+         * @throws DataverseException if the Dataverse API returns an error
+         */
+        List<FileMeta> load() throws IOException, DataverseException;
+    }
+
+    private record Key(String pid, String version) {
+    }
+
+    private static class Entry {
+        private final List<FileMeta> files;
+        private final Instant loadedAt;
+
+        private Entry(List<FileMeta> files, Instant loadedAt) {
+            this.files = Collections.unmodifiableList(new ArrayList<>(files));
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    public DatasetFilesCache(int maxDatasets, @NonNull Duration maxAge) {
+        this(maxDatasets, Integer.MAX_VALUE, maxAge);
+    }
+
+    public DatasetFilesCache(int maxDatasets, int maxFilesPerDataset, @NonNull Duration maxAge) {
+        this(maxDatasets, maxFilesPerDataset, maxAge, Clock.systemUTC());
+    }
+
+    DatasetFilesCache(int maxDatasets, @NonNull Duration maxAge, @NonNull Clock clock) {
+        this(maxDatasets, Integer.MAX_VALUE, maxAge, clock);
+    }
+
+    DatasetFilesCache(int maxDatasets, int maxFilesPerDataset, @NonNull Duration maxAge, @NonNull Clock clock) {
+        this.maxFilesPerDataset = maxFilesPerDataset;
+        this.maxAge = maxAge;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxDatasets;
+            }
+        };
+    }
+
+    /**
+     * Returns the files of the dataset version, loading them with the loader if they are not cached or the cached entry has expired. The returned FileMeta objects are shared with other callers
+     * and must not be modified.
+     *
+     * @param pid     the persistent identifier of the dataset
+     * @param version the version, {@link #LATEST} or {@link #LATEST_PUBLISHED}
+     * @param loader  downloads the files from Dataverse
+     * @return the files in the dataset version, or null if the loader returned null
+     * @throws IOException        if the loader fails
+     * @throws DataverseException if the loader fails
+     */
+    public List<FileMeta> get(@NonNull String pid, @NonNull String version, @NonNull Loader loader) throws IOException, DataverseException {
+        var key = new Key(pid, version);
+        var entry = getValidEntry(key);
+        if (entry != null) {
+            hits.incrementAndGet();
+            log.debug("Using cached file list of {} version {} ({} files)", pid, version, entry.files.size());
+            return entry.files;
+        }
+        misses.incrementAndGet();
+        var token = new Object();
+        synchronized (entries) {
+            pendingLoads.put(key, token);
+        }
+        List<FileMeta> files;
+        try {
+            files = loader.load();
+        }
+        catch (IOException | DataverseException | RuntimeException e) {
+            synchronized (entries) {
+                pendingLoads.remove(key, token);
+            }
+            throw e;
+        }
+        if (files == null || files.size() > maxFilesPerDataset) {
+            log.debug("File list of {} version {} has more than {} files; not caching it", pid, version, maxFilesPerDataset);
+            synchronized (entries) {
+                pendingLoads.remove(key, token);
+            }
+            return files;
+        }
+        var newEntry = new Entry(files, clock.instant());
+        synchronized (entries) {
+            if (pendingLoads.remove(key, token)) {
+                entries.put(key, newEntry);
+            }
+            else {
+                log.debug("File list of {} version {} was invalidated while loading; not caching it", pid, version);
+            }
+        }
+        return newEntry.files;
+    }
+
+    /**
+     * Returns whether the files of the dataset version are cached and not expired.
+     *
+     * @param pid     the persistent identifier of the dataset
+     * @param version the version, {@link #LATEST} or {@link #LATEST_PUBLISHED}
+     * @return true if the files are cached
+     */
+    public boolean isCached(@NonNull String pid, @NonNull String version) {
+        return getValidEntry(new Key(pid, version)) != null;
+    }
+
+    /**
+     * Removes all cached versions of the dataset, and prevents file lists of the dataset that are still being loaded from being cached.
+     *
+     * @param pid the persistent identifier of the dataset
+     */
+    public void invalidate(@NonNull String pid) {
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> key.pid().equals(pid));
+            pendingLoads.keySet().removeIf(key -> key.pid().equals(pid));
+        }
+    }
+
+    public int getMaxFilesPerDataset() {
+        return maxFilesPerDataset;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private Entry getValidEntry(Key key) {
+        synchronized (entries) {
+            var entry = entries.get(key);
+            if (entry != null && entry.loadedAt.plus(maxAge).isBefore(clock.instant())) {
+                entries.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+}
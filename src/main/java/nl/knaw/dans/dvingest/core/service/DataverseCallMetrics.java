@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import com.codahale.metrics.MetricRegistry;
+import lombok.NonNull;
+import nl.knaw.dans.lib.dataverse.DataverseException;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Records the metrics of calls to Dataverse in the given registry, under the given name followed by the name of the operation. Shared by {@link MeteredDataverseService}, which meters the calls to
+ * the service, and {@link DataverseServiceImpl}, which meters the requests behind its caches.
+ */
+public class DataverseCallMetrics {
+    private final MetricRegistry metricRegistry;
+    private final String name;
+
+    @FunctionalInterface
+    public interface Call<T> {
+        T call() throws DataverseException, IOException;
+    }
+
+    @FunctionalInterface
+    public interface VoidCall {
+        void call() throws DataverseException, IOException;
+    }
+
+    public DataverseCallMetrics(@NonNull MetricRegistry metricRegistry, @NonNull String name) {
+        this.metricRegistry = metricRegistry;
+        this.name = name;
+    }
+
+    /**
+     * Times the call and marks the errors meter if it fails.
+     *
+     * @param operation the name of the operation
+     * @param call      the call
+     * @param <T>       the type of the result
+     * @return the result of the call
+     */
+    public <T> T metered(String operation, Call<T> call) throws DataverseException, IOException {
+        var context = metricRegistry.timer(MetricRegistry.name(name, operation)).time();
+        try {
+            return call.call();
+        }
+        catch (DataverseException | IOException | RuntimeException e) {
+            metricRegistry.meter(MetricRegistry.name(name, operation, "errors")).mark();
+            throw e;
+        }
+        finally {
+            context.stop();
+        }
+    }
+
+    public void metered(String operation, VoidCall call) throws DataverseException, IOException {
+        metered(operation, () -> {
+            call.call();
+            return null;
+        });
+    }
+
+    /**
+     * Same as {@link #metered(String, Call)}, for calls that do not throw checked exceptions.
+     *
+     * @param operation the name of the operation
+     * @param call      the call
+     * @param <T>       the type of the result
+     * @return the result of the call
+     */
+    public <T> T meteredUnchecked(String operation, Supplier<T> call) {
+        var context = metricRegistry.timer(MetricRegistry.name(name, operation)).time();
+        try {
+            return call.get();
+        }
+        catch (RuntimeException e) {
+            metricRegistry.meter(MetricRegistry.name(name, operation, "errors")).mark();
+            throw e;
+        }
+        finally {
+            context.stop();
+        }
+    }
+
+    public void updateHistogram(String operation, String unit, long value) {
+        metricRegistry.histogram(MetricRegistry.name(name, operation, unit)).update(value);
+    }
+
+    public void incrementCounter(String counter, long value) {
+        metricRegistry.counter(MetricRegistry.name(name, counter)).inc(value);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the requests sent to Dataverse on behalf of a unit of work, such as a deposit. The counter is bound to the thread that does the work, and {@link DataverseServiceImpl},
+ * {@link PagedFilesReader} and {@link ZipStreamUploader} report every request they send to the counter bound to the calling thread, if any. Listings served from a cache are therefore not counted,
+ * while a call that sends several requests, e.g. a batch of role assignments or a file list read in pages, counts every one of them.
+ */
+public class DataverseRequestCounter {
+    private static final ThreadLocal<DataverseRequestCounter> current = new ThreadLocal<>();
+
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * The binding of a counter to the current thread, which restores the previous binding when closed.
+     */
+    public interface Binding extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Binds this counter to the current thread. Use in a try-with-resources statement.
+     *
+     * @return the binding
+     */
+    public Binding bind() {
+        var previous = current.get();
+        current.set(this);
+        return () -> {
+            if (previous == null) {
+                current.remove();
+            }
+            else {
+                current.set(previous);
+            }
+        };
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    static void countRequest() {
+        var counter = current.get();
+        if (counter != null) {
+            counter.count.incrementAndGet();
+        }
+    }
+}
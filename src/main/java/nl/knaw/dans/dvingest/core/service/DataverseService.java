@@ -34,6 +34,8 @@ import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 public interface DataverseService {
 
@@ -41,10 +43,54 @@ public interface DataverseService {
 
     FileList addFile(String persistentId, Path file, FileMeta fileMeta) throws DataverseException, IOException;
 
+    /**
+     * Returns whether {@link #addZipStream(String, StreamingContent, boolean)} is available.
+     *
+     * @return true if ZIP files can be streamed to Dataverse
+     */
+    boolean isZipStreamSupported();
+
+    /**
+     * Adds the files in a ZIP file to the dataset, generating the ZIP file while it is being uploaded. The upload cannot be retried with the same content, so callers must fall back to
+     * {@link #addFile(String, Path, FileMeta)} if it fails. Only available if {@link #isZipStreamSupported()} returns true.
+     *
+     * @param persistentId the persistent identifier of the dataset
+     * @param zipContent   writes the ZIP file
+     * @param restrict     whether the files must be restricted
+     * @return the files that were added
+     * @throws DataverseException    if the dataset does not become unlocked
+     * @throws IOException           if the upload fails
+     * @throws IllegalStateException if streaming upload is not supported
+     */
+    FileList addZipStream(String persistentId, StreamingContent zipContent, boolean restrict) throws DataverseException, IOException;
+
+    /**
+     * Waits until Dataverse has finished ingesting the files that were added to the dataset, i.e. until the dataset no longer has an Ingest lock.
+     *
+     * @param persistentId the persistent identifier of the dataset
+     * @throws DataverseException if the dataset does not become unlocked
+     * @throws IOException        if an I/O error occurs
+     */
+    void awaitIngest(String persistentId) throws DataverseException, IOException;
+
     void publishDataset(String persistentId, UpdateType updateType) throws DataverseException, IOException;
 
     List<FileMeta> getFiles(String pid, boolean includeDraftVersion) throws IOException, DataverseException;
 
+    /**
+     * Hands the files of the dataset to the consumer. Implementations that can read the file list in pages do so, so that the consumer can process the first files while the rest are still being
+     * downloaded, and the complete response never has to be held in memory.
+     *
+     * @param pid                 the persistent identifier of the dataset
+     * @param includeDraftVersion whether to read from a draft version of the dataset, if that is the latest version
+     * @param consumer            receives the files
+     * @throws IOException        if an I/O error occurs
+     * @throws DataverseException if the Dataverse API returns an error
+     */
+    default void getFiles(String pid, boolean includeDraftVersion, Consumer<FileMeta> consumer) throws IOException, DataverseException {
+        getFiles(pid, includeDraftVersion).forEach(consumer);
+    }
+
     FileMeta replaceFile(String targetDatasetPid, FileMeta fileToReplace, Path replacement) throws DataverseException, IOException;
 
     void deleteFiles(String pid, List<Integer> ids) throws DataverseException, IOException;
@@ -63,6 +109,40 @@ public interface DataverseService {
 
     void deleteRoleAssignment(String pid, RoleAssignment roleAssignment) throws DataverseException, IOException;
 
+    /**
+     * Adds the role assignments to the dataset. Implementations may combine them into fewer requests. After each request, the number of leading role assignments in the list that have been added
+     * is reported, so that the caller can resume after the last one if a later request fails.
+     *
+     * @param pid             the persistent identifier of the dataset
+     * @param roleAssignments the role assignments to add
+     * @param progress        receives the number of leading role assignments that have been added
+     * @throws DataverseException if the Dataverse API returns an error
+     * @throws IOException        if an I/O error occurs
+     */
+    default void addRoleAssignments(String pid, List<RoleAssignment> roleAssignments, IntConsumer progress) throws DataverseException, IOException {
+        for (int i = 0; i < roleAssignments.size(); i++) {
+            addRoleAssignment(pid, roleAssignments.get(i));
+            progress.accept(i + 1);
+        }
+    }
+
+    /**
+     * Deletes the role assignments from the dataset. Implementations may combine them into fewer requests. Progress is reported as for
+     * {@link #addRoleAssignments(String, List, IntConsumer)}.
+     *
+     * @param pid             the persistent identifier of the dataset
+     * @param roleAssignments the role assignments to delete
+     * @param progress        receives the number of leading role assignments that have been deleted
+     * @throws DataverseException if the Dataverse API returns an error
+     * @throws IOException        if an I/O error occurs
+     */
+    default void deleteRoleAssignments(String pid, List<RoleAssignment> roleAssignments, IntConsumer progress) throws DataverseException, IOException {
+        for (int i = 0; i < roleAssignments.size(); i++) {
+            deleteRoleAssignment(pid, roleAssignments.get(i));
+            progress.accept(i + 1);
+        }
+    }
+
     Optional<AuthenticatedUser> getUserById(String userId);
 
     List<License> getSupportedLicenses() throws IOException, DataverseException;
@@ -71,6 +151,23 @@ public interface DataverseService {
 
     void addEmbargo(String pid, Embargo embargo) throws IOException, DataverseException;
 
+    /**
+     * Adds the embargoes to the files of the dataset. Implementations may combine them into fewer requests. Progress is reported as for
+     * {@link #addRoleAssignments(String, List, IntConsumer)}.
+     *
+     * @param pid       the persistent identifier of the dataset
+     * @param embargoes the embargoes to add
+     * @param progress  receives the number of leading embargoes that have been added
+     * @throws IOException        if an I/O error occurs
+     * @throws DataverseException if the Dataverse API returns an error
+     */
+    default void addEmbargoes(String pid, List<Embargo> embargoes, IntConsumer progress) throws IOException, DataverseException {
+        for (int i = 0; i < embargoes.size(); i++) {
+            addEmbargo(pid, embargoes.get(i));
+            progress.accept(i + 1);
+        }
+    }
+
     List<String> findDoiByMetadataField(String fieldName, String value) throws IOException, DataverseException;
 
     DatasetVersion getDatasetMetadata(String pid) throws IOException, DataverseException;
@@ -41,16 +41,23 @@ import nl.knaw.dans.lib.dataverse.model.user.AuthenticatedUser;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
 @Builder
 @Slf4j
 public class DataverseServiceImpl implements DataverseService {
+    private static final long MIN_POLLING_INTERVAL = 1000;
+    private static final int LEAD_TIME_FRACTION_WITHOUT_ESTIMATE = 10;
+
     @NonNull
     private final DataverseClient dataverseClient;
 
@@ -66,98 +73,326 @@ public class DataverseServiceImpl implements DataverseService {
     @Builder.Default
     private Map<String, String> metadataKeys = new HashMap<>();
 
+    // If null, streaming upload is not supported
+    private final ZipStreamUploader zipStreamUploader;
+
+    // If null, file lists are not cached
+    private final DatasetFilesCache datasetFilesCache;
+
+    // If null, file lists are read in a single request
+    private final PagedFilesReader pagedFilesReader;
+
+    // If null, role assignments are not cached
+    private final RoleAssignmentsCache roleAssignmentsCache;
+
+    // If null, the configured lead time per file is always used
+    private final PublishDurationHistory publishDurationHistory;
+
+    // If null, the requests behind the caches are not metered
+    private final DataverseCallMetrics callMetrics;
+
+    /*
+     * Every request to Dataverse goes through here, so that it is counted for the deposit being processed, if any. Polling inside awaitUnlock counts as one request.
+     */
+    private DataverseClient request() {
+        DataverseRequestCounter.countRequest();
+        return dataverseClient;
+    }
+
     public String createDataset(Dataset datasetMetadata) throws DataverseException, IOException {
-        var result = dataverseClient.dataverse("root").createDataset(datasetMetadata, metadataKeys);
+        var result = request().dataverse("root").createDataset(datasetMetadata, metadataKeys);
         log.debug(result.getEnvelopeAsString());
         return result.getData().getPersistentId();
     }
 
     @Override
     public FileList addFile(String persistentId, Path file, FileMeta fileMeta) throws DataverseException, IOException {
-        var dataset = dataverseClient.dataset(persistentId);
-        dataset.awaitUnlock(List.of("Ingest"), 10, 1000);
-        var result = dataset.addFile(file, fileMeta);
-        log.debug(result.getEnvelopeAsString());
-        return result.getData();
+        invalidateCachedFiles(persistentId);
+        try {
+            var dataset = request().dataset(persistentId);
+            dataset.awaitUnlock(List.of("Ingest"), 10, 1000);
+            DataverseRequestCounter.countRequest();
+            var result = dataset.addFile(file, fileMeta);
+            log.debug(result.getEnvelopeAsString());
+            return result.getData();
+        }
+        finally {
+            invalidateCachedFiles(persistentId);
+        }
+    }
+
+    @Override
+    public boolean isZipStreamSupported() {
+        return zipStreamUploader != null;
+    }
+
+    @Override
+    public FileList addZipStream(String persistentId, StreamingContent zipContent, boolean restrict) throws DataverseException, IOException {
+        invalidateCachedFiles(persistentId);
+        try {
+            if (zipStreamUploader == null) {
+                throw new IllegalStateException("Streaming upload is not configured");
+            }
+            request().dataset(persistentId).awaitUnlock(List.of("Ingest"), 10, 1000);
+            return zipStreamUploader.upload(persistentId, zipContent, restrict);
+        }
+        finally {
+            invalidateCachedFiles(persistentId);
+        }
+    }
+
+    @Override
+    public void awaitIngest(String persistentId) throws DataverseException, IOException {
+        request().dataset(persistentId).awaitUnlock(List.of("Ingest"), 10, 1000);
     }
 
     @Override
     public void publishDataset(String persistentId, UpdateType updateType) throws DataverseException, IOException {
-        var result = dataverseClient.dataset(persistentId).publish(updateType, true);
-        log.debug(result.getEnvelopeAsString());
+        invalidateCachedFiles(persistentId);
+        try {
+            var result = request().dataset(persistentId).publish(updateType, true);
+            log.debug(result.getEnvelopeAsString());
+        }
+        finally {
+            invalidateCachedFiles(persistentId);
+        }
     }
 
     @Override
     public void updateMetadata(String targetDatasetPid, DatasetVersion datasetMetadata) throws DataverseException, IOException {
-        var result = dataverseClient.dataset(targetDatasetPid).updateMetadata(datasetMetadata, metadataKeys);
-        log.debug(result.getEnvelopeAsString());
+        invalidateCachedFiles(targetDatasetPid);
+        try {
+            var result = request().dataset(targetDatasetPid).updateMetadata(datasetMetadata, metadataKeys);
+            log.debug(result.getEnvelopeAsString());
+        }
+        finally {
+            invalidateCachedFiles(targetDatasetPid);
+        }
     }
 
     @Override
     public void updateFileMetadatas(String pid, List<FileMetaUpdate> fileMetaUpdates) throws DataverseException, IOException {
-        var result = dataverseClient.dataset(pid).updateFileMetadatas(fileMetaUpdates);
-        log.debug(result.getEnvelopeAsString());
+        invalidateCachedFiles(pid);
+        try {
+            var result = request().dataset(pid).updateFileMetadatas(fileMetaUpdates);
+            log.debug(result.getEnvelopeAsString());
+        }
+        finally {
+            invalidateCachedFiles(pid);
+        }
     }
 
     @Override
     public List<FileMeta> getFiles(String pid, boolean includeDraftVersion) throws IOException, DataverseException {
-        var result = dataverseClient.dataset(pid).getFiles(includeDraftVersion ? Version.LATEST.toString() : Version.LATEST_PUBLISHED.toString());
-        return result.getData();
+        if (pagedFilesReader != null) {
+            var files = new ArrayList<FileMeta>();
+            getFiles(pid, includeDraftVersion, files::add);
+            return files;
+        }
+        if (datasetFilesCache == null) {
+            return loadFiles(pid, toVersion(includeDraftVersion));
+        }
+        var cachedVersion = getCachedVersion(pid, includeDraftVersion);
+        return datasetFilesCache.get(pid, cachedVersion, () -> loadFiles(pid, cachedVersion));
+    }
+
+    @Override
+    public void getFiles(String pid, boolean includeDraftVersion, Consumer<FileMeta> consumer) throws IOException, DataverseException {
+        if (pagedFilesReader == null) {
+            getFiles(pid, includeDraftVersion).forEach(consumer);
+            return;
+        }
+        if (datasetFilesCache == null) {
+            readFilePages(pid, toVersion(includeDraftVersion), consumer);
+            return;
+        }
+        var cachedVersion = getCachedVersion(pid, includeDraftVersion);
+        var streamed = new boolean[] { false };
+        var files = datasetFilesCache.get(pid, cachedVersion, () -> {
+            // The consumer gets each page as it arrives; the list only holds references to the same objects for the shared cache. Datasets too large to cache are not collected at all.
+            var loaded = new ArrayList<FileMeta>();
+            var tooLarge = new boolean[] { false };
+            readFilePages(pid, cachedVersion, file -> {
+                if (!tooLarge[0]) {
+                    loaded.add(file);
+                    if (loaded.size() > datasetFilesCache.getMaxFilesPerDataset()) {
+                        tooLarge[0] = true;
+                        loaded.clear();
+                        loaded.trimToSize();
+                    }
+                }
+                consumer.accept(file);
+            });
+            streamed[0] = true;
+            return tooLarge[0] ? null : loaded;
+        });
+        if (!streamed[0]) {
+            files.forEach(consumer);
+        }
+    }
+
+    private List<FileMeta> loadFiles(String pid, String version) throws IOException, DataverseException {
+        var files = metered("getFiles", () -> request().dataset(pid).getFiles(version).getData());
+        if (callMetrics != null) {
+            callMetrics.updateHistogram("getFiles", "files", files.size());
+        }
+        return files;
+    }
+
+    private void readFilePages(String pid, String version, Consumer<FileMeta> consumer) throws IOException, DataverseException {
+        var numberOfFiles = new long[] { 0 };
+        metered("getFiles", () -> {
+            pagedFilesReader.read(pid, version, file -> {
+                numberOfFiles[0]++;
+                consumer.accept(file);
+            });
+            return null;
+        });
+        if (callMetrics != null) {
+            callMetrics.updateHistogram("getFiles", "files", numberOfFiles[0]);
+        }
+    }
+
+    /*
+     * Meters the requests that actually reach Dataverse, as opposed to MeteredDataverseService, which cannot tell them apart from cache hits.
+     */
+    private <T> T metered(String operation, DataverseCallMetrics.Call<T> call) throws IOException, DataverseException {
+        return callMetrics == null ? call.call() : callMetrics.metered(operation, call);
+    }
+
+    private String toVersion(boolean includeDraftVersion) {
+        return includeDraftVersion ? Version.LATEST.toString() : Version.LATEST_PUBLISHED.toString();
+    }
+
+    private String getCachedVersion(String pid, boolean includeDraftVersion) throws IOException, DataverseException {
+        if (includeDraftVersion && datasetFilesCache.isCached(pid, DatasetFilesCache.LATEST_PUBLISHED) && "RELEASED".equals(getDatasetState(pid))) {
+            // Without a draft, the latest version is the latest published version, e.g. when the conversion of an update deposit already downloaded it
+            return DatasetFilesCache.LATEST_PUBLISHED;
+        }
+        return includeDraftVersion ? DatasetFilesCache.LATEST : DatasetFilesCache.LATEST_PUBLISHED;
+    }
+
+    /*
+     * Called before and after every change to a dataset: a file list that was being loaded while the change was in progress could otherwise be cached after the first invalidation.
+     */
+    private void invalidateCachedFiles(String pid) {
+        if (datasetFilesCache != null) {
+            datasetFilesCache.invalidate(pid);
+        }
     }
 
     @Override
     public FileMeta replaceFile(String targetDatasetPid, FileMeta fileToReplace, Path replacement) throws DataverseException, IOException {
-        log.debug("Replacing file: {}", fileToReplace);
-        var result = dataverseClient.file(fileToReplace.getDataFile().getId()).replaceFile(replacement, fileToReplace);
-        log.debug(result.getEnvelopeAsString());
-        var fileList = result.getData();
-        if (fileList.getFiles().size() != 1) {
-            throw new IllegalStateException("Expected 1 file in the result, but got " + fileList.getFiles().size());
+        invalidateCachedFiles(targetDatasetPid);
+        try {
+            log.debug("Replacing file: {}", fileToReplace);
+            var result = request().file(fileToReplace.getDataFile().getId()).replaceFile(replacement, fileToReplace);
+            log.debug(result.getEnvelopeAsString());
+            var fileList = result.getData();
+            if (fileList.getFiles().size() != 1) {
+                throw new IllegalStateException("Expected 1 file in the result, but got " + fileList.getFiles().size());
+            }
+            return fileList.getFiles().get(0);
+        }
+        finally {
+            invalidateCachedFiles(targetDatasetPid);
         }
-        return fileList.getFiles().get(0);
     }
 
     @Override
     public void deleteFiles(String pid, List<Integer> ids) throws DataverseException, IOException {
-        var result = dataverseClient.dataset(pid).deleteFiles(ids);
-        log.debug(result.getEnvelopeAsString());
+        invalidateCachedFiles(pid);
+        try {
+            var result = request().dataset(pid).deleteFiles(ids);
+            log.debug(result.getEnvelopeAsString());
+        }
+        finally {
+            invalidateCachedFiles(pid);
+        }
     }
 
     @Override
     public void deleteDatasetMetadata(String pid, List<MetadataField> fieldList) throws DataverseException, IOException {
-        var result = dataverseClient.dataset(pid).deleteMetadata(new FieldList(fieldList), metadataKeys);
-        log.debug(result.getEnvelopeAsString());
+        invalidateCachedFiles(pid);
+        try {
+            var result = request().dataset(pid).deleteMetadata(new FieldList(fieldList), metadataKeys);
+            log.debug(result.getEnvelopeAsString());
+        }
+        finally {
+            invalidateCachedFiles(pid);
+        }
     }
 
     @Override
     public void editMetadata(String pid, List<MetadataField> addFieldValues, boolean b) throws DataverseException, IOException {
-        var result = dataverseClient.dataset(pid).editMetadata(new FieldList(addFieldValues), b);
-        log.debug(result.getEnvelopeAsString());
+        invalidateCachedFiles(pid);
+        try {
+            var result = request().dataset(pid).editMetadata(new FieldList(addFieldValues), b);
+            log.debug(result.getEnvelopeAsString());
+        }
+        finally {
+            invalidateCachedFiles(pid);
+        }
     }
 
     @Override
     public void addRoleAssignment(String pid, RoleAssignment roleAssignment) throws DataverseException, IOException {
-        var result = dataverseClient.dataset(pid).assignRole(roleAssignment);
-        log.debug(result.getEnvelopeAsString());
+        invalidateCachedRoleAssignments(pid);
+        try {
+            var result = request().dataset(pid).assignRole(roleAssignment);
+            log.debug(result.getEnvelopeAsString());
+        }
+        finally {
+            invalidateCachedRoleAssignments(pid);
+        }
     }
 
     @Override
     public void deleteRoleAssignment(String pid, RoleAssignment roleAssignment) throws DataverseException, IOException {
-        var listResult = dataverseClient.dataset(pid).listRoleAssignments();
-        var list = listResult.getData();
-        for (RoleAssignmentReadOnly ra : list) {
-            if (ra.getAssignee().equals(roleAssignment.getAssignee()) && ra.get_roleAlias().equals(roleAssignment.getRole())) {
-                log.debug("Deleting role assignment: {}", ra);
-                var deleteResult = dataverseClient.dataset(pid).deleteRoleAssignment(ra.getId());
-                log.debug(deleteResult.getEnvelopeAsString());
+        // Not from the cache: a stale listing could contain assignments that no longer exist or miss ones that were added since
+        var list = request().dataset(pid).listRoleAssignments().getData();
+        invalidateCachedRoleAssignments(pid);
+        try {
+            for (RoleAssignmentReadOnly ra : list) {
+                if (ra.getAssignee().equals(roleAssignment.getAssignee()) && ra.get_roleAlias().equals(roleAssignment.getRole())) {
+                    log.debug("Deleting role assignment: {}", ra);
+                    var deleteResult = request().dataset(pid).deleteRoleAssignment(ra.getId());
+                    log.debug(deleteResult.getEnvelopeAsString());
+                }
+            }
+        }
+        finally {
+            invalidateCachedRoleAssignments(pid);
+        }
+    }
+
+    @Override
+    public void deleteRoleAssignments(String pid, List<RoleAssignment> roleAssignments, IntConsumer progress) throws DataverseException, IOException {
+        // List the existing role assignments once, instead of once per role assignment to delete; not from the cache, as in deleteRoleAssignment
+        var list = request().dataset(pid).listRoleAssignments().getData();
+        invalidateCachedRoleAssignments(pid);
+        try {
+            for (int i = 0; i < roleAssignments.size(); i++) {
+                var roleAssignment = roleAssignments.get(i);
+                for (RoleAssignmentReadOnly ra : list) {
+                    if (ra.getAssignee().equals(roleAssignment.getAssignee()) && ra.get_roleAlias().equals(roleAssignment.getRole())) {
+                        log.debug("Deleting role assignment: {}", ra);
+                        var deleteResult = request().dataset(pid).deleteRoleAssignment(ra.getId());
+                        log.debug(deleteResult.getEnvelopeAsString());
+                    }
+                }
+                progress.accept(i + 1);
             }
         }
+        finally {
+            invalidateCachedRoleAssignments(pid);
+        }
     }
 
     @Override
     public Optional<AuthenticatedUser> getUserById(String userId) {
         try {
-            return Optional.of(dataverseClient.admin().listSingleUser(userId).getData());
+            return Optional.of(request().admin().listSingleUser(userId).getData());
         }
         catch (IOException | DataverseException e) {
             log.error("Error retrieving user with id {} from dataverse", userId, e);
@@ -167,7 +402,7 @@ public class DataverseServiceImpl implements DataverseService {
 
     @Override
     public List<License> getSupportedLicenses() throws IOException, DataverseException {
-        return dataverseClient.license().getLicenses().getData().stream()
+        return request().license().getLicenses().getData().stream()
             // We need to map from one license class to another because they have different fields
             .map(license -> new License(
                 license.getName(),
@@ -181,7 +416,7 @@ public class DataverseServiceImpl implements DataverseService {
 
     @Override
     public Set<String> getActiveMetadataBlockNames() throws IOException, DataverseException {
-        return dataverseClient.dataverse("root")
+        return request().dataverse("root")
             .listMetadataBlocks()
             .getData()
             .stream()
@@ -191,8 +426,14 @@ public class DataverseServiceImpl implements DataverseService {
 
     @Override
     public void addEmbargo(String pid, Embargo embargo) throws IOException, DataverseException {
-        var result = dataverseClient.dataset(pid).setEmbargo(embargo);
-        log.debug(result.getEnvelopeAsString());
+        invalidateCachedFiles(pid);
+        try {
+            var result = request().dataset(pid).setEmbargo(embargo);
+            log.debug(result.getEnvelopeAsString());
+        }
+        finally {
+            invalidateCachedFiles(pid);
+        }
     }
 
     @Override
@@ -200,7 +441,7 @@ public class DataverseServiceImpl implements DataverseService {
         var query = String.format("%s:\"%s\"", key, value);
 
         log.trace("Searching datasets with query '{}'", query);
-        var results = dataverseClient.search().find(query);
+        var results = request().search().find(query);
         var items = results.getData().getItems();
 
         return items.stream()
@@ -212,7 +453,7 @@ public class DataverseServiceImpl implements DataverseService {
 
     @Override
     public String getDatasetUrnNbn(String pid) throws IOException, DataverseException {
-        var dataset = dataverseClient.dataset(pid);
+        var dataset = request().dataset(pid);
         var version = dataset.getVersion();
         var data = version.getData();
         var metadata = data.getMetadataBlocks().get("dansDataVaultMetadata");
@@ -226,57 +467,126 @@ public class DataverseServiceImpl implements DataverseService {
 
     @Override
     public DatasetVersion getDatasetMetadata(String pid) throws IOException, DataverseException {
-        return dataverseClient.dataset(pid).getVersion().getData();
+        return request().dataset(pid).getVersion().getData();
     }
 
     @Override
     public String getDatasetState(String pid) throws IOException, DataverseException {
-        return dataverseClient.dataset(pid).getVersion(Version.LATEST.toString(), true).getData().getVersionState();
+        return request().dataset(pid).getVersion(Version.LATEST.toString(), true).getData().getVersionState();
     }
 
     @Override
     public void importDataset(String pid, Dataset dataset) throws IOException, DataverseException {
-        log.debug("Start importing dataset for deposit {}", pid);
-        var result = dataverseClient.dataverse("root").importDataset(dataset, pid, false, metadataKeys);
-        log.debug(result.getEnvelopeAsString());
-        log.debug("End importing dataset for deposit {}", pid);
+        invalidateCachedFiles(pid);
+        try {
+            log.debug("Start importing dataset for deposit {}", pid);
+            var result = request().dataverse("root").importDataset(dataset, pid, false, metadataKeys);
+            log.debug(result.getEnvelopeAsString());
+            log.debug("End importing dataset for deposit {}", pid);
+        }
+        finally {
+            invalidateCachedFiles(pid);
+        }
     }
 
     @Override
     public void releaseMigratedDataset(String pid, String date) throws DataverseException, IOException {
-        var datePublishJsonLd = String.format("{\"http://schema.org/datePublished\": \"%s\"}", date);
-        var result = dataverseClient.dataset(pid).releaseMigrated(datePublishJsonLd, true);
-        log.debug(result.getEnvelopeAsString());
+        invalidateCachedFiles(pid);
+        try {
+            var datePublishJsonLd = String.format("{\"http://schema.org/datePublished\": \"%s\"}", date);
+            var result = request().dataset(pid).releaseMigrated(datePublishJsonLd, true);
+            log.debug(result.getEnvelopeAsString());
+        }
+        finally {
+            invalidateCachedFiles(pid);
+        }
     }
 
     @Override
     public void waitForReleasedState(String pid, int numberOfFilesInDataset) throws DataverseException, IOException {
-        long leadTime = numberOfFilesInDataset * leadTimePerFile;
-        log.debug("Waiting {} ms before first check", leadTime);
+        var start = System.currentTimeMillis();
+        var estimate = publishDurationHistory == null ? OptionalLong.empty() : publishDurationHistory.estimate(numberOfFilesInDataset);
+        /*
+         * Once publications have been observed, the first check is done halfway the expected duration, after which the polling interval grows from a short interval to the configured one. This way a
+         * publication that is faster than expected is noticed within a few seconds. Until then, the first check is done after a fraction of the configured lead time, so that the first publication
+         * seeds the history with a measured duration instead of the lead time. Without a history, the configured lead time is used.
+         */
+        long leadTime;
+        if (estimate.isPresent()) {
+            leadTime = estimate.getAsLong() / 2;
+        }
+        else if (publishDurationHistory != null) {
+            leadTime = numberOfFilesInDataset * leadTimePerFile / LEAD_TIME_FRACTION_WITHOUT_ESTIMATE;
+        }
+        else {
+            leadTime = numberOfFilesInDataset * leadTimePerFile;
+        }
+        log.debug("Waiting {} ms before first check (estimated publication time: {})", leadTime, estimate.isPresent() ? estimate.getAsLong() + " ms" : "unknown");
+        sleep(leadTime);
+        log.debug("Start waiting for dataset {} to be released", pid);
+        var deadline = System.currentTimeMillis() + timeout;
+        var interval = Math.min(MIN_POLLING_INTERVAL, pollingInterval);
+        var releasedAtFirstCheck = true;
+        while (!"RELEASED".equals(getDatasetState(pid))) {
+            releasedAtFirstCheck = false;
+            if (System.currentTimeMillis() + interval > deadline) {
+                throw new IllegalStateException(String.format("Dataset %s did not reach state RELEASED within %d ms", pid, timeout));
+            }
+            sleep(interval);
+            interval = Math.min(interval * 2, pollingInterval);
+        }
+        var duration = System.currentTimeMillis() - start;
+        log.debug("Dataset {} with {} files reached state RELEASED after {} ms", pid, numberOfFilesInDataset, duration);
+        if (publishDurationHistory != null) {
+            /*
+             * If the dataset was already released at the first check, the publication may have taken much less than the initial wait, so the duration is only an upper bound. It is recorded if
+             * there is no estimate yet, as the initial wait was then only a fraction of the lead time, or if it lowers the estimate.
+             */
+            if (!releasedAtFirstCheck || estimate.isEmpty() || duration < estimate.getAsLong()) {
+                publishDurationHistory.record(numberOfFilesInDataset, duration);
+            }
+            else {
+                log.debug("Not recording publication time of dataset {}, because it was already released at the first check and it does not lower the estimate", pid);
+            }
+        }
+    }
+
+    private void sleep(long millis) {
         try {
-            Thread.sleep(leadTime);
+            Thread.sleep(millis);
         }
         catch (InterruptedException e) {
-            log.error("Interrupted during lead time. Continuing", e);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for dataset to be released", e);
         }
-        log.debug("Start waiting for dataset {} to be released", pid);
-        dataverseClient.dataset(pid).awaitState("RELEASED", timeout, pollingInterval);
     }
 
     @Override
     public List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataverse(String dataverseAlias) throws DataverseException, IOException {
-        var result = dataverseClient.dataverse(dataverseAlias).listRoleAssignments();
-        return result.getData();
+        DataverseCallMetrics.Call<List<RoleAssignmentReadOnly>> load = () -> request().dataverse(dataverseAlias).listRoleAssignments().getData();
+        if (roleAssignmentsCache == null) {
+            return metered("getRoleAssignmentsOnDataverse", load);
+        }
+        return roleAssignmentsCache.getOnDataverse(dataverseAlias, () -> metered("getRoleAssignmentsOnDataverse", load));
     }
 
     @Override
     public List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataset(String persistentId) throws DataverseException, IOException {
-        var result = dataverseClient.dataset(persistentId).listRoleAssignments();
-        return result.getData();
+        DataverseCallMetrics.Call<List<RoleAssignmentReadOnly>> load = () -> request().dataset(persistentId).listRoleAssignments().getData();
+        if (roleAssignmentsCache == null) {
+            return metered("getRoleAssignmentsOnDataset", load);
+        }
+        return roleAssignmentsCache.getOnDataset(persistentId, () -> metered("getRoleAssignmentsOnDataset", load));
+    }
+
+    private void invalidateCachedRoleAssignments(String pid) {
+        if (roleAssignmentsCache != null) {
+            roleAssignmentsCache.invalidateDataset(pid);
+        }
     }
 
     @Override
     public DatasetVersion getDatasetMetadataFirstVersion(String pid) throws IOException, DataverseException {
-        return dataverseClient.dataset(pid).getVersion("1.0", true).getData();
+        return request().dataset(pid).getVersion("1.0", true).getData();
     }
 }
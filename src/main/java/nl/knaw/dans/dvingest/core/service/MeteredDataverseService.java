@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import com.codahale.metrics.MetricRegistry;
+import lombok.NonNull;
+import nl.knaw.dans.lib.dataverse.DataverseException;
+import nl.knaw.dans.lib.dataverse.model.RoleAssignment;
+import nl.knaw.dans.lib.dataverse.model.RoleAssignmentReadOnly;
+import nl.knaw.dans.lib.dataverse.model.dataset.Dataset;
+import nl.knaw.dans.lib.dataverse.model.dataset.DatasetVersion;
+import nl.knaw.dans.lib.dataverse.model.dataset.Embargo;
+import nl.knaw.dans.lib.dataverse.model.dataset.FileList;
+import nl.knaw.dans.lib.dataverse.model.dataset.License;
+import nl.knaw.dans.lib.dataverse.model.dataset.MetadataField;
+import nl.knaw.dans.lib.dataverse.model.dataset.UpdateType;
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+import nl.knaw.dans.lib.dataverse.model.file.FileMetaUpdate;
+import nl.knaw.dans.lib.dataverse.model.user.AuthenticatedUser;
+import org.apache.commons.io.output.CountingOutputStream;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Decorates a {@link DataverseService}, recording metrics for every call in the given registry, under the given name followed by the name of the operation:
+ * <ul>
+ *     <li>a timer with the duration and rate of the calls, e.g. {@code dataverse/import.addFile};</li>
+ *     <li>a meter with the calls that failed, e.g. {@code dataverse/import.addFile.errors};</li>
+ *     <li>for uploads, a histogram with the number of bytes sent per call, e.g. {@code dataverse/import.addFile.bytes}, and a counter with the total number of bytes sent by all uploads, e.g.
+ *     {@code dataverse/import.bytes-sent};</li>
+ * </ul>
+ * The file listings and role assignment listings are passed through unmetered: they may be served from the caches of {@link DataverseServiceImpl}, which meters the requests that actually reach
+ * Dataverse under the same names, so that cache hits do not show up as near-zero durations. The hits themselves are counted by the caches.
+ */
+public class MeteredDataverseService implements DataverseService {
+    public static final String BYTES_SENT = "bytes-sent";
+
+    private final DataverseService delegate;
+    private final DataverseCallMetrics callMetrics;
+
+    public MeteredDataverseService(@NonNull DataverseService delegate, @NonNull MetricRegistry metricRegistry, @NonNull String name) {
+        this(delegate, new DataverseCallMetrics(metricRegistry, name));
+    }
+
+    public MeteredDataverseService(@NonNull DataverseService delegate, @NonNull DataverseCallMetrics callMetrics) {
+        this.delegate = delegate;
+        this.callMetrics = callMetrics;
+    }
+
+    private <T> T metered(String operation, DataverseCallMetrics.Call<T> call) throws DataverseException, IOException {
+        return callMetrics.metered(operation, call);
+    }
+
+    private void metered(String operation, DataverseCallMetrics.VoidCall call) throws DataverseException, IOException {
+        callMetrics.metered(operation, call);
+    }
+
+    private void updateBytesSent(String operation, long bytes) {
+        callMetrics.updateHistogram(operation, "bytes", bytes);
+        callMetrics.incrementCounter(BYTES_SENT, bytes);
+    }
+
+    private void updateBytesSent(String operation, Path file) {
+        try {
+            updateBytesSent(operation, Files.size(file));
+        }
+        catch (IOException e) {
+            // The upload itself will report the problem with the file
+        }
+    }
+
+    @Override
+    public String createDataset(Dataset datasetMetadata) throws DataverseException, IOException {
+        return metered("createDataset", () -> delegate.createDataset(datasetMetadata));
+    }
+
+    @Override
+    public FileList addFile(String persistentId, Path file, FileMeta fileMeta) throws DataverseException, IOException {
+        var result = metered("addFile", () -> delegate.addFile(persistentId, file, fileMeta));
+        updateBytesSent("addFile", file);
+        return result;
+    }
+
+    @Override
+    public boolean isZipStreamSupported() {
+        return delegate.isZipStreamSupported();
+    }
+
+    @Override
+    public FileList addZipStream(String persistentId, StreamingContent zipContent, boolean restrict) throws DataverseException, IOException {
+        var bytesSent = new AtomicLong();
+        var result = metered("addZipStream", () -> delegate.addZipStream(persistentId, outputStream -> {
+            var countingOutputStream = new CountingOutputStream(outputStream);
+            zipContent.writeTo(countingOutputStream);
+            bytesSent.addAndGet(countingOutputStream.getByteCount());
+        }, restrict));
+        updateBytesSent("addZipStream", bytesSent.get());
+        return result;
+    }
+
+    @Override
+    public void awaitIngest(String persistentId) throws DataverseException, IOException {
+        metered("awaitIngest", () -> delegate.awaitIngest(persistentId));
+    }
+
+    @Override
+    public void publishDataset(String persistentId, UpdateType updateType) throws DataverseException, IOException {
+        metered("publishDataset", () -> delegate.publishDataset(persistentId, updateType));
+    }
+
+    @Override
+    public List<FileMeta> getFiles(String pid, boolean includeDraftVersion) throws IOException, DataverseException {
+        return delegate.getFiles(pid, includeDraftVersion);
+    }
+
+    @Override
+    public void getFiles(String pid, boolean includeDraftVersion, Consumer<FileMeta> consumer) throws IOException, DataverseException {
+        delegate.getFiles(pid, includeDraftVersion, consumer);
+    }
+
+    @Override
+    public FileMeta replaceFile(String targetDatasetPid, FileMeta fileToReplace, Path replacement) throws DataverseException, IOException {
+        var result = metered("replaceFile", () -> delegate.replaceFile(targetDatasetPid, fileToReplace, replacement));
+        updateBytesSent("replaceFile", replacement);
+        return result;
+    }
+
+    @Override
+    public void deleteFiles(String pid, List<Integer> ids) throws DataverseException, IOException {
+        metered("deleteFiles", () -> delegate.deleteFiles(pid, ids));
+    }
+
+    @Override
+    public String getDatasetUrnNbn(String datasetId) throws IOException, DataverseException {
+        return metered("getDatasetUrnNbn", () -> delegate.getDatasetUrnNbn(datasetId));
+    }
+
+    @Override
+    public void updateMetadata(String targetDatasetPid, DatasetVersion datasetMetadata) throws DataverseException, IOException {
+        metered("updateMetadata", () -> delegate.updateMetadata(targetDatasetPid, datasetMetadata));
+    }
+
+    @Override
+    public void updateFileMetadatas(String pid, List<FileMetaUpdate> fileMetaUpdates) throws DataverseException, IOException {
+        metered("updateFileMetadatas", () -> delegate.updateFileMetadatas(pid, fileMetaUpdates));
+    }
+
+    @Override
+    public void deleteDatasetMetadata(String pid, List<MetadataField> fields) throws DataverseException, IOException {
+        metered("deleteDatasetMetadata", () -> delegate.deleteDatasetMetadata(pid, fields));
+    }
+
+    @Override
+    public void editMetadata(String pid, List<MetadataField> addFieldValues, boolean b) throws DataverseException, IOException {
+        metered("editMetadata", () -> delegate.editMetadata(pid, addFieldValues, b));
+    }
+
+    @Override
+    public void addRoleAssignment(String pid, RoleAssignment roleAssignment) throws DataverseException, IOException {
+        metered("addRoleAssignment", () -> delegate.addRoleAssignment(pid, roleAssignment));
+    }
+
+    @Override
+    public void deleteRoleAssignment(String pid, RoleAssignment roleAssignment) throws DataverseException, IOException {
+        metered("deleteRoleAssignment", () -> delegate.deleteRoleAssignment(pid, roleAssignment));
+    }
+
+    @Override
+    public void addRoleAssignments(String pid, List<RoleAssignment> roleAssignments, IntConsumer progress) throws DataverseException, IOException {
+        metered("addRoleAssignments", () -> delegate.addRoleAssignments(pid, roleAssignments, progress));
+    }
+
+    @Override
+    public void deleteRoleAssignments(String pid, List<RoleAssignment> roleAssignments, IntConsumer progress) throws DataverseException, IOException {
+        metered("deleteRoleAssignments", () -> delegate.deleteRoleAssignments(pid, roleAssignments, progress));
+    }
+
+    @Override
+    public Optional<AuthenticatedUser> getUserById(String userId) {
+        return callMetrics.meteredUnchecked("getUserById", () -> delegate.getUserById(userId));
+    }
+
+    @Override
+    public List<License> getSupportedLicenses() throws IOException, DataverseException {
+        return metered("getSupportedLicenses", delegate::getSupportedLicenses);
+    }
+
+    @Override
+    public Set<String> getActiveMetadataBlockNames() throws IOException, DataverseException {
+        return metered("getActiveMetadataBlockNames", delegate::getActiveMetadataBlockNames);
+    }
+
+    @Override
+    public void addEmbargo(String pid, Embargo embargo) throws IOException, DataverseException {
+        metered("addEmbargo", () -> delegate.addEmbargo(pid, embargo));
+    }
+
+    @Override
+    public void addEmbargoes(String pid, List<Embargo> embargoes, IntConsumer progress) throws IOException, DataverseException {
+        metered("addEmbargoes", () -> delegate.addEmbargoes(pid, embargoes, progress));
+    }
+
+    @Override
+    public List<String> findDoiByMetadataField(String fieldName, String value) throws IOException, DataverseException {
+        return metered("findDoiByMetadataField", () -> delegate.findDoiByMetadataField(fieldName, value));
+    }
+
+    @Override
+    public DatasetVersion getDatasetMetadata(String pid) throws IOException, DataverseException {
+        return metered("getDatasetMetadata", () -> delegate.getDatasetMetadata(pid));
+    }
+
+    @Override
+    public DatasetVersion getDatasetMetadataFirstVersion(String pid) throws IOException, DataverseException {
+        return metered("getDatasetMetadataFirstVersion", () -> delegate.getDatasetMetadataFirstVersion(pid));
+    }
+
+    @Override
+    public String getDatasetState(String targetPid) throws IOException, DataverseException {
+        return metered("getDatasetState", () -> delegate.getDatasetState(targetPid));
+    }
+
+    @Override
+    public void importDataset(String pid, Dataset dataset) throws IOException, DataverseException {
+        metered("importDataset", () -> delegate.importDataset(pid, dataset));
+    }
+
+    @Override
+    public void releaseMigratedDataset(String pid, String date) throws DataverseException, IOException {
+        metered("releaseMigratedDataset", () -> delegate.releaseMigratedDataset(pid, date));
+    }
+
+    @Override
+    public void waitForReleasedState(String persistentId, int numberOfFilesInDataset) throws DataverseException, IOException {
+        metered("waitForReleasedState", () -> delegate.waitForReleasedState(persistentId, numberOfFilesInDataset));
+    }
+
+    @Override
+    public List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataverse(String dataverseAlias) throws DataverseException, IOException {
+        return delegate.getRoleAssignmentsOnDataverse(dataverseAlias);
+    }
+
+    @Override
+    public List<RoleAssignmentReadOnly> getRoleAssignmentsOnDataset(String persistentId) throws DataverseException, IOException {
+        return delegate.getRoleAssignmentsOnDataset(persistentId);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tika.Tika;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the MIME types detected by Tika for the replaceFiles task, which uses them to decide whether a file must be wrapped in a ZIP file. The addFiles task does not detect MIME types, so the cache
+ * only saves work when the same, unchanged file is replaced again, e.g. when a failed replaceFiles task is retried. Entries are keyed on the path, size and last-modified time of the file, so a
+ * file that is changed after detection is detected again. The least recently used entries are evicted when the maximum number of entries is reached.
+ */
+@Slf4j
+public class MimeTypeCache {
+    private final Tika tika;
+    private final Map<Key, String> mimeTypes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private record Key(Path path, long size, FileTime lastModified) {
+    }
+
+    public MimeTypeCache(@NonNull Tika tika, int maxEntries) {
+        this.tika = tika;
+        this.mimeTypes = new LinkedHashMap<>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the MIME type of the file, detecting it if it is not in the cache yet.
+     *
+     * @param path the file
+     * @return the MIME type
+     * @throws IOException if the file cannot be read
+     */
+    public String getMimeType(@NonNull Path path) throws IOException {
+        var key = new Key(path.toAbsolutePath().normalize(), Files.size(path), Files.getLastModifiedTime(path));
+        synchronized (mimeTypes) {
+            var mimeType = mimeTypes.get(key);
+            if (mimeType != null) {
+                hits.incrementAndGet();
+                return mimeType;
+            }
+        }
+        misses.incrementAndGet();
+        var mimeType = tika.detect(path);
+        log.debug("MimeType of path {} is {}", path, mimeType);
+        synchronized (mimeTypes) {
+            mimeTypes.put(key, mimeType);
+        }
+        return mimeType;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
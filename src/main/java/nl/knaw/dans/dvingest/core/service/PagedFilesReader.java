@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Reads the file list of a dataset version page by page, using the limit and offset parameters of the Dataverse files API. Each page is parsed while it is being received, and every file is handed
+ * to the consumer as soon as it has been parsed. Neither the response body nor the complete file list is ever held in memory by this class.
+ */
+@Slf4j
+public class PagedFilesReader {
+    private final URI baseUrl;
+    private final String apiKey;
+    private final int pageSize;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    public PagedFilesReader(@NonNull URI baseUrl, @NonNull String apiKey, int pageSize, @NonNull Duration connectionTimeout) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be at least 1");
+        }
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+        this.pageSize = pageSize;
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(connectionTimeout)
+            .build();
+    }
+
+    /**
+     * Reads all files of the dataset version, handing them to the consumer in the order returned by Dataverse.
+     *
+     * @param persistentId the persistent identifier of the dataset
+     * @param version      the version, e.g. ":latest" or ":latest-published"
+     * @param consumer     receives the files
+     * @return the number of files read
+     * @throws IOException if a request fails or Dataverse returns an error
+     */
+    public int read(@NonNull String persistentId, @NonNull String version, @NonNull Consumer<FileMeta> consumer) throws IOException {
+        int offset = 0;
+        while (true) {
+            int count = readPage(persistentId, version, offset, consumer);
+            offset += count;
+            if (count < pageSize) {
+                log.debug("Read {} files of {} version {} in pages of {}", offset, persistentId, version, pageSize);
+                return offset;
+            }
+        }
+    }
+
+    private int readPage(String persistentId, String version, int offset, Consumer<FileMeta> consumer) throws IOException {
+        var request = HttpRequest.newBuilder(getFilesUri(persistentId, version, offset))
+            .header("X-Dataverse-key", apiKey)
+            .GET()
+            .build();
+        HttpResponse<InputStream> response;
+        try {
+            DataverseRequestCounter.countRequest();
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading files of dataset " + persistentId, e);
+        }
+        try (var body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new IOException(String.format("Reading files of dataset %s failed with status %d: %s", persistentId, response.statusCode(),
+                    new String(body.readAllBytes(), StandardCharsets.UTF_8)));
+            }
+            return parsePage(body, consumer);
+        }
+    }
+
+    /**
+     * Parses the "data" array of a response envelope, handing each element to the consumer as soon as it has been read.
+     *
+     * @param body     the response body
+     * @param consumer receives the files
+     * @return the number of files in the page
+     * @throws IOException if the body is not a valid response envelope
+     */
+    int parsePage(InputStream body, Consumer<FileMeta> consumer) throws IOException {
+        int count = 0;
+        try (var parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object as response");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var field = parser.getCurrentName();
+                var token = parser.nextToken();
+                if ("data".equals(field) && token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        consumer.accept(objectMapper.readValue(parser, FileMeta.class));
+                        count++;
+                    }
+                }
+                else {
+                    skip(parser, token);
+                }
+            }
+        }
+        return count;
+    }
+
+    private void skip(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+        }
+    }
+
+    private URI getFilesUri(String persistentId, String version, int offset) {
+        var base = baseUrl.toString().replaceAll("/+$", "");
+        return URI.create(String.format("%s/api/datasets/:persistentId/versions/%s/files?persistentId=%s&limit=%d&offset=%d",
+            base, version, URLEncoder.encode(persistentId, StandardCharsets.UTF_8), pageSize, offset));
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.OptionalLong;
+
+/**
+ * Keeps the durations of the most recent publications, so that the time a new publication will take can be estimated from the publications of datasets with a similar number of files. The estimate
+ * is the median duration per file of the closest samples, where closeness is measured on a logarithmic scale, multiplied by the number of files.
+ */
+public class PublishDurationHistory {
+    private static final int NUMBER_OF_SAMPLES_FOR_ESTIMATE = 5;
+
+    private record Sample(int numberOfFiles, long durationMillis) {
+        // One is added to the number of files, so that publishing a dataset without files also has a cost
+        double millisPerFile() {
+            return (double) durationMillis / (numberOfFiles + 1);
+        }
+    }
+
+    private final int maxSamples;
+    private final Deque<Sample> samples = new ArrayDeque<>();
+
+    public PublishDurationHistory(int maxSamples) {
+        if (maxSamples < 1) {
+            throw new IllegalArgumentException("maxSamples must be at least 1");
+        }
+        this.maxSamples = maxSamples;
+    }
+
+    /**
+     * Records the time it took to publish a dataset.
+     *
+     * @param numberOfFiles  the number of files in the dataset
+     * @param durationMillis the time between the start of the publication and the dataset reaching the released state
+     */
+    public synchronized void record(int numberOfFiles, long durationMillis) {
+        if (samples.size() == maxSamples) {
+            samples.removeFirst();
+        }
+        samples.addLast(new Sample(numberOfFiles, durationMillis));
+    }
+
+    /**
+     * Estimates the time it will take to publish a dataset with the given number of files.
+     *
+     * @param numberOfFiles the number of files in the dataset
+     * @return the estimated duration in milliseconds, or empty if no publications have been recorded yet
+     */
+    public synchronized OptionalLong estimate(int numberOfFiles) {
+        if (samples.isEmpty()) {
+            return OptionalLong.empty();
+        }
+        var target = Math.log(numberOfFiles + 1);
+        var closest = new ArrayList<>(samples);
+        closest.sort(Comparator.comparingDouble(sample -> Math.abs(Math.log(sample.numberOfFiles() + 1) - target)));
+        var millisPerFile = closest.subList(0, Math.min(NUMBER_OF_SAMPLES_FOR_ESTIMATE, closest.size())).stream()
+            .mapToDouble(Sample::millisPerFile)
+            .sorted()
+            .toArray();
+        var median = millisPerFile.length % 2 == 1
+            ? millisPerFile[millisPerFile.length / 2]
+            : (millisPerFile[millisPerFile.length / 2 - 1] + millisPerFile[millisPerFile.length / 2]) / 2;
+        return OptionalLong.of(Math.round(median * (numberOfFiles + 1)));
+    }
+}
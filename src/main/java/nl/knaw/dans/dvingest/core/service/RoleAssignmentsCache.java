@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.lib.dataverse.DataverseException;
+import nl.knaw.dans.lib.dataverse.model.RoleAssignmentReadOnly;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Caches the role assignments on dataverses and datasets for a short time, so that the expectation checks of consecutive deposits do not each list all role assignments on the same dataverse.
+ * The cache is only meant for such read-only checks; deleting role assignments must be based on a fresh listing. Each ingest area has its own cache, because the areas may use different API keys.
+ * </p>
+ * <p>
+ * The role assignments on a dataset are invalidated when the service changes them. A listing that is still being loaded when it is invalidated is not cached, so that it cannot replace a
+ * newer listing. Changes made by others are only seen after the maximum age, which should therefore be kept short. The
+ * least recently used entries are evicted when the maximum number of entries is reached.
+ * </p>
+ */
+@Slf4j
+public class RoleAssignmentsCache {
+    private final Map<Key, Entry> entries;
+    // Loads in progress; a load is only cached if its token was not removed by an invalidation in the meantime
+    private final Map<Key, Object> pendingLoads = new HashMap<>();
+    private final Duration maxAge;
+    private final Clock clock;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @FunctionalInterface
+    public interface Loader {
+        List<RoleAssignmentReadOnly> load() throws IOException, DataverseException;
+    }
+
+    private enum Type {
+        DATAVERSE,
+        DATASET
+    }
+
+    private record Key(Type type, String id) {
+    }
+
+    private record Entry(List<RoleAssignmentReadOnly> roleAssignments, Instant loadedAt) {
+    }
+
+    public RoleAssignmentsCache(int maxEntries, @NonNull Duration maxAge) {
+        this(maxEntries, maxAge, Clock.systemUTC());
+    }
+
+    RoleAssignmentsCache(int maxEntries, @NonNull Duration maxAge, @NonNull Clock clock) {
+        this.maxAge = maxAge;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the role assignments on the dataverse, loading them with the loader if they are not cached or the cached entry has expired.
+     *
+     * @param alias  the alias of the dataverse
+     * @param loader lists the role assignments in Dataverse
+     * @return the role assignments
+     * @throws IOException        if the loader fails
+     * @throws DataverseException if the loader fails
+     */
+    public List<RoleAssignmentReadOnly> getOnDataverse(@NonNull String alias, @NonNull Loader loader) throws IOException, DataverseException {
+        return get(new Key(Type.DATAVERSE, alias), loader);
+    }
+
+    /**
+     * Returns the role assignments on the dataset, loading them with the loader if they are not cached or the cached entry has expired.
+     *
+     * @param pid    the persistent identifier of the dataset
+     * @param loader lists the role assignments in Dataverse
+     * @return the role assignments
+     * @throws IOException        if the loader fails
+     * @throws DataverseException if the loader fails
+     */
+    public List<RoleAssignmentReadOnly> getOnDataset(@NonNull String pid, @NonNull Loader loader) throws IOException, DataverseException {
+        return get(new Key(Type.DATASET, pid), loader);
+    }
+
+    /**
+     * Removes the cached role assignments on the dataset, and prevents role assignments on the dataset that are still being loaded from being cached.
+     *
+     * @param pid the persistent identifier of the dataset
+     */
+    public void invalidateDataset(@NonNull String pid) {
+        invalidate(new Key(Type.DATASET, pid));
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private List<RoleAssignmentReadOnly> get(Key key, Loader loader) throws IOException, DataverseException {
+        synchronized (entries) {
+            var entry = entries.get(key);
+            if (entry != null && !entry.loadedAt().plus(maxAge).isBefore(clock.instant())) {
+                hits.incrementAndGet();
+                log.debug("Using cached role assignments on {} {} ({} role assignments)", key.type(), key.id(), entry.roleAssignments().size());
+                return entry.roleAssignments();
+            }
+            entries.remove(key);
+        }
+        misses.incrementAndGet();
+        var token = new Object();
+        synchronized (entries) {
+            pendingLoads.put(key, token);
+        }
+        List<RoleAssignmentReadOnly> roleAssignments;
+        try {
+            roleAssignments = Collections.unmodifiableList(new ArrayList<>(loader.load()));
+        }
+        catch (IOException | DataverseException | RuntimeException e) {
+            synchronized (entries) {
+                pendingLoads.remove(key, token);
+            }
+            throw e;
+        }
+        synchronized (entries) {
+            if (pendingLoads.remove(key, token)) {
+                entries.put(key, new Entry(roleAssignments, clock.instant()));
+            }
+            else {
+                log.debug("Role assignments on {} {} were invalidated while loading; not caching them", key.type(), key.id());
+            }
+        }
+        return roleAssignments;
+    }
+
+    private void invalidate(Key key) {
+        synchronized (entries) {
+            entries.remove(key);
+            pendingLoads.remove(key);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.zip.CRC32;
+
+/**
+ * Wraps a single file in a ZIP file with one uncompressed (STORED) entry. The local header, central directory and end of central directory records are written directly, and the file itself is
+ * transferred with {@link FileChannel#transferTo(long, long, WritableByteChannel)}, so that the payload is not copied through the JVM heap. The only extra pass over the file is the one that
+ * computes the CRC-32, which must be known before the local header is written. ZIP64 records are used for files that do not fit in the 32-bit size fields.
+ */
+public class StoredZipWrapper implements StreamingContent {
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int VERSION_DEFAULT = 20;
+    private static final int VERSION_ZIP64 = 45;
+    private static final int FLAG_UTF8_NAME = 0x0800;
+    private static final int METHOD_STORED = 0;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final Path file;
+    private final byte[] entryName;
+    private final long size;
+    private final long crc;
+    private final int dosTime;
+    private final int dosDate;
+    private final boolean zip64;
+
+    /**
+     * Reads the file once to compute its CRC-32.
+     *
+     * @param file      the file to wrap
+     * @param entryName the name of the entry in the ZIP file
+     * @throws IOException if the file cannot be read
+     */
+    public StoredZipWrapper(@NonNull Path file, @NonNull String entryName) throws IOException {
+        this.file = file;
+        this.entryName = entryName.getBytes(StandardCharsets.UTF_8);
+        this.size = Files.size(file);
+        this.crc = computeCrc(file);
+        var modified = LocalDateTime.ofInstant(Files.getLastModifiedTime(file).toInstant(), ZoneId.systemDefault());
+        var year = Math.max(modified.getYear(), 1980);
+        this.dosTime = (modified.getHour() << 11) | (modified.getMinute() << 5) | (modified.getSecond() >> 1);
+        this.dosDate = ((year - 1980) << 9) | (modified.getMonthValue() << 5) | modified.getDayOfMonth();
+        this.zip64 = localHeaderLength(true) + size >= ZIP64_MAGIC;
+    }
+
+    /**
+     * Writes the ZIP file to the target path. The target is created or truncated.
+     *
+     * @param target the path of the ZIP file
+     * @throws IOException if the file cannot be read or the target cannot be written
+     */
+    public void writeTo(Path target) throws IOException {
+        try (var out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeTo(out);
+        }
+    }
+
+    /**
+     * Writes the ZIP file to the output stream. The output stream is not closed.
+     *
+     * @param outputStream the stream to write to
+     * @throws IOException if the file cannot be read or the stream cannot be written
+     */
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        writeTo(Channels.newChannel(outputStream));
+        outputStream.flush();
+    }
+
+    private void writeTo(WritableByteChannel out) throws IOException {
+        writeFully(out, localHeader());
+        try (var in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = 0;
+            ByteBuffer buffer = null;
+            while (position < size) {
+                var transferred = in.transferTo(position, size - position, out);
+                if (transferred <= 0) {
+                    // transferTo may make no progress, e.g. on a non-blocking target; fall back to a buffered copy
+                    if (buffer == null) {
+                        buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                    }
+                    buffer.clear().limit((int) Math.min(buffer.capacity(), size - position));
+                    transferred = in.read(buffer, position);
+                    if (transferred <= 0) {
+                        throw new IOException("File was truncated while being wrapped: " + file);
+                    }
+                    writeFully(out, buffer.flip());
+                }
+                position += transferred;
+            }
+        }
+        writeFully(out, centralDirectoryAndEnd());
+    }
+
+    private ByteBuffer localHeader() {
+        var buffer = newBuffer(localHeaderLength(zip64));
+        buffer.putInt(LOCAL_FILE_HEADER_SIGNATURE);
+        buffer.putShort((short) (zip64 ? VERSION_ZIP64 : VERSION_DEFAULT));
+        putCommonFields(buffer);
+        buffer.putShort((short) entryName.length);
+        buffer.putShort((short) (zip64 ? 20 : 0));
+        buffer.put(entryName);
+        if (zip64) {
+            buffer.putShort((short) 0x0001);
+            buffer.putShort((short) 16);
+            buffer.putLong(size);
+            buffer.putLong(size);
+        }
+        return buffer.flip();
+    }
+
+    private ByteBuffer centralDirectoryAndEnd() {
+        var centralDirectoryOffset = localHeaderLength(zip64) + size;
+        var centralDirectoryLength = 46 + entryName.length + (zip64 ? 20 : 0);
+        var buffer = newBuffer(centralDirectoryLength + (zip64 ? 56 + 20 : 0) + 22);
+
+        buffer.putInt(CENTRAL_DIRECTORY_HEADER_SIGNATURE);
+        buffer.putShort((short) VERSION_ZIP64); // version made by
+        buffer.putShort((short) (zip64 ? VERSION_ZIP64 : VERSION_DEFAULT));
+        putCommonFields(buffer);
+        buffer.putShort((short) entryName.length);
+        buffer.putShort((short) (zip64 ? 20 : 0));
+        buffer.putShort((short) 0); // comment length
+        buffer.putShort((short) 0); // disk number start
+        buffer.putShort((short) 0); // internal attributes
+        buffer.putInt(0); // external attributes
+        buffer.putInt(0); // offset of local header
+        buffer.put(entryName);
+        if (zip64) {
+            buffer.putShort((short) 0x0001);
+            buffer.putShort((short) 16);
+            buffer.putLong(size);
+            buffer.putLong(size);
+
+            var zip64EndOffset = centralDirectoryOffset + centralDirectoryLength;
+            buffer.putInt(ZIP64_END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+            buffer.putLong(44); // size of the remainder of this record
+            buffer.putShort((short) VERSION_ZIP64);
+            buffer.putShort((short) VERSION_ZIP64);
+            buffer.putInt(0); // number of this disk
+            buffer.putInt(0); // disk with the central directory
+            buffer.putLong(1); // entries on this disk
+            buffer.putLong(1); // total entries
+            buffer.putLong(centralDirectoryLength);
+            buffer.putLong(centralDirectoryOffset);
+
+            buffer.putInt(ZIP64_END_OF_CENTRAL_DIRECTORY_LOCATOR_SIGNATURE);
+            buffer.putInt(0); // disk with the ZIP64 end of central directory
+            buffer.putLong(zip64EndOffset);
+            buffer.putInt(1); // total number of disks
+        }
+
+        buffer.putInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE);
+        buffer.putShort((short) 0); // number of this disk
+        buffer.putShort((short) 0); // disk with the central directory
+        buffer.putShort((short) 1); // entries on this disk
+        buffer.putShort((short) 1); // total entries
+        buffer.putInt(centralDirectoryLength);
+        buffer.putInt((int) (zip64 ? ZIP64_MAGIC : centralDirectoryOffset));
+        buffer.putShort((short) 0); // comment length
+        return buffer.flip();
+    }
+
+    // Flags, method, time, date, CRC and sizes are the same in the local header and the central directory header
+    private void putCommonFields(ByteBuffer buffer) {
+        buffer.putShort((short) FLAG_UTF8_NAME);
+        buffer.putShort((short) METHOD_STORED);
+        buffer.putShort((short) dosTime);
+        buffer.putShort((short) dosDate);
+        buffer.putInt((int) crc);
+        buffer.putInt((int) (zip64 ? ZIP64_MAGIC : size));
+        buffer.putInt((int) (zip64 ? ZIP64_MAGIC : size));
+    }
+
+    private int localHeaderLength(boolean withZip64Extra) {
+        return 30 + entryName.length + (withZip64Extra ? 20 : 0);
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static long computeCrc(Path file) throws IOException {
+        var crc = new CRC32();
+        var buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (var in = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (in.read(buffer) != -1) {
+                crc.update(buffer.flip());
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Content that is generated while it is being sent, e.g. a ZIP file that is built on the fly from files on disk.
+ */
+@FunctionalInterface
+public interface StreamingContent {
+
+    /**
+     * Writes the content to the given output stream. The stream must not be closed by the implementation.
+     *
+     * @param outputStream the stream to write to
+     * @throws IOException if the content could not be generated or written
+     */
+    void writeTo(OutputStream outputStream) throws IOException;
+}
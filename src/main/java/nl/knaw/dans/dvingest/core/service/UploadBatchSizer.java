@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+
+/**
+ * Tunes the number of files and bytes per upload batch, so that uploading a batch (including waiting for Dataverse to finish ingesting it) takes about the target duration. If a batch was faster
+ * than the target, the limit that cut off the batch is raised; if it was slower, both limits are lowered to what the batch would have needed to stay within the target. Each adjustment is at most
+ * a factor of two. The limits never exceed the hard limits passed to the constructor.
+ */
+@Slf4j
+public class UploadBatchSizer {
+    private static final double MAX_FACTOR = 2.0;
+    private static final double MIN_FACTOR = 0.5;
+    private static final long MIN_BYTES_PER_BATCH = 1024 * 1024;
+
+    private final int maxFilesPerBatch;
+    private final long maxBytesPerBatch;
+    private final Duration targetDuration;
+
+    private int filesPerBatch;
+    private long bytesPerBatch;
+
+    /**
+     * Creates a sizer that starts at the hard limits.
+     *
+     * @param maxFilesPerBatch the hard limit for the number of files per batch
+     * @param maxBytesPerBatch the hard limit for the number of bytes per batch
+     * @param targetDuration   the time that uploading one batch should take
+     */
+    public UploadBatchSizer(int maxFilesPerBatch, long maxBytesPerBatch, @NonNull Duration targetDuration) {
+        if (maxFilesPerBatch < 1 || maxBytesPerBatch < 1 || targetDuration.isZero() || targetDuration.isNegative()) {
+            throw new IllegalArgumentException("Hard limits and target duration must be positive");
+        }
+        this.maxFilesPerBatch = maxFilesPerBatch;
+        this.maxBytesPerBatch = maxBytesPerBatch;
+        this.targetDuration = targetDuration;
+        this.filesPerBatch = maxFilesPerBatch;
+        this.bytesPerBatch = maxBytesPerBatch;
+    }
+
+    public synchronized int getFilesPerBatch() {
+        return filesPerBatch;
+    }
+
+    public synchronized long getBytesPerBatch() {
+        return bytesPerBatch;
+    }
+
+    /**
+     * Adjusts the limits based on an uploaded batch.
+     *
+     * @param numberOfFiles the number of files in the batch
+     * @param numberOfBytes the size of the batch
+     * @param duration      the time it took to upload the batch and for Dataverse to ingest it, excluding the wait for the ingest of earlier batches
+     */
+    public synchronized void recordUpload(int numberOfFiles, long numberOfBytes, @NonNull Duration duration) {
+        if (numberOfFiles < 1) {
+            return;
+        }
+        var factor = Math.max(MIN_FACTOR, Math.min(MAX_FACTOR, (double) targetDuration.toMillis() / Math.max(1, duration.toMillis())));
+        if (factor < 1.0) {
+            filesPerBatch = (int) Math.max(1, Math.min(filesPerBatch, Math.round(numberOfFiles * factor)));
+            bytesPerBatch = Math.min(maxBytesPerBatch, Math.max(MIN_BYTES_PER_BATCH, Math.min(bytesPerBatch, Math.round(numberOfBytes * factor))));
+        }
+        else if (numberOfFiles >= filesPerBatch) {
+            filesPerBatch = (int) Math.min(maxFilesPerBatch, Math.round(filesPerBatch * factor));
+        }
+        else if (numberOfBytes >= bytesPerBatch / 2) {
+            // The next file did not fit, so the byte limit cut off the batch
+            bytesPerBatch = Math.min(maxBytesPerBatch, Math.round(bytesPerBatch * factor));
+        }
+        log.debug("Batch of {} files and {} bytes took {} ms; next batch limits: {} files, {} bytes", numberOfFiles, numberOfBytes, duration.toMillis(), filesPerBatch, bytesPerBatch);
+    }
+}
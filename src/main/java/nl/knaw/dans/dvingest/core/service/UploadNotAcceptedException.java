@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an upload failed in a way that guarantees that Dataverse did not add any of the files: the request body was not sent completely, or Dataverse rejected the request. Such an upload
+ * can safely be retried. Any other {@link IOException} from an upload leaves it unknown whether the files were added.
+ */
+public class UploadNotAcceptedException extends IOException {
+    public UploadNotAcceptedException(String message) {
+        super(message);
+    }
+
+    public UploadNotAcceptedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
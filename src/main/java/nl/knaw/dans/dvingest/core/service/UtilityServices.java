@@ -18,7 +18,10 @@ package nl.knaw.dans.dvingest.core.service;
 import nl.knaw.dans.lib.util.PathIteratorZipper.PathIteratorZipperBuilder;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -31,4 +34,57 @@ public interface UtilityServices {
     PathIteratorZipperBuilder createPathIteratorZipperBuilder(Map<String, String> renameMap);
 
     Optional<Path> wrapIfZipFile(Path path) throws IOException;
+
+    /**
+     * Returns the maximum number of upload batches that may exist at the same time. If greater than one, the next batches are zipped while the current one is being uploaded.
+     *
+     * @return the maximum number of upload batches in flight
+     */
+    int getMaxNumberOfUploadBatchesInFlight();
+
+    /**
+     * Returns the MIME type of the file. Detection results are cached, so calling this again for the same, unchanged file does not read it again.
+     *
+     * @param path the file
+     * @return the MIME type
+     * @throws IOException if the file cannot be read
+     */
+    String getMimeType(Path path) throws IOException;
+
+    /**
+     * Records how long it took to upload a batch, so that the size of the next batches can be adjusted.
+     *
+     * @param numberOfFiles the number of files in the batch
+     * @param numberOfBytes the size of the batch
+     * @param duration      the time it took to upload the batch and for Dataverse to process it
+     */
+    void recordUploadBatch(int numberOfFiles, long numberOfBytes, Duration duration);
+
+    /**
+     * Returns whether upload batches must be streamed to Dataverse, instead of being written to a temporary ZIP file first.
+     *
+     * @return true if upload batches must be streamed
+     */
+    boolean isStreamUploadBatches();
+
+    /**
+     * Divides the files into upload batches, packing each batch as full as the maximum number of files and bytes per upload allow (first fit, largest files first). A file that is larger than the
+     * maximum number of bytes gets a batch of its own. Within a batch, the files keep their original order.
+     *
+     * @param files the files to upload
+     * @return the batches
+     * @throws IOException if the size of a file cannot be determined
+     */
+    List<List<Path>> planUploadBatches(List<Path> files) throws IOException;
+
+    /**
+     * Writes a ZIP file containing the given files to the output stream. The entries are named by their path relative to rootDir, renamed according to renameMap. The output stream is not closed.
+     *
+     * @param rootDir      the directory that the entry names are relative to
+     * @param files        the files to include
+     * @param renameMap    maps local relative paths to the paths to use in the ZIP file
+     * @param outputStream the stream to write to
+     * @throws IOException if a file cannot be read or the stream cannot be written
+     */
+    void zipFiles(Path rootDir, List<Path> files, Map<String, String> renameMap, OutputStream outputStream) throws IOException;
 }
@@ -17,20 +17,25 @@ package nl.knaw.dans.dvingest.core.service;
 
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
-import net.lingala.zip4j.ZipFile;
-import net.lingala.zip4j.model.ZipParameters;
-import net.lingala.zip4j.model.enums.CompressionMethod;
 import nl.knaw.dans.lib.util.PathIteratorZipper;
 import nl.knaw.dans.lib.util.PathIteratorZipper.PathIteratorZipperBuilder;
 import org.apache.tika.Tika;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @Slf4j
 @Builder
@@ -43,7 +48,12 @@ public class UtilityServicesImpl implements UtilityServices {
     private final Path tempDir;
     private final int maxNumberOfFilesPerUpload;
     private final long maxUploadSize;
-    private final Tika tika = new Tika();
+    private final int maxNumberOfUploadBatchesInFlight;
+    private final boolean streamUploadBatches;
+    // If null, the batch limits are fixed at maxNumberOfFilesPerUpload and maxUploadSize
+    private final UploadBatchSizer uploadBatchSizer;
+    @Builder.Default
+    private final MimeTypeCache mimeTypeCache = new MimeTypeCache(new Tika(), 10000);
 
     @Override
     public Path createTempZipFile() throws IOException {
@@ -64,8 +74,8 @@ public class UtilityServicesImpl implements UtilityServices {
     public PathIteratorZipperBuilder createPathIteratorZipperBuilder(Map<String, String> renameMap) {
         return PathIteratorZipper.builder()
             .renameMap(renameMap)
-            .maxNumberOfFiles(maxNumberOfFilesPerUpload)
-            .maxNumberOfBytes(maxUploadSize);
+            .maxNumberOfFiles(getFilesPerBatch())
+            .maxNumberOfBytes(getBytesPerBatch());
     }
 
     @Override
@@ -80,9 +90,7 @@ public class UtilityServicesImpl implements UtilityServices {
 
             var tempFile = tempDir.resolve(randomName);
 
-            try (var zip = new ZipFile(tempFile.toFile())) {
-                zip.addFile(path.toFile(), zipWithoutCompressing());
-            }
+            new StoredZipWrapper(path, filename).writeTo(tempFile);
 
             return Optional.of(tempFile);
         }
@@ -91,10 +99,83 @@ public class UtilityServicesImpl implements UtilityServices {
         }
     }
 
-    private ZipParameters zipWithoutCompressing() {
-        var params = new ZipParameters();
-        params.setCompressionMethod(CompressionMethod.STORE);
-        return params;
+    @Override
+    public int getMaxNumberOfUploadBatchesInFlight() {
+        return maxNumberOfUploadBatchesInFlight;
+    }
+
+    @Override
+    public boolean isStreamUploadBatches() {
+        return streamUploadBatches;
+    }
+
+    @Override
+    public List<List<Path>> planUploadBatches(List<Path> files) throws IOException {
+        var maxFiles = getFilesPerBatch();
+        var maxBytes = getBytesPerBatch();
+        var indexes = new ArrayList<Integer>();
+        var sizes = new long[files.size()];
+        for (int i = 0; i < files.size(); i++) {
+            sizes[i] = Files.size(files.get(i));
+            indexes.add(i);
+        }
+        // Stable sort, so that files of equal size are planned in their original order
+        indexes.sort(Comparator.comparingLong((Integer i) -> sizes[i]).reversed());
+
+        var batches = new ArrayList<List<Integer>>();
+        var batchSizes = new ArrayList<Long>();
+        var firstBatchWithRoom = 0;
+        for (var index : indexes) {
+            var target = -1;
+            for (int b = firstBatchWithRoom; b < batches.size(); b++) {
+                if (batches.get(b).size() < maxFiles && batchSizes.get(b) + sizes[index] <= maxBytes) {
+                    target = b;
+                    break;
+                }
+            }
+            if (target == -1) {
+                batches.add(new ArrayList<>());
+                batchSizes.add(0L);
+                target = batches.size() - 1;
+            }
+            batches.get(target).add(index);
+            batchSizes.set(target, batchSizes.get(target) + sizes[index]);
+            while (firstBatchWithRoom < batches.size() && batches.get(firstBatchWithRoom).size() >= maxFiles) {
+                firstBatchWithRoom++;
+            }
+        }
+        return batches.stream()
+            .map(batch -> batch.stream().sorted().map(files::get).toList())
+            .toList();
+    }
+
+    @Override
+    public void zipFiles(Path rootDir, List<Path> files, Map<String, String> renameMap, OutputStream outputStream) throws IOException {
+        // Dataverse unzips the batch immediately, so compressing it would only cost CPU time
+        var zipOutputStream = new ZipOutputStream(outputStream);
+        zipOutputStream.setLevel(Deflater.NO_COMPRESSION);
+        for (var file : files) {
+            var relativePath = rootDir.relativize(file).toString();
+            zipOutputStream.putNextEntry(new ZipEntry(renameMap.getOrDefault(relativePath, relativePath)));
+            Files.copy(file, zipOutputStream);
+            zipOutputStream.closeEntry();
+        }
+        zipOutputStream.finish();
+    }
+
+    @Override
+    public void recordUploadBatch(int numberOfFiles, long numberOfBytes, Duration duration) {
+        if (uploadBatchSizer != null) {
+            uploadBatchSizer.recordUpload(numberOfFiles, numberOfBytes, duration);
+        }
+    }
+
+    private int getFilesPerBatch() {
+        return uploadBatchSizer == null ? maxNumberOfFilesPerUpload : uploadBatchSizer.getFilesPerBatch();
+    }
+
+    private long getBytesPerBatch() {
+        return uploadBatchSizer == null ? maxUploadSize : uploadBatchSizer.getBytesPerBatch();
     }
 
     private boolean needsToBeWrapped(Path path) throws IOException {
@@ -108,10 +189,9 @@ public class UtilityServicesImpl implements UtilityServices {
         return endsWithZip || needToBeZipWrapped.contains(getMimeType(path));
     }
 
-    private String getMimeType(Path path) throws IOException {
-        String result = tika.detect(path);
-        log.debug("MimeType of path {} is {}", path, result);
-        return result;
+    @Override
+    public String getMimeType(Path path) throws IOException {
+        return mimeTypeCache.getMimeType(path);
     }
 
 }
@@ -17,12 +17,15 @@ package nl.knaw.dans.dvingest.core.service;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import io.dropwizard.configuration.BaseConfigurationFactory;
 import io.dropwizard.configuration.ConfigurationException;
+import io.dropwizard.configuration.ConfigurationParsingException;
+import io.dropwizard.configuration.ConfigurationValidationException;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import nl.knaw.dans.dvingest.config.YamlServiceConfig;
@@ -49,11 +52,19 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 @Slf4j
 public class YamlServiceImpl implements YamlService {
 
-    private final ObjectMapper mapper = new ObjectMapper(createYamlFactory(new LoaderOptions()));
+    /*
+     * The instruction files that can get very large, e.g., edit-files.yml with a path for every file in the bag. They are deserialized directly from the YAML stream, instead of through
+     * BaseConfigurationFactory, which first builds a complete JSON tree of the document and applies property overrides to it.
+     */
+    private static final Set<Class<?>> LEAN_TARGETS = Set.of(EditFilesRoot.class, EditMetadataRoot.class);
+
+    private final ObjectMapper mapper;
+    private final Validator validator;
 
     public static class YamlConfigurationFactory<T> extends BaseConfigurationFactory<T> {
         public YamlConfigurationFactory(YAMLFactory yamlFactory, Class<T> klass, @Nullable Validator validator, ObjectMapper objectMapper, String propertyPrefix) {
@@ -86,6 +97,10 @@ public class YamlServiceImpl implements YamlService {
 
     public YamlServiceImpl(@Valid @NotNull YamlServiceConfig yamlServiceConfig) {
         try (var factory = Validation.buildDefaultValidatorFactory()) {
+            // YAMLFactory is thread-safe, so one instance is shared by the mapper and all configuration factories
+            var yamlFactory = createYamlFactory(yamlServiceConfig.getLoaderOptions());
+            mapper = new ObjectMapper(yamlFactory);
+            validator = factory.getValidator();
             SimpleModule module = new SimpleModule();
             module.addDeserializer(MetadataField.class, new MetadataFieldDeserializer());
             mapper.setSerializationInclusion(Include.NON_NULL);
@@ -94,19 +109,19 @@ public class YamlServiceImpl implements YamlService {
             mapper.registerModule(module);
             mapper.registerModule(new DataverseIngestModule());
             yamlConfigurationFactories.put(InitRoot.class,
-                new YamlConfigurationFactory<>(createYamlFactory(yamlServiceConfig.getLoaderOptions()), InitRoot.class, factory.getValidator(), mapper, "dw"));
-            yamlConfigurationFactories.put(Dataset.class, new YamlConfigurationFactory<>(createYamlFactory(yamlServiceConfig.getLoaderOptions()), Dataset.class, factory.getValidator(), mapper, "dw"));
+                new YamlConfigurationFactory<>(yamlFactory, InitRoot.class, validator, mapper, "dw"));
+            yamlConfigurationFactories.put(Dataset.class, new YamlConfigurationFactory<>(yamlFactory, Dataset.class, validator, mapper, "dw"));
             yamlConfigurationFactories.put(EditFilesRoot.class,
-                new YamlConfigurationFactory<>(createYamlFactory(yamlServiceConfig.getLoaderOptions()), EditFilesRoot.class, factory.getValidator(), mapper, "dw"));
+                new YamlConfigurationFactory<>(yamlFactory, EditFilesRoot.class, validator, mapper, "dw"));
             yamlConfigurationFactories.put(EditMetadataRoot.class,
-                new YamlConfigurationFactory<>(createYamlFactory(yamlServiceConfig.getLoaderOptions()), EditMetadataRoot.class, factory.getValidator(), mapper, "dw"));
+                new YamlConfigurationFactory<>(yamlFactory, EditMetadataRoot.class, validator, mapper, "dw"));
             yamlConfigurationFactories.put(EditPermissionsRoot.class,
-                new YamlConfigurationFactory<>(createYamlFactory(yamlServiceConfig.getLoaderOptions()), EditPermissionsRoot.class, factory.getValidator(), mapper, "dw"));
+                new YamlConfigurationFactory<>(yamlFactory, EditPermissionsRoot.class, validator, mapper, "dw"));
             yamlConfigurationFactories.put(UpdateStateRoot.class,
-                new YamlConfigurationFactory<>(createYamlFactory(yamlServiceConfig.getLoaderOptions()), UpdateStateRoot.class, factory.getValidator(), mapper, "dw"));
-            yamlConfigurationFactories.put(InitLog.class, new YamlConfigurationFactory<>(createYamlFactory(yamlServiceConfig.getLoaderOptions()), InitLog.class, factory.getValidator(), mapper, "dw"));
+                new YamlConfigurationFactory<>(yamlFactory, UpdateStateRoot.class, validator, mapper, "dw"));
+            yamlConfigurationFactories.put(InitLog.class, new YamlConfigurationFactory<>(yamlFactory, InitLog.class, validator, mapper, "dw"));
             yamlConfigurationFactories.put(TaskLogRoot.class,
-                new YamlConfigurationFactory<>(createYamlFactory(yamlServiceConfig.getLoaderOptions()), TaskLogRoot.class, factory.getValidator(), mapper, "dw"));
+                new YamlConfigurationFactory<>(yamlFactory, TaskLogRoot.class, validator, mapper, "dw"));
         }
         catch (Throwable e) {
             // This ctor is called from a static context, so we log the error to make sure it is not lost
@@ -125,9 +140,37 @@ public class YamlServiceImpl implements YamlService {
             log.error("readYaml" + s);
             throw new IllegalArgumentException(s);
         }
+        if (LEAN_TARGETS.contains(target)) {
+            return readYamlLean(yamlFile, target);
+        }
         return factory.build(yamlFile.toFile());
     }
 
+    /*
+     * Reads the YAML file in a single pass over the stream and validates the result once. Errors are reported with the same exception types as BaseConfigurationFactory.build.
+     */
+    private <T> T readYamlLean(Path yamlFile, Class<T> target) throws IOException, ConfigurationException {
+        T result;
+        try {
+            result = mapper.readValue(yamlFile.toFile(), target);
+        }
+        catch (JsonProcessingException e) {
+            throw ConfigurationParsingException.builder("Failed to parse configuration")
+                .setDetail(e.getOriginalMessage())
+                .setLocation(e.getLocation())
+                .setCause(e)
+                .build(yamlFile.toString());
+        }
+        if (result == null) {
+            throw ConfigurationParsingException.builder("Configuration at " + yamlFile + " must not be empty").build(yamlFile.toString());
+        }
+        var violations = validator.validate(result);
+        if (!violations.isEmpty()) {
+            throw new ConfigurationValidationException(yamlFile.toString(), violations);
+        }
+        return result;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public <T> T readYamlFromString(String yamlString, Class<T> target) throws IOException, ConfigurationException {
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.lib.dataverse.model.dataset.FileList;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Uploads a ZIP file to a dataset with the Dataverse add-file API, generating the ZIP file while the request body is being sent. No temporary file is written, but as a consequence the request
+ * body cannot be replayed. If the upload fails with an {@link UploadNotAcceptedException}, the files were not added and callers may retry with a regular upload. Any other failure happened after
+ * the complete body was sent, so Dataverse may still have added the files.
+ */
+@Slf4j
+public class ZipStreamUploader {
+    private static final int PIPE_BUFFER_SIZE = 1024 * 1024;
+
+    private final URI baseUrl;
+    private final String apiKey;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    public ZipStreamUploader(@NonNull URI baseUrl, @NonNull String apiKey, @NonNull Duration connectionTimeout) {
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(connectionTimeout)
+            .build();
+    }
+
+    /**
+     * Uploads the ZIP file generated by zipContent to the dataset.
+     *
+     * @param persistentId the persistent identifier of the dataset
+     * @param zipContent   writes the ZIP file
+     * @param restrict     whether the files in the ZIP file must be restricted
+     * @return the files that were added to the dataset
+     * @throws UploadNotAcceptedException if generating the ZIP file fails, the request fails before the complete body was sent, or Dataverse rejects the request with a client error
+     * @throws IOException                 if the request fails after the complete body was sent, Dataverse returns another error, or the response cannot be read
+     */
+    public FileList upload(@NonNull String persistentId, @NonNull StreamingContent zipContent, boolean restrict) throws IOException {
+        var boundary = "dvingest-" + UUID.randomUUID();
+        var zipInput = new PipedInputStream(PIPE_BUFFER_SIZE);
+        var zipOutput = new PipedOutputStream(zipInput);
+        var writerFailure = new AtomicReference<Exception>();
+        var bodySent = new AtomicBoolean(false);
+        var writer = new Thread(() -> {
+            try {
+                zipContent.writeTo(zipOutput);
+                zipOutput.close();
+            }
+            catch (Exception e) {
+                // The pipe is deliberately left open, so that the reading side fails instead of sending a truncated ZIP file
+                writerFailure.set(e);
+            }
+        }, "zip-stream-writer");
+
+        var request = HttpRequest.newBuilder(getAddFileUri(persistentId))
+            .header("X-Dataverse-key", apiKey)
+            .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+            .POST(HttpRequest.BodyPublishers.ofInputStream(new OneShotBody(new EndDetectingInputStream(createBody(boundary, zipInput, restrict), bodySent))))
+            .build();
+
+        writer.start();
+        HttpResponse<String> response;
+        try {
+            DataverseRequestCounter.countRequest();
+            response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while streaming ZIP file to dataset " + persistentId, e);
+        }
+        catch (IOException e) {
+            if (writerFailure.get() == null && bodySent.get()) {
+                throw e;
+            }
+            throw new UploadNotAcceptedException("Streaming upload to dataset " + persistentId + " failed before the complete ZIP file was sent", e);
+        }
+        finally {
+            // Unblocks the writer if the request ended before the whole ZIP file was read
+            zipInput.close();
+            joinQuietly(writer);
+        }
+        if (writerFailure.get() != null) {
+            throw new UploadNotAcceptedException("Failed to generate ZIP file for dataset " + persistentId, writerFailure.get());
+        }
+        if (response.statusCode() >= 400 && response.statusCode() < 500) {
+            throw new UploadNotAcceptedException(String.format("Streaming upload to dataset %s was rejected with status %d: %s", persistentId, response.statusCode(), response.body()));
+        }
+        if (response.statusCode() != 200) {
+            // E.g., a gateway timeout, while Dataverse may still be adding the files
+            throw new IOException(String.format("Streaming upload to dataset %s failed with status %d: %s", persistentId, response.statusCode(), response.body()));
+        }
+        log.debug(response.body());
+        var data = objectMapper.readTree(response.body()).get("data");
+        return objectMapper.treeToValue(data, FileList.class);
+    }
+
+    private URI getAddFileUri(String persistentId) {
+        var base = baseUrl.toString().replaceAll("/+$", "");
+        return URI.create(base + "/api/datasets/:persistentId/add?persistentId=" + URLEncoder.encode(persistentId, StandardCharsets.UTF_8));
+    }
+
+    private InputStream createBody(String boundary, InputStream zipInput, boolean restrict) {
+        var head = "--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"batch.zip\"\r\n"
+            + "Content-Type: application/zip\r\n"
+            + "\r\n";
+        var tail = "\r\n"
+            + "--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"jsonData\"\r\n"
+            + "\r\n"
+            + String.format("{\"restrict\": %s}", restrict) + "\r\n"
+            + "--" + boundary + "--\r\n";
+        return new SequenceInputStream(Collections.enumeration(List.of(
+            new ByteArrayInputStream(head.getBytes(StandardCharsets.UTF_8)),
+            zipInput,
+            new ByteArrayInputStream(tail.getBytes(StandardCharsets.UTF_8)))));
+    }
+
+    private void joinQuietly(Thread thread) {
+        try {
+            thread.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records when the end of the wrapped stream has been reached, i.e., when the HTTP client has read the complete request body.
+     */
+    private static class EndDetectingInputStream extends FilterInputStream {
+        private final AtomicBoolean endReached;
+
+        private EndDetectingInputStream(InputStream in, AtomicBoolean endReached) {
+            super(in);
+            this.endReached = endReached;
+        }
+
+        @Override
+        public int read() throws IOException {
+            var b = super.read();
+            if (b == -1) {
+                endReached.set(true);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            var n = super.read(b, off, len);
+            if (n == -1) {
+                endReached.set(true);
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Supplies the request body once. If the HTTP client asks for the body a second time, e.g. to follow a redirect, the returned stream fails, because the ZIP file has already been consumed.
+     */
+    private static class OneShotBody implements Supplier<InputStream> {
+        private final InputStream body;
+        private final AtomicBoolean supplied = new AtomicBoolean(false);
+
+        private OneShotBody(InputStream body) {
+            this.body = body;
+        }
+
+        @Override
+        public InputStream get() {
+            if (supplied.compareAndSet(false, true)) {
+                return body;
+            }
+            return new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    throw new IOException("Streaming request body cannot be replayed");
+                }
+            };
+        }
+    }
+}
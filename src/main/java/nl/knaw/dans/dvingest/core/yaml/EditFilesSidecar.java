@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.yaml;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * <p>
+ * A compact binary copy of edit-files.yml, written next to it when a DANS deposit is converted, so that the instructions for a bag with many files can be read back without parsing YAML. The YAML
+ * file remains the source of truth: the sidecar records the size and modification time of the YAML file it was written from and is only used as long as these have not changed.
+ * </p>
+ * <p>
+ * Layout, with all numbers as big-endian ints or longs:
+ * </p>
+ * <ul>
+ *     <li>magic number, version, size and modification time (in milliseconds) of the YAML file;</li>
+ *     <li>a table of all distinct strings, each as a length followed by the UTF-8 bytes; everything after the table refers to strings by their index in it, or -1 for null;</li>
+ *     <li>the path lists of the tasks, each as a length followed by the string indexes, from deleteFiles to addRestrictedIndividually in the order of {@link EditFiles};</li>
+ *     <li>moveFiles and autoRenameFiles, each as a length followed by from-to pairs of string indexes;</li>
+ *     <li>addEmbargoes, as a length followed by, per embargo, the date, the reason and a path list;</li>
+ *     <li>updateFileMetas, as a length followed by the UTF-8 bytes of a JSON array.</li>
+ * </ul>
+ */
+@Slf4j
+public class EditFilesSidecar {
+    public static final String EDIT_FILES_BIN = "edit-files.bin";
+
+    private static final int MAGIC = 0x44564546; // "DVEF"
+    private static final int VERSION = 1;
+
+    // Order in which the path lists are written; readIfFresh reads them back in the same order
+    private static final List<Function<EditFiles, List<String>>> PATH_LISTS = List.of(
+        EditFiles::getDeleteFiles,
+        EditFiles::getReplaceFiles,
+        EditFiles::getAddUnrestrictedFiles,
+        EditFiles::getAddUnrestrictedFilesSeparately,
+        EditFiles::getAddRestrictedFiles,
+        EditFiles::getAddRestrictedFilesSeparately,
+        EditFiles::getAddUnrestrictedIndividually,
+        EditFiles::getAddRestrictedIndividually);
+
+    private static final ObjectMapper fileMetaMapper = new ObjectMapper()
+        .setSerializationInclusion(Include.NON_NULL)
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    /**
+     * Writes the sidecar for the given YAML file, which must already have been written from the same edit files.
+     *
+     * @param editFiles the edit files
+     * @param sidecar   the sidecar file to write
+     * @param yamlFile  the edit-files.yml file
+     * @throws IOException if the sidecar could not be written
+     */
+    public static void write(EditFiles editFiles, Path sidecar, Path yamlFile) throws IOException {
+        var strings = new LinkedHashMap<String, Integer>();
+        collectStrings(editFiles, strings);
+        var tempFile = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(Files.size(yamlFile));
+            out.writeLong(Files.getLastModifiedTime(yamlFile).toMillis());
+            out.writeInt(strings.size());
+            for (var string : strings.keySet()) {
+                writeBytes(out, string.getBytes(StandardCharsets.UTF_8));
+            }
+            for (var pathList : PATH_LISTS) {
+                writeStringList(out, pathList.apply(editFiles), strings);
+            }
+            writeFromTos(out, editFiles.getMoveFiles(), strings);
+            writeFromTos(out, editFiles.getAutoRenameFiles(), strings);
+            out.writeInt(editFiles.getAddEmbargoes().size());
+            for (var embargo : editFiles.getAddEmbargoes()) {
+                out.writeInt(indexOf(embargo.getDateAvailable(), strings));
+                out.writeInt(indexOf(embargo.getReason(), strings));
+                writeStringList(out, embargo.getFilePaths(), strings);
+            }
+            writeBytes(out, fileMetaMapper.writeValueAsBytes(editFiles.getUpdateFileMetas()));
+        }
+        // Never leave a partially written sidecar in place
+        Files.move(tempFile, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads the sidecar, if it is present and was written from the YAML file as it is now. A sidecar that cannot be read is ignored, so that the caller falls back to the YAML file.
+     *
+     * @param sidecar  the sidecar file
+     * @param yamlFile the edit-files.yml file
+     * @return the edit files, or empty if the sidecar is absent, stale or unreadable
+     */
+    public static Optional<EditFiles> readIfFresh(Path sidecar, Path yamlFile) {
+        if (!Files.exists(sidecar) || !Files.exists(yamlFile)) {
+            return Optional.empty();
+        }
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.warn("Ignoring {}: not a sidecar of a supported version", sidecar);
+                return Optional.empty();
+            }
+            if (in.readLong() != Files.size(yamlFile) || in.readLong() != Files.getLastModifiedTime(yamlFile).toMillis()) {
+                log.info("Ignoring {}: {} has changed since the sidecar was written", sidecar, yamlFile);
+                return Optional.empty();
+            }
+            var strings = new String[in.readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = new String(readBytes(in), StandardCharsets.UTF_8);
+            }
+            var editFiles = new EditFiles();
+            editFiles.setDeleteFiles(readStringList(in, strings));
+            editFiles.setReplaceFiles(readStringList(in, strings));
+            editFiles.setAddUnrestrictedFiles(readStringList(in, strings));
+            editFiles.setAddUnrestrictedFilesSeparately(readStringList(in, strings));
+            editFiles.setAddRestrictedFiles(readStringList(in, strings));
+            editFiles.setAddRestrictedFilesSeparately(readStringList(in, strings));
+            editFiles.setAddUnrestrictedIndividually(readStringList(in, strings));
+            editFiles.setAddRestrictedIndividually(readStringList(in, strings));
+            editFiles.setMoveFiles(readFromTos(in, strings));
+            editFiles.setAutoRenameFiles(readFromTos(in, strings));
+            var numberOfEmbargoes = in.readInt();
+            var embargoes = new ArrayList<AddEmbargo>(numberOfEmbargoes);
+            for (int i = 0; i < numberOfEmbargoes; i++) {
+                var embargo = new AddEmbargo();
+                embargo.setDateAvailable(stringAt(in.readInt(), strings));
+                embargo.setReason(stringAt(in.readInt(), strings));
+                embargo.setFilePaths(readStringList(in, strings));
+                embargoes.add(embargo);
+            }
+            editFiles.setAddEmbargoes(embargoes);
+            editFiles.setUpdateFileMetas(fileMetaMapper.readValue(readBytes(in), new TypeReference<List<FileMeta>>() {
+            }));
+            return Optional.of(editFiles);
+        }
+        catch (IOException | RuntimeException e) {
+            log.warn("Ignoring {}: could not be read", sidecar, e);
+            return Optional.empty();
+        }
+    }
+
+    private static void collectStrings(EditFiles editFiles, Map<String, Integer> strings) {
+        for (var pathList : PATH_LISTS) {
+            pathList.apply(editFiles).forEach(s -> intern(s, strings));
+        }
+        for (var fromTo : editFiles.getMoveFiles()) {
+            intern(fromTo.getFrom(), strings);
+            intern(fromTo.getTo(), strings);
+        }
+        for (var fromTo : editFiles.getAutoRenameFiles()) {
+            intern(fromTo.getFrom(), strings);
+            intern(fromTo.getTo(), strings);
+        }
+        for (var embargo : editFiles.getAddEmbargoes()) {
+            intern(embargo.getDateAvailable(), strings);
+            intern(embargo.getReason(), strings);
+            embargo.getFilePaths().forEach(s -> intern(s, strings));
+        }
+    }
+
+    private static void intern(String string, Map<String, Integer> strings) {
+        if (string != null) {
+            strings.putIfAbsent(string, strings.size());
+        }
+    }
+
+    private static int indexOf(String string, Map<String, Integer> strings) {
+        return string == null ? -1 : strings.get(string);
+    }
+
+    private static String stringAt(int index, String[] strings) {
+        return index == -1 ? null : strings[index];
+    }
+
+    private static void writeStringList(DataOutputStream out, List<String> list, Map<String, Integer> strings) throws IOException {
+        out.writeInt(list.size());
+        for (var string : list) {
+            out.writeInt(indexOf(string, strings));
+        }
+    }
+
+    private static List<String> readStringList(DataInputStream in, String[] strings) throws IOException {
+        var size = in.readInt();
+        var list = new ArrayList<String>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(stringAt(in.readInt(), strings));
+        }
+        return list;
+    }
+
+    private static void writeFromTos(DataOutputStream out, List<FromTo> fromTos, Map<String, Integer> strings) throws IOException {
+        out.writeInt(fromTos.size());
+        for (var fromTo : fromTos) {
+            out.writeInt(indexOf(fromTo.getFrom(), strings));
+            out.writeInt(indexOf(fromTo.getTo(), strings));
+        }
+    }
+
+    private static List<FromTo> readFromTos(DataInputStream in, String[] strings) throws IOException {
+        var size = in.readInt();
+        var list = new ArrayList<FromTo>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(new FromTo(stringAt(in.readInt(), strings), stringAt(in.readInt(), strings)));
+        }
+        return list;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        var bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -15,9 +15,51 @@
  */
 package nl.knaw.dans.dvingest.core.yaml.tasklog;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 @Data
-public class CompletableItem {
+public class CompletableItem implements JournaledItem {
     private boolean completed = false;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient TaskLogJournal journal;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient String path;
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+        journal("completed", completed);
+    }
+
+    @Override
+    public void attach(TaskLogJournal journal, String path) {
+        this.journal = journal;
+        this.path = path;
+    }
+
+    @Override
+    public void applyJournalEntry(String field, JsonNode value) {
+        if ("completed".equals(field)) {
+            completed = value.asBoolean();
+        }
+    }
+
+    protected void journal(String field, Object value) {
+        if (journal != null) {
+            journal.record(path, field, value);
+        }
+    }
 }
@@ -15,10 +15,29 @@
  */
 package nl.knaw.dans.dvingest.core.yaml.tasklog;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 
 @Data
-public class CompletableItemWithCount {
-    private boolean completed = false;
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class CompletableItemWithCount extends CompletableItem {
     private int numberCompleted = 0;
+
+    public void setNumberCompleted(int numberCompleted) {
+        this.numberCompleted = numberCompleted;
+        journal("numberCompleted", numberCompleted);
+    }
+
+    @Override
+    public void applyJournalEntry(String field, JsonNode value) {
+        if ("numberCompleted".equals(field)) {
+            numberCompleted = value.asInt();
+        }
+        else {
+            super.applyJournalEntry(field, value);
+        }
+    }
 }
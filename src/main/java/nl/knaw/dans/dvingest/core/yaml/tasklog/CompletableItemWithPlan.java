@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.yaml.tasklog;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+@ToString(callSuper = true)
+public class CompletableItemWithPlan extends CompletableItemWithCount {
+    // The batches in which the files are uploaded, as paths relative to the data directory; null before planning and after completion
+    private List<List<String>> plan;
+
+    public void setPlan(List<List<String>> plan) {
+        this.plan = plan;
+        journal("plan", plan);
+    }
+
+    @Override
+    public void applyJournalEntry(String field, JsonNode value) {
+        if ("plan".equals(field)) {
+            plan = toPlan(value);
+        }
+        else {
+            super.applyJournalEntry(field, value);
+        }
+    }
+
+    private static List<List<String>> toPlan(JsonNode value) {
+        if (value.isNull()) {
+            return null;
+        }
+        var result = new ArrayList<List<String>>();
+        for (var batchNode : value) {
+            var batch = new ArrayList<String>();
+            for (var pathNode : batchNode) {
+                batch.add(pathNode.asText());
+            }
+            result.add(batch);
+        }
+        return result;
+    }
+}
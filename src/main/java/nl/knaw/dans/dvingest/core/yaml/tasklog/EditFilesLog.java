@@ -17,14 +17,16 @@ package nl.knaw.dans.dvingest.core.yaml.tasklog;
 
 import lombok.Data;
 
+import java.util.Map;
+
 @Data
 public class EditFilesLog {
     private CompletableItem deleteFiles = new CompletableItem();
     private CompletableItemWithCount replaceFiles = new CompletableItemWithCount();
-    private CompletableItemWithCount addUnrestrictedFiles = new CompletableItemWithCount();
-    private CompletableItemWithCount addUnrestrictedFilesSeparately = new CompletableItemWithCount();
-    private CompletableItemWithCount addRestrictedFiles = new CompletableItemWithCount();
-    private CompletableItemWithCount addRestrictedFilesSeparately = new CompletableItemWithCount();
+    private CompletableItemWithPlan addUnrestrictedFiles = new CompletableItemWithPlan();
+    private CompletableItemWithPlan addUnrestrictedFilesSeparately = new CompletableItemWithPlan();
+    private CompletableItemWithPlan addRestrictedFiles = new CompletableItemWithPlan();
+    private CompletableItemWithPlan addRestrictedFilesSeparately = new CompletableItemWithPlan();
     private CompletableItemWithCount addUnrestrictedIndividually = new CompletableItemWithCount();
     private CompletableItemWithCount addRestrictedIndividually = new CompletableItemWithCount();
     private CompletableItem moveFiles = new CompletableItem();
@@ -42,4 +44,18 @@ public class EditFilesLog {
         addUnrestrictedIndividually.setCompleted(true);
         addRestrictedIndividually.setCompleted(true);
     }
+
+    void collectJournaledItems(String prefix, Map<String, JournaledItem> items) {
+        items.put(prefix + ".deleteFiles", deleteFiles);
+        items.put(prefix + ".replaceFiles", replaceFiles);
+        items.put(prefix + ".addUnrestrictedFiles", addUnrestrictedFiles);
+        items.put(prefix + ".addUnrestrictedFilesSeparately", addUnrestrictedFilesSeparately);
+        items.put(prefix + ".addRestrictedFiles", addRestrictedFiles);
+        items.put(prefix + ".addRestrictedFilesSeparately", addRestrictedFilesSeparately);
+        items.put(prefix + ".addUnrestrictedIndividually", addUnrestrictedIndividually);
+        items.put(prefix + ".addRestrictedIndividually", addRestrictedIndividually);
+        items.put(prefix + ".moveFiles", moveFiles);
+        items.put(prefix + ".updateFileMetas", updateFileMetas);
+        items.put(prefix + ".addEmbargoes", addEmbargoes);
+    }
 }
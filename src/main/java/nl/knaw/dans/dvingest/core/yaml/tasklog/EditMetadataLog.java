@@ -17,15 +17,24 @@ package nl.knaw.dans.dvingest.core.yaml.tasklog;
 
 import lombok.Data;
 
+import java.util.Map;
+
 @Data
 public class EditMetadataLog {
-    private CompletableItem addFieldValues = new CompletableItem();
-    private CompletableItem replaceFieldValues = new CompletableItem();
-    private CompletableItem deleteFieldValues = new CompletableItem();
+    // numberCompleted counts the field values sent, so that an operation can be resumed if it is split over several requests
+    private CompletableItemWithCount addFieldValues = new CompletableItemWithCount();
+    private CompletableItemWithCount replaceFieldValues = new CompletableItemWithCount();
+    private CompletableItemWithCount deleteFieldValues = new CompletableItemWithCount();
 
     public void completeAll() {
         addFieldValues.setCompleted(true);
         replaceFieldValues.setCompleted(true);
         deleteFieldValues.setCompleted(true);
     }
+
+    void collectJournaledItems(String prefix, Map<String, JournaledItem> items) {
+        items.put(prefix + ".addFieldValues", addFieldValues);
+        items.put(prefix + ".replaceFieldValues", replaceFieldValues);
+        items.put(prefix + ".deleteFieldValues", deleteFieldValues);
+    }
 }
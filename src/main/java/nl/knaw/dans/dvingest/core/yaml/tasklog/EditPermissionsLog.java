@@ -17,8 +17,15 @@ package nl.knaw.dans.dvingest.core.yaml.tasklog;
 
 import lombok.Data;
 
+import java.util.Map;
+
 @Data
 public class EditPermissionsLog {
     private CompletableItemWithCount deleteRoleAssignments = new CompletableItemWithCount();
     private CompletableItemWithCount addRoleAssignments = new CompletableItemWithCount();
+
+    void collectJournaledItems(String prefix, Map<String, JournaledItem> items) {
+        items.put(prefix + ".deleteRoleAssignments", deleteRoleAssignments);
+        items.put(prefix + ".addRoleAssignments", addRoleAssignments);
+    }
 }
@@ -17,6 +17,8 @@ package nl.knaw.dans.dvingest.core.yaml.tasklog;
 
 import lombok.Data;
 
+import java.util.Map;
+
 @Data
 public class ExpectLog {
     private CompletableItem state = new CompletableItem();
@@ -28,4 +30,10 @@ public class ExpectLog {
         dataverseRoleAssignment.setCompleted(true);
         datasetRoleAssignment.setCompleted(true);
     }
+
+    void collectJournaledItems(String prefix, Map<String, JournaledItem> items) {
+        items.put(prefix + ".state", state);
+        items.put(prefix + ".dataverseRoleAssignment", dataverseRoleAssignment);
+        items.put(prefix + ".datasetRoleAssignment", datasetRoleAssignment);
+    }
 }
@@ -15,16 +15,62 @@
  */
 package nl.knaw.dans.dvingest.core.yaml.tasklog;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.Map;
 
 @Data
-public class InitLog {
+public class InitLog implements JournaledItem {
     private String targetPid;
     private ExpectLog expect = new ExpectLog();
     private CompletableItem create = new CompletableItem();
 
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient TaskLogJournal journal;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient String path;
+
     public void completeAll() {
         expect.completeAll();
         create.setCompleted(true);
     }
+
+    public void setTargetPid(String targetPid) {
+        this.targetPid = targetPid;
+        if (journal != null) {
+            journal.record(path, "targetPid", targetPid);
+        }
+    }
+
+    @Override
+    public void attach(TaskLogJournal journal, String path) {
+        this.journal = journal;
+        this.path = path;
+    }
+
+    @Override
+    public void applyJournalEntry(String field, JsonNode value) {
+        if ("targetPid".equals(field)) {
+            targetPid = value.isNull() ? null : value.asText();
+        }
+    }
+
+    void collectJournaledItems(String prefix, Map<String, JournaledItem> items) {
+        items.put(prefix, this);
+        expect.collectJournaledItems(prefix + ".expect", items);
+        items.put(prefix + ".create", create);
+    }
 }
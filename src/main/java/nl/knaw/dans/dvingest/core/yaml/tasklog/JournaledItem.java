@@ -0,0 +1,40 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.yaml.tasklog;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * An item in the task log whose changes are recorded in the {@link TaskLogJournal}.
+ */
+public interface JournaledItem {
+
+    /**
+     * Connects the item to the journal, so that subsequent changes are recorded under the given path.
+     *
+     * @param journal the journal, or null to disconnect the item
+     * @param path    the path of the item in the task log
+     */
+    void attach(TaskLogJournal journal, String path);
+
+    /**
+     * Applies a change read from the journal, without recording it again.
+     *
+     * @param field the name of the field that was changed
+     * @param value the new value of the field
+     */
+    void applyJournalEntry(String field, JsonNode value);
+}
@@ -17,6 +17,9 @@ package nl.knaw.dans.dvingest.core.yaml.tasklog;
 
 import lombok.Data;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @Data
 public class TaskLog {
     private InitLog init = new InitLog();
@@ -25,4 +28,20 @@ public class TaskLog {
     private EditFilesLog editFiles = new EditFilesLog();
     private EditMetadataLog editMetadata = new EditMetadataLog();
     private CompletableItem updateState = new CompletableItem();
+
+    /**
+     * Returns the items of the task log that record their changes in the journal, by their path in the task log.
+     *
+     * @return the items by path
+     */
+    Map<String, JournaledItem> collectJournaledItems() {
+        var items = new LinkedHashMap<String, JournaledItem>();
+        init.collectJournaledItems("init", items);
+        items.put("dataset", dataset);
+        editPermissions.collectJournaledItems("editPermissions", items);
+        editFiles.collectJournaledItems("editFiles", items);
+        editMetadata.collectJournaledItems("editMetadata", items);
+        items.put("updateState", updateState);
+        return items;
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.yaml.tasklog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * <p>
+ * An append-only journal of the changes to a {@link TaskLog}, so that the progress of a bag survives a crash without rewriting the complete task log after every step. Each change is written as one
+ * line with the path of the item in the task log, the name of the field and the new value as JSON, separated by tabs. Lines are written to the file as soon as they are recorded, so they survive a
+ * crash of the JVM; they are synced to disk in batches, so that a crash of the machine loses at most the last few changes.
+ * </p>
+ * <p>
+ * When the task log is read, the journal is replayed on top of it. When processing of the bag ends, the task log is saved and the journal is deleted. Replaying a journal twice gives the same
+ * result, as every line sets an absolute value, so a crash between saving the task log and deleting the journal is harmless.
+ * </p>
+ */
+@Slf4j
+public class TaskLogJournal implements Closeable {
+    public static final String TASK_LOG_JOURNAL = "_tasks.journal";
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int SYNC_EVERY_NUMBER_OF_RECORDS = 100;
+    private static final long SYNC_INTERVAL_MILLIS = 1000;
+
+    private final Path file;
+    private final Map<String, JournaledItem> items;
+    private final FileChannel channel;
+    private int numberOfUnsyncedRecords = 0;
+    private long lastSync = System.currentTimeMillis();
+
+    private TaskLogJournal(Path file, Map<String, JournaledItem> items) throws IOException {
+        this.file = file;
+        this.items = items;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Opens the journal for appending and attaches it to the items of the task log, so that their changes are recorded.
+     *
+     * @param file    the journal file
+     * @param taskLog the task log
+     * @return the journal
+     * @throws IOException if the journal could not be opened
+     */
+    public static TaskLogJournal open(Path file, TaskLog taskLog) throws IOException {
+        var items = taskLog.collectJournaledItems();
+        var journal = new TaskLogJournal(file, items);
+        items.forEach((path, item) -> item.attach(journal, path));
+        return journal;
+    }
+
+    /**
+     * Applies the changes recorded in the journal to the task log. Lines that cannot be parsed, such as a line that was only partially written before a crash, are skipped.
+     *
+     * @param file    the journal file
+     * @param taskLog the task log
+     * @return the number of changes applied
+     * @throws IOException if the journal could not be read
+     */
+    public static int replay(Path file, TaskLog taskLog) throws IOException {
+        var items = taskLog.collectJournaledItems();
+        int numberApplied = 0;
+        var content = Files.readString(file, StandardCharsets.UTF_8);
+        var end = content.lastIndexOf('\n');
+        if (end < content.length() - 1) {
+            // A line without a line terminator was cut off by a crash, even if it happens to parse
+            log.warn("Skipping incomplete last line in task log journal {}: {}", file, content.substring(end + 1));
+        }
+        if (end < 0) {
+            return 0;
+        }
+        for (var line : content.substring(0, end).split("\n")) {
+            var fields = line.split("\t", 3);
+            var item = fields.length == 3 ? items.get(fields[0]) : null;
+            if (item == null) {
+                log.warn("Skipping invalid line in task log journal {}: {}", file, line);
+                continue;
+            }
+            try {
+                item.applyJournalEntry(fields[1], objectMapper.readTree(fields[2]));
+                numberApplied++;
+            }
+            catch (JsonProcessingException e) {
+                log.warn("Skipping invalid line in task log journal {}: {}", file, line);
+            }
+        }
+        return numberApplied;
+    }
+
+    /**
+     * Records a change to an item of the task log.
+     *
+     * @param path  the path of the item in the task log
+     * @param field the name of the field that was changed
+     * @param value the new value
+     */
+    public synchronized void record(String path, String field, Object value) {
+        try {
+            var line = path + "\t" + field + "\t" + objectMapper.writeValueAsString(value) + "\n";
+            var buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            numberOfUnsyncedRecords++;
+            if (numberOfUnsyncedRecords >= SYNC_EVERY_NUMBER_OF_RECORDS || System.currentTimeMillis() - lastSync >= SYNC_INTERVAL_MILLIS) {
+                sync();
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Could not write to task log journal " + file, e);
+        }
+    }
+
+    /**
+     * Detaches the journal from the task log and closes it. Subsequent changes to the task log are no longer recorded.
+     *
+     * @throws IOException if the journal could not be synced or closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        items.values().forEach(item -> item.attach(null, null));
+        if (channel.isOpen()) {
+            sync();
+            channel.close();
+        }
+    }
+
+    /**
+     * Closes and deletes the journal. To be called after the task log has been saved, as the journal is no longer needed then.
+     *
+     * @throws IOException if the journal could not be deleted
+     */
+    public void delete() throws IOException {
+        close();
+        Files.deleteIfExists(file);
+    }
+
+    private void sync() throws IOException {
+        if (numberOfUnsyncedRecords > 0) {
+            channel.force(false);
+            numberOfUnsyncedRecords = 0;
+        }
+        lastSync = System.currentTimeMillis();
+    }
+}
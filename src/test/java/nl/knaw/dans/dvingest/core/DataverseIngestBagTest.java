@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import nl.knaw.dans.dvingest.core.service.YamlServiceImpl;
+import nl.knaw.dans.dvingest.core.yaml.EditFiles;
+import nl.knaw.dans.dvingest.core.yaml.EditFilesRoot;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DataverseIngestBagTest extends TestDirFixture {
+
+    @Test
+    public void getEditFiles_should_parse_file_only_once() throws Exception {
+        // Given
+        Files.createFile(testDir.resolve("bagit.txt"));
+        Files.createFile(testDir.resolve(DataverseIngestBag.EDIT_FILES_YML));
+        var yamlService = Mockito.mock(YamlServiceImpl.class);
+        var editFiles = new EditFiles();
+        when(yamlService.readYaml(testDir.resolve(DataverseIngestBag.EDIT_FILES_YML), EditFilesRoot.class)).thenReturn(new EditFilesRoot(editFiles));
+        var bag = new DataverseIngestBag(testDir, yamlService);
+
+        // When
+        var first = bag.getEditFiles();
+        var second = bag.getEditFiles();
+
+        // Then
+        assertThat(first).isSameAs(editFiles);
+        assertThat(second).isSameAs(editFiles);
+        verify(yamlService, times(1)).readYaml(testDir.resolve(DataverseIngestBag.EDIT_FILES_YML), EditFilesRoot.class);
+    }
+
+    @Test
+    public void getEditFiles_should_return_null_without_parsing_when_file_not_present() throws Exception {
+        // Given
+        Files.createFile(testDir.resolve("bagit.txt"));
+        var yamlService = Mockito.mock(YamlServiceImpl.class);
+        var bag = new DataverseIngestBag(testDir, yamlService);
+
+        // When
+        var editFiles = bag.getEditFiles();
+
+        // Then
+        assertThat(editFiles).isNull();
+        verify(yamlService, never()).readYaml(any(), eq(EditFilesRoot.class));
+    }
+}
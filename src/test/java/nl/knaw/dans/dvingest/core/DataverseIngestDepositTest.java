@@ -15,11 +15,14 @@
  */
 package nl.knaw.dans.dvingest.core;
 
+import nl.knaw.dans.dvingest.config.YamlServiceConfig;
 import nl.knaw.dans.dvingest.core.service.YamlService;
+import nl.knaw.dans.dvingest.core.service.YamlServiceImpl;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
 import java.nio.file.Files;
+import java.util.List;
 import java.util.Properties;
 import java.util.TreeSet;
 import java.util.UUID;
@@ -98,4 +101,180 @@ public class DataverseIngestDepositTest extends TestDirFixture {
         // Then
         assertThat(deposits).containsExactly(deposit1, deposit2, deposit3);
     }
+
+    @Test
+    public void getTargetDatasetIdentifiers_should_include_updates_dataset_and_sword_token() throws Exception {
+        // Given
+        var depositDir = testDir.resolve(UUID.randomUUID().toString());
+        Files.createDirectories(depositDir);
+        var props = new Properties();
+        props.setProperty("creation.timestamp", "2023-01-01T10:00:00Z");
+        props.setProperty("updates-dataset", "doi:10.5072/FK2/ABCDEF");
+        props.setProperty("dataverse.sword-token", "sword:00000000-0000-0000-0000-000000000001");
+        props.store(Files.newBufferedWriter(depositDir.resolve("deposit.properties")), "");
+
+        // When
+        var deposit = new DataverseIngestDeposit(depositDir, yamlServiceMock);
+
+        // Then
+        assertThat(deposit.getTargetDatasetIdentifiers()).containsExactly("10.5072/fk2/abcdef", "00000000-0000-0000-0000-000000000001");
+    }
+
+    @Test
+    public void getTargetDatasetIdentifiers_should_link_is_version_of_to_bag_id_of_first_version() throws Exception {
+        // Given
+        var firstDir = testDir.resolve(UUID.randomUUID().toString());
+        Files.createDirectories(firstDir.resolve("bag"));
+        Files.writeString(firstDir.resolve("bag/bag-info.txt"), "Created: 2023-01-01T10:00:00Z\n");
+        var props1 = new Properties();
+        props1.setProperty("creation.timestamp", "2023-01-01T10:00:00Z");
+        props1.setProperty("dataverse.bag-id", "urn:uuid:00000000-0000-0000-0000-000000000001");
+        props1.store(Files.newBufferedWriter(firstDir.resolve("deposit.properties")), "");
+
+        var secondDir = testDir.resolve(UUID.randomUUID().toString());
+        Files.createDirectories(secondDir.resolve("bag"));
+        Files.writeString(secondDir.resolve("bag/bag-info.txt"), "Is-Version-Of: urn:uuid:00000000-0000-0000-0000-000000000001\n");
+        var props2 = new Properties();
+        props2.setProperty("creation.timestamp", "2023-01-02T10:00:00Z");
+        props2.setProperty("dataverse.bag-id", "urn:uuid:00000000-0000-0000-0000-000000000002");
+        props2.store(Files.newBufferedWriter(secondDir.resolve("deposit.properties")), "");
+
+        // When
+        var first = new DataverseIngestDeposit(firstDir, yamlServiceMock);
+        var second = new DataverseIngestDeposit(secondDir, yamlServiceMock);
+
+        // Then
+        assertThat(second.getTargetDatasetIdentifiers()).containsAnyElementsOf(first.getTargetDatasetIdentifiers());
+    }
+
+    @Test
+    public void getTargetDatasetIdentifiers_should_link_sword_token_of_first_version_to_is_version_of() throws Exception {
+        // Given
+        var firstDir = testDir.resolve(UUID.randomUUID().toString());
+        Files.createDirectories(firstDir.resolve("bag"));
+        Files.writeString(firstDir.resolve("bag/bag-info.txt"), "Created: 2023-01-01T10:00:00Z\n");
+        var props1 = new Properties();
+        props1.setProperty("creation.timestamp", "2023-01-01T10:00:00Z");
+        props1.setProperty("dataverse.sword-token", "sword:00000000-0000-0000-0000-000000000001");
+        props1.setProperty("dataverse.bag-id", "urn:uuid:00000000-0000-0000-0000-000000000001");
+        props1.store(Files.newBufferedWriter(firstDir.resolve("deposit.properties")), "");
+
+        var secondDir = testDir.resolve(UUID.randomUUID().toString());
+        Files.createDirectories(secondDir.resolve("bag"));
+        Files.writeString(secondDir.resolve("bag/bag-info.txt"), "Is-Version-Of: urn:uuid:00000000-0000-0000-0000-000000000001\n");
+        var props2 = new Properties();
+        props2.setProperty("creation.timestamp", "2023-01-02T10:00:00Z");
+        props2.store(Files.newBufferedWriter(secondDir.resolve("deposit.properties")), "");
+
+        // When
+        var first = new DataverseIngestDeposit(firstDir, yamlServiceMock);
+        var second = new DataverseIngestDeposit(secondDir, yamlServiceMock);
+
+        // Then
+        assertThat(first.getTargetDatasetIdentifiers()).containsExactly("00000000-0000-0000-0000-000000000001");
+        assertThat(second.getTargetDatasetIdentifiers()).containsExactlyElementsOf(first.getTargetDatasetIdentifiers());
+    }
+
+    @Test
+    public void getTargetDatasetIdentifiers_should_fall_back_to_deposit_id() throws Exception {
+        // Given
+        var uuid = UUID.randomUUID();
+        var depositDir = testDir.resolve(uuid.toString());
+        Files.createDirectories(depositDir);
+        var props = new Properties();
+        props.setProperty("creation.timestamp", "2023-01-01T10:00:00Z");
+        props.store(Files.newBufferedWriter(depositDir.resolve("deposit.properties")), "");
+
+        // When
+        var deposit = new DataverseIngestDeposit(depositDir, yamlServiceMock);
+
+        // Then
+        assertThat(deposit.getTargetDatasetIdentifiers()).containsExactly(uuid.toString());
+    }
+
+    @Test
+    public void groupByTargetDataset_should_group_chain_created_with_importPid_and_updated_with_updates_dataset() throws Exception {
+        // Given
+        var yamlService = new YamlServiceImpl(new YamlServiceConfig());
+        var firstDir = testDir.resolve(UUID.randomUUID().toString());
+        Files.createDirectories(firstDir.resolve("bag"));
+        Files.writeString(firstDir.resolve("bag/init.yml"), """
+            init:
+              create:
+                importPid: doi:10.5072/FK2/ABCDEF
+            """);
+        var props1 = new Properties();
+        props1.setProperty("creation.timestamp", "2023-01-01T10:00:00Z");
+        props1.setProperty("dataverse.bag-id", "urn:uuid:00000000-0000-0000-0000-000000000001");
+        props1.store(Files.newBufferedWriter(firstDir.resolve("deposit.properties")), "");
+
+        var otherDir = testDir.resolve(UUID.randomUUID().toString());
+        Files.createDirectories(otherDir);
+        var props2 = new Properties();
+        props2.setProperty("creation.timestamp", "2023-01-02T10:00:00Z");
+        props2.setProperty("updates-dataset", "doi:10.5072/FK2/OTHER");
+        props2.store(Files.newBufferedWriter(otherDir.resolve("deposit.properties")), "");
+
+        var secondDir = testDir.resolve(UUID.randomUUID().toString());
+        Files.createDirectories(secondDir);
+        var props3 = new Properties();
+        props3.setProperty("creation.timestamp", "2023-01-03T10:00:00Z");
+        props3.setProperty("updates-dataset", "doi:10.5072/FK2/ABCDEF");
+        props3.store(Files.newBufferedWriter(secondDir.resolve("deposit.properties")), "");
+
+        var thirdDir = testDir.resolve(UUID.randomUUID().toString());
+        Files.createDirectories(thirdDir.resolve("bag"));
+        Files.writeString(thirdDir.resolve("bag/bag-info.txt"), "Is-Version-Of: urn:uuid:00000000-0000-0000-0000-000000000001\n");
+        var props4 = new Properties();
+        props4.setProperty("creation.timestamp", "2023-01-04T10:00:00Z");
+        props4.store(Files.newBufferedWriter(thirdDir.resolve("deposit.properties")), "");
+
+        var first = new DataverseIngestDeposit(firstDir, yamlService);
+        var other = new DataverseIngestDeposit(otherDir, yamlService);
+        var second = new DataverseIngestDeposit(secondDir, yamlService);
+        var third = new DataverseIngestDeposit(thirdDir, yamlService);
+
+        // When
+        var groups = DataverseIngestDeposit.groupByTargetDataset(List.of(first, other, second, third));
+
+        // Then
+        assertThat(groups).containsExactly(List.of(first, second, third), List.of(other));
+    }
+
+    @Test
+    public void groupByTargetDataset_should_merge_groups_linked_by_later_deposit() throws Exception {
+        // Given
+        var firstDir = testDir.resolve(UUID.randomUUID().toString());
+        Files.createDirectories(firstDir);
+        var props1 = new Properties();
+        props1.setProperty("creation.timestamp", "2023-01-01T10:00:00Z");
+        props1.setProperty("dataverse.sword-token", "sword:00000000-0000-0000-0000-000000000001");
+        props1.store(Files.newBufferedWriter(firstDir.resolve("deposit.properties")), "");
+
+        var secondDir = testDir.resolve(UUID.randomUUID().toString());
+        Files.createDirectories(secondDir);
+        var props2 = new Properties();
+        props2.setProperty("creation.timestamp", "2023-01-02T10:00:00Z");
+        props2.setProperty("updates-dataset", "doi:10.5072/FK2/ABCDEF");
+        props2.store(Files.newBufferedWriter(secondDir.resolve("deposit.properties")), "");
+
+        // Written by the conversion of an earlier run: links the sword-token to the DOI
+        var thirdDir = testDir.resolve(UUID.randomUUID().toString());
+        Files.createDirectories(thirdDir);
+        var props3 = new Properties();
+        props3.setProperty("creation.timestamp", "2023-01-03T10:00:00Z");
+        props3.setProperty("updates-dataset", "DOI:10.5072/FK2/ABCDEF");
+        props3.setProperty("dataverse.sword-token", "sword:00000000-0000-0000-0000-000000000001");
+        props3.store(Files.newBufferedWriter(thirdDir.resolve("deposit.properties")), "");
+
+        var first = new DataverseIngestDeposit(firstDir, yamlServiceMock);
+        var second = new DataverseIngestDeposit(secondDir, yamlServiceMock);
+        var third = new DataverseIngestDeposit(thirdDir, yamlServiceMock);
+
+        // When
+        var groups = DataverseIngestDeposit.groupByTargetDataset(List.of(first, second, third));
+
+        // Then
+        assertThat(groups).containsExactly(List.of(first, second, third));
+    }
 }
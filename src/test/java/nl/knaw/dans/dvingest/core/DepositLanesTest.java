@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DepositLanesTest {
+
+    @Test
+    public void tasks_with_same_key_should_be_executed_in_order_of_submission() throws Exception {
+        // Given
+        List<ExecutorService> executors = List.of(Executors.newSingleThreadExecutor(), Executors.newSingleThreadExecutor(), Executors.newSingleThreadExecutor());
+        var lanes = new DepositLanes("test", executors, new MetricRegistry());
+        var executed = new CopyOnWriteArrayList<Integer>();
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            int number = i;
+            lanes.submit("00000000-0000-0000-0000-000000000001", () -> executed.add(number));
+        }
+        for (var executor : executors) {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        // Then
+        assertThat(executed).containsExactlyElementsOf(IntStream.range(0, 100).boxed().toList());
+        assertThat(lanes.getQueueDepth()).isZero();
+    }
+
+    @Test
+    public void tasks_sharing_any_key_should_be_executed_in_order_of_submission() throws Exception {
+        // Given
+        List<ExecutorService> executors = IntStream.range(0, 8).mapToObj(i -> Executors.newSingleThreadExecutor()).toList();
+        var lanes = new DepositLanes("test", executors, new MetricRegistry());
+        var executed = new CopyOnWriteArrayList<String>();
+        var firstStarted = new CountDownLatch(1);
+        var releaseFirst = new CountDownLatch(1);
+
+        // When
+        lanes.submit(Set.of("bag-id-1"), () -> {
+            firstStarted.countDown();
+            try {
+                releaseFirst.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executed.add("create");
+        });
+        assertThat(firstStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        // The create deposit links the bag-id to the DOI, as its importPid, and is still running
+        lanes.submit(new LinkedHashSet<>(List.of("bag-id-1", "10.5072/fk2/abcdef")), () -> executed.add("update-1"));
+        for (int i = 0; i < 10; i++) {
+            lanes.submit(Set.of("10.5072/fk2/abcdef"), () -> executed.add("update-2"));
+        }
+        releaseFirst.countDown();
+        for (var executor : executors) {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        // Then
+        assertThat(executed).hasSize(12);
+        assertThat(executed.subList(0, 2)).containsExactly("create", "update-1");
+        assertThat(lanes.getQueueDepth()).isZero();
+    }
+
+    @Test
+    public void metrics_should_be_registered_per_lane() {
+        // Given
+        var metricRegistry = new MetricRegistry();
+
+        // When
+        new DepositLanes("test", Collections.nCopies(2, Executors.newSingleThreadExecutor()), metricRegistry);
+
+        // Then
+        assertThat(metricRegistry.getNames()).contains(
+            "test.queue-depth",
+            "test.lane-0.queue-depth",
+            "test.lane-0.processed",
+            "test.lane-1.queue-depth",
+            "test.lane-1.processed");
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core;
+
+import com.codahale.metrics.MetricRegistry;
+import nl.knaw.dans.dvingest.core.service.DatasetFilesCache;
+import nl.knaw.dans.dvingest.core.service.DataverseService;
+import nl.knaw.dans.dvingest.core.service.DataverseServiceImpl;
+import nl.knaw.dans.lib.dataverse.DatasetApi;
+import nl.knaw.dans.lib.dataverse.DataverseClient;
+import nl.knaw.dans.lib.dataverse.DataverseHttpResponse;
+import nl.knaw.dans.lib.dataverse.Version;
+import nl.knaw.dans.lib.dataverse.model.dataset.DatasetVersion;
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DepositTimingsTest extends TestDirFixture {
+
+    @Test
+    public void phase_should_sum_durations_of_same_phase() throws Exception {
+        // Given
+        var timings = new DepositTimings();
+
+        // When
+        try (var ignored = timings.phase("files")) {
+            Thread.sleep(5);
+        }
+        try (var ignored = timings.phase("files")) {
+            Thread.sleep(5);
+        }
+        try (var ignored = timings.phase("metadata")) {
+            // Nothing to do
+        }
+
+        // Then
+        assertThat(timings.getPhaseMillis()).containsOnlyKeys("files", "metadata");
+        assertThat(timings.getPhaseMillis().get("files")).isGreaterThanOrEqualTo(10);
+    }
+
+    @Test
+    public void meter_should_count_bytes_uploaded() throws Exception {
+        // Given
+        var timings = new DepositTimings();
+        var dataverseService = timings.meter(mock(DataverseService.class));
+        var file = Files.writeString(testDir.resolve("file.txt"), "0123456789");
+
+        // When
+        dataverseService.addFile("doi:10.5072/FK2/ABCDEF", file, null);
+        dataverseService.addFile("doi:10.5072/FK2/ABCDEF", file, null);
+
+        // Then
+        assertThat(timings.getBytesUploaded()).isEqualTo(20);
+    }
+
+    @Test
+    public void countRequests_should_count_requests_that_reach_dataverse() throws Exception {
+        // Given
+        var timings = new DepositTimings();
+        var pid = "doi:10.5072/FK2/ABCDEF";
+        var dataverseClientMock = mock(DataverseClient.class);
+        var datasetApiMock = mock(DatasetApi.class);
+        DataverseHttpResponse<List<FileMeta>> filesResponseMock = mock(DataverseHttpResponse.class);
+        DataverseHttpResponse<DatasetVersion> versionResponseMock = mock(DataverseHttpResponse.class);
+        when(dataverseClientMock.dataset(pid)).thenReturn(datasetApiMock);
+        when(datasetApiMock.getFiles(DatasetFilesCache.LATEST_PUBLISHED)).thenReturn(filesResponseMock);
+        when(filesResponseMock.getData()).thenReturn(List.of(new FileMeta()));
+        when(datasetApiMock.getVersion(Version.LATEST.toString(), true)).thenReturn(versionResponseMock);
+        when(versionResponseMock.getData()).thenReturn(new DatasetVersion());
+        var dataverseService = timings.meter(DataverseServiceImpl.builder()
+            .dataverseClient(dataverseClientMock)
+            .datasetFilesCache(new DatasetFilesCache(10, Duration.ofMinutes(1)))
+            .build());
+
+        // When
+        try (var ignored = timings.countRequests()) {
+            dataverseService.getFiles(pid, false);
+            // Served from the cache
+            dataverseService.getFiles(pid, false);
+            dataverseService.getDatasetState(pid);
+        }
+        // Not counted, as the counter is no longer bound to this thread
+        dataverseService.getDatasetState(pid);
+
+        // Then
+        assertThat(timings.getNumberOfApiCalls()).isEqualTo(2);
+    }
+
+    @Test
+    public void save_should_write_phases_and_counts_to_deposit_dir() throws Exception {
+        // Given
+        var timings = new DepositTimings();
+        try (var ignored = timings.phase("validate")) {
+            // Nothing to do
+        }
+        timings.addFilesProcessed(7);
+
+        // When
+        timings.save(testDir);
+
+        // Then
+        assertThat(Files.readAllLines(testDir.resolve(DepositTimings.TIMINGS_FILE)))
+            .anyMatch(line -> line.startsWith("phase.validate.ms="))
+            .anyMatch(line -> line.startsWith("total.ms="))
+            .contains("api-calls=0", "bytes-uploaded=0", "files-processed=7");
+    }
+
+    @Test
+    public void addTo_should_update_histograms_under_prefix() {
+        // Given
+        var timings = new DepositTimings();
+        try (var ignored = timings.phase("publish")) {
+            // Nothing to do
+        }
+        var metricRegistry = new MetricRegistry();
+
+        // When
+        timings.addTo(metricRegistry, "import.deposit");
+
+        // Then
+        assertThat(metricRegistry.getHistograms()).containsKeys("import.deposit.phase.publish", "import.deposit.total", "import.deposit.api-calls", "import.deposit.bytes-uploaded",
+            "import.deposit.files-processed");
+        assertThat(metricRegistry.histogram("import.deposit.phase.publish").getCount()).isEqualTo(1);
+    }
+}
@@ -357,6 +357,50 @@ public class FilesEditorAddFilesTest extends FilesEditorTestFixture {
             """);
     }
 
+    @Test
+    public void addUnrestrictedFiles_resumes_with_persisted_plan() throws Exception {
+        // Given
+        var tempDir = Files.createDirectory(testDir.resolve("temp"));
+        UtilityServices utilityServices = UtilityServicesImpl.builder()
+            .tempDir(testDir.resolve("temp"))
+            .maxUploadSize(1000000)
+            .maxNumberOfFilesPerUpload(100).build();
+        Files.createFile(dataDir.resolve("file1"));
+        Files.createFile(dataDir.resolve("file2"));
+        Files.createFile(dataDir.resolve("file3"));
+
+        when(dataverseServiceMock.getFiles("pid", true)).thenReturn(
+            List.of());
+        when(dataverseServiceMock.addFile(anyString(), any(Path.class), any(FileMeta.class)))
+            .thenAnswer(invocation -> {
+                var path = invocation.getArgument(1, Path.class);
+                FileUtils.copyFile(path.toFile(), path.resolveSibling("batch1.zip").toFile());
+                return createFileMetaPerZipEntry(path, false);
+            });
+        var editFilesRoot = yamlService.readYamlFromString("""
+            editFiles:
+                addUnrestrictedFiles:
+                  - file1
+                  - file2
+                  - file3
+            """, EditFilesRoot.class);
+        var editFilesLog = new EditFilesLog();
+        editFilesLog.getAddUnrestrictedFiles().setPlan(List.of(List.of("file3"), List.of("file1", "file2")));
+        editFilesLog.getAddUnrestrictedFiles().setNumberCompleted(1);
+        var filesEditor = new FilesEditor(UUID.randomUUID(), dataDir, editFilesRoot.getEditFiles(), dataverseServiceMock, utilityServices, editFilesLog);
+
+        // When
+        filesEditor.editFiles("pid");
+
+        // Then
+        verify(dataverseServiceMock, times(1)).addFile(anyString(), any(Path.class), any(FileMeta.class));
+        assertZipFileContainsFiles(tempDir.resolve("batch1.zip"), "file1", "file2");
+        YamlBeanAssert.assertThat(editFilesLog.getAddUnrestrictedFiles()).isEqualTo("""
+            numberCompleted: 3
+            completed: true
+            """);
+    }
+
     @Test
     public void addUnrestrictedFiles_skips_if_already_completed() throws Exception {
         // Given
@@ -570,4 +614,56 @@ public class FilesEditorAddFilesTest extends FilesEditorTestFixture {
 
     }
 
+    @Test
+    public void addRestrictedFiles_adds_three_batches_pipelined() throws Exception {
+        // Given
+        var tempDir = Files.createDirectory(testDir.resolve("temp"));
+        UtilityServices utilityServices = UtilityServicesImpl.builder()
+            .tempDir(testDir.resolve("temp"))
+            .maxUploadSize(1000000)
+            .maxNumberOfFilesPerUpload(2)
+            .maxNumberOfUploadBatchesInFlight(2).build();
+        for (int i = 1; i <= 5; i++) {
+            Files.createFile(dataDir.resolve("file" + i));
+        }
+
+        when(dataverseServiceMock.getFiles("pid", true)).thenReturn(
+            List.of());
+        var batchNumber = new int[] { 0 };
+        when(dataverseServiceMock.addFile(anyString(), any(Path.class), any(FileMeta.class)))
+            .thenAnswer(invocation -> {
+                var path = invocation.getArgument(1, Path.class);
+                FileUtils.copyFile(path.toFile(), tempDir.resolve("uploaded" + (++batchNumber[0]) + ".zip").toFile());
+                return createFileMetaPerZipEntry(path, true);
+            });
+        var editFilesRoot = yamlService.readYamlFromString("""
+            editFiles:
+                addRestrictedFiles:
+                  - file1
+                  - file2
+                  - file3
+                  - file4
+                  - file5
+            """, EditFilesRoot.class);
+        var editFilesLog = new EditFilesLog();
+        var filesEditor = new FilesEditor(UUID.randomUUID(), dataDir, editFilesRoot.getEditFiles(), dataverseServiceMock, utilityServices, editFilesLog);
+
+        // When
+        filesEditor.editFiles("pid");
+
+        // Then
+        verify(dataverseServiceMock, times(3)).addFile(eq("pid"), any(Path.class), any(FileMeta.class));
+        assertZipFileContainsFiles(tempDir.resolve("uploaded1.zip"), "file1", "file2");
+        assertZipFileContainsFiles(tempDir.resolve("uploaded2.zip"), "file3", "file4");
+        assertZipFileContainsFiles(tempDir.resolve("uploaded3.zip"), "file5");
+        try (var remaining = Files.list(tempDir)) {
+            assertThat(remaining.map(p -> p.getFileName().toString()))
+                .withFailMessage("All ZIP files should be deleted after upload")
+                .containsExactlyInAnyOrder("uploaded1.zip", "uploaded2.zip", "uploaded3.zip");
+        }
+        YamlBeanAssert.assertThat(editFilesLog.getAddRestrictedFiles()).isEqualTo("""
+            numberCompleted: 5
+            completed: true
+            """);
+    }
 }
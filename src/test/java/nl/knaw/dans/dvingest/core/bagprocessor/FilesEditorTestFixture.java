@@ -32,7 +32,7 @@ import java.nio.file.Path;
 public class FilesEditorTestFixture extends TestDirFixture {
     protected static final YamlService yamlService = new YamlServiceImpl(new YamlServiceConfig());
 
-    protected final DataverseService dataverseServiceMock = Mockito.mock(DataverseService.class);
+    protected final DataverseService dataverseServiceMock = Mockito.mock(DataverseService.class, Mockito.CALLS_REAL_METHODS);
     protected final UtilityServices utilityServicesMock = Mockito.mock(UtilityServices.class);
 
     protected Path dataDir;
@@ -27,7 +27,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class FilesInDatasetCacheTest {
-    private final DataverseService dataverseServiceMock = Mockito.mock(DataverseService.class);
+    private final DataverseService dataverseServiceMock = Mockito.mock(DataverseService.class, Mockito.CALLS_REAL_METHODS);
 
     @BeforeEach
     public void setUp() throws Exception {
@@ -120,6 +120,28 @@ public class FilesInDatasetCacheTest {
             .hasMessage("Cache already initialized");
     }
 
+    @Test
+    public void modifyFileMetaForUpdate_does_not_modify_downloaded_fileMeta() throws Exception {
+        // Given
+        var downloaded = new FileMeta();
+        downloaded.setLabel("label");
+        downloaded.setDescription("old description");
+        Mockito.when(dataverseServiceMock.getFiles("pid", false)).thenReturn(java.util.List.of(downloaded));
+        var filesInDatasetCache = new FilesInDatasetCache(dataverseServiceMock, Map.of());
+        filesInDatasetCache.downloadFromDataset("pid", false);
+        var update = new FileMeta();
+        update.setLabel("label");
+        update.setDescription("new description");
+
+        // When
+        var updated = filesInDatasetCache.modifyFileMetaForUpdate(update);
+
+        // Then
+        assertThat(updated.getDescription()).isEqualTo("new description");
+        assertThat(filesInDatasetCache.get("label").getDescription()).isEqualTo("new description");
+        assertThat(downloaded.getDescription()).isEqualTo("old description");
+    }
+
     @Test
     public void get_returns_fileMeta_by_old_name_after_rename() {
         // Given
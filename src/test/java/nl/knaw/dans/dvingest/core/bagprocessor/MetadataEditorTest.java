@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.bagprocessor;
+
+import nl.knaw.dans.dvingest.core.service.DataverseService;
+import nl.knaw.dans.dvingest.core.yaml.EditMetadata;
+import nl.knaw.dans.dvingest.core.yaml.tasklog.EditMetadataLog;
+import nl.knaw.dans.lib.dataverse.model.dataset.MetadataField;
+import nl.knaw.dans.lib.dataverse.model.dataset.PrimitiveSingleValueField;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class MetadataEditorTest {
+    private static final String PID = "doi:10.5072/FK2/ABCDEF";
+
+    private final DataverseService dataverseServiceMock = mock(DataverseService.class);
+
+    private List<MetadataField> fields(String... values) {
+        return Arrays.stream(values).map(value -> (MetadataField) new PrimitiveSingleValueField("keyword", value)).toList();
+    }
+
+    @Test
+    public void editMetadata_should_send_one_request_per_operation() throws Exception {
+        // Given
+        var editMetadata = new EditMetadata();
+        editMetadata.setAddFieldValues(fields("a", "b", "c"));
+        editMetadata.setReplaceFieldValues(fields("d", "e"));
+        editMetadata.setDeleteFieldValues(fields("f", "g"));
+        var editMetadataLog = new EditMetadataLog();
+
+        // When
+        new MetadataEditor(UUID.randomUUID(), editMetadata, editMetadataLog, dataverseServiceMock).editMetadata(PID);
+
+        // Then
+        verify(dataverseServiceMock).editMetadata(PID, editMetadata.getAddFieldValues(), false);
+        verify(dataverseServiceMock).editMetadata(PID, editMetadata.getReplaceFieldValues(), true);
+        verify(dataverseServiceMock).deleteDatasetMetadata(PID, editMetadata.getDeleteFieldValues());
+        verifyNoMoreInteractions(dataverseServiceMock);
+        assertThat(editMetadataLog.getAddFieldValues().getNumberCompleted()).isEqualTo(3);
+        assertThat(editMetadataLog.getAddFieldValues().isCompleted()).isTrue();
+        assertThat(editMetadataLog.getDeleteFieldValues().isCompleted()).isTrue();
+    }
+
+    @Test
+    public void editMetadata_should_resume_from_number_completed() throws Exception {
+        // Given
+        var editMetadata = new EditMetadata();
+        editMetadata.setAddFieldValues(fields("a", "b", "c"));
+        var editMetadataLog = new EditMetadataLog();
+        editMetadataLog.getAddFieldValues().setNumberCompleted(2);
+
+        // When
+        new MetadataEditor(UUID.randomUUID(), editMetadata, editMetadataLog, dataverseServiceMock).editMetadata(PID);
+
+        // Then
+        verify(dataverseServiceMock).editMetadata(PID, editMetadata.getAddFieldValues().subList(2, 3), false);
+        verifyNoMoreInteractions(dataverseServiceMock);
+        assertThat(editMetadataLog.getReplaceFieldValues().isCompleted()).isTrue();
+    }
+
+    @Test
+    public void editMetadata_should_not_send_request_if_all_field_values_were_sent_before_interruption() throws Exception {
+        // Given
+        var editMetadata = new EditMetadata();
+        editMetadata.setAddFieldValues(fields("a", "b"));
+        editMetadata.setDeleteFieldValues(fields("c"));
+        var editMetadataLog = new EditMetadataLog();
+        // Processing was interrupted after the number completed was recorded, but before the operations were marked completed
+        editMetadataLog.getAddFieldValues().setNumberCompleted(2);
+        editMetadataLog.getDeleteFieldValues().setNumberCompleted(1);
+
+        // When
+        new MetadataEditor(UUID.randomUUID(), editMetadata, editMetadataLog, dataverseServiceMock).editMetadata(PID);
+
+        // Then
+        verifyNoMoreInteractions(dataverseServiceMock);
+        assertThat(editMetadataLog.getAddFieldValues().isCompleted()).isTrue();
+        assertThat(editMetadataLog.getDeleteFieldValues().isCompleted()).isTrue();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.dansbag;
+
+import nl.knaw.dans.dvingest.core.TestDirFixture;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+
+import static gov.loc.repository.bagit.hash.StandardSupportedAlgorithms.MD5;
+import static gov.loc.repository.bagit.hash.StandardSupportedAlgorithms.SHA1;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChecksumSidecarTest extends TestDirFixture {
+
+    @Test
+    public void get_should_return_checksum_recorded_in_earlier_run() throws Exception {
+        // Given
+        var file = testDir.resolve("bag/data/a\tb.txt");
+        try (var sidecar = ChecksumSidecar.open(testDir)) {
+            sidecar.put(file, 5, 1000, SHA1, "sha1-checksum");
+        }
+
+        // When
+        try (var sidecar = ChecksumSidecar.open(testDir)) {
+            // Then
+            assertThat(sidecar.get(file, 5, 1000, SHA1)).contains("sha1-checksum");
+            assertThat(sidecar.get(file, 5, 1000, MD5)).isEmpty();
+        }
+    }
+
+    @Test
+    public void get_should_return_empty_if_size_or_last_modified_changed() throws Exception {
+        // Given
+        var file = testDir.resolve("bag/data/a.txt");
+        try (var sidecar = ChecksumSidecar.open(testDir)) {
+            sidecar.put(file, 5, 1000, SHA1, "sha1-checksum");
+
+            // When / Then
+            assertThat(sidecar.get(file, 6, 1000, SHA1)).isEmpty();
+            assertThat(sidecar.get(file, 5, 1001, SHA1)).isEmpty();
+        }
+    }
+
+    @Test
+    public void open_should_ignore_invalid_lines_and_let_last_entry_win() throws Exception {
+        // Given
+        var file = testDir.resolve("bag/data/a.txt");
+        Files.writeString(testDir.resolve(ChecksumSidecar.FILENAME), """
+            sha1\t5\t1000\told-checksum\tbag/data/a.txt
+            garbage
+            sha1\tfive\t1000\tinvalid-size\tbag/data/a.txt
+            sha1\t5\t1000\tnew-checksum\tbag/data/a.txt
+            """);
+
+        // When
+        try (var sidecar = ChecksumSidecar.open(testDir)) {
+            // Then
+            assertThat(sidecar.get(file, 5, 1000, SHA1)).contains("new-checksum");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.dansbag;
+
+import nl.knaw.dans.dvingest.core.TestDirFixture;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static gov.loc.repository.bagit.hash.StandardSupportedAlgorithms.MD5;
+import static gov.loc.repository.bagit.hash.StandardSupportedAlgorithms.SHA1;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+public class ParallelManifestHasherTest extends TestDirFixture {
+    private final ParallelManifestHasher hasher = new ParallelManifestHasher(4);
+
+    @Test
+    public void hash_should_compute_checksums_for_all_algorithms_sorted_by_path() throws Exception {
+        // Given
+        var large = Files.write(testDir.resolve("large.bin"), new byte[3_000_000]);
+        var small = Files.writeString(testDir.resolve("b.txt"), "hello");
+        var empty = Files.createFile(testDir.resolve("a.txt"));
+
+        // When
+        var result = hasher.hash(List.of(large, small, empty), List.of(SHA1, MD5));
+
+        // Then
+        assertThat(result.get(SHA1)).containsExactly(
+            entry(empty, "da39a3ee5e6b4b0d3255bfef95601890afd80709"),
+            entry(small, "aaf4c61ddcc5e8a2dabede0f3b482cd9aea9434d"),
+            entry(large, "99dd4258004987bdf38392947383dddad35176f4"));
+        assertThat(result.get(MD5)).containsEntry(small, "5d41402abc4b2a76b9719d911017c592");
+    }
+
+    @Test
+    public void hash_should_take_checksums_of_unchanged_files_from_sidecar() throws Exception {
+        // Given
+        var unchanged = Files.writeString(testDir.resolve("unchanged.txt"), "hello");
+        var changed = Files.writeString(testDir.resolve("changed.txt"), "hello");
+        try (var sidecar = ChecksumSidecar.open(testDir)) {
+            hasher.hash(List.of(unchanged, changed), List.of(SHA1), sidecar);
+        }
+        // Same size and last modified time, so only detectable by the checksum still being the old one
+        var lastModified = Files.getLastModifiedTime(unchanged);
+        Files.writeString(unchanged, "HELLO");
+        Files.setLastModifiedTime(unchanged, lastModified);
+        Files.writeString(changed, "HELLO");
+        Files.setLastModifiedTime(changed, FileTime.fromMillis(lastModified.toMillis() + 1000));
+
+        // When
+        try (var sidecar = ChecksumSidecar.open(testDir)) {
+            var result = hasher.hash(List.of(unchanged, changed), List.of(SHA1), sidecar);
+
+            // Then
+            assertThat(result.get(SHA1)).containsEntry(unchanged, "aaf4c61ddcc5e8a2dabede0f3b482cd9aea9434d");
+            assertThat(result.get(SHA1)).containsEntry(changed, "c65f99f8c5376adadddc46d5cbcf5762f9e55eb7");
+        }
+    }
+
+    @Test
+    public void hash_should_throw_if_file_does_not_exist() {
+        // Given
+        var missing = testDir.resolve("missing.txt");
+
+        // When / Then
+        assertThatThrownBy(() -> hasher.hash(List.of(missing), List.of(SHA1))).isInstanceOf(NoSuchFileException.class);
+    }
+}
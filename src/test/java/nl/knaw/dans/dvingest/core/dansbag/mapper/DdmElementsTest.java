@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.dansbag.mapper;
+
+import nl.knaw.dans.dvingest.core.dansbag.xml.XPathEvaluator;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static nl.knaw.dans.dvingest.core.dansbag.mapper.DdmElements.dc;
+import static nl.knaw.dans.dvingest.core.dansbag.mapper.DdmElements.dcterms;
+import static nl.knaw.dans.dvingest.core.dansbag.mapper.DdmElements.ddm;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DdmElementsTest {
+    private static final String DDM = """
+        <ddm:DDM xmlns:ddm="http://schemas.dans.knaw.nl/dataset/ddm-v2/" xmlns:dc="http://purl.org/dc/elements/1.1/" xmlns:dcterms="http://purl.org/dc/terms/">
+            <ddm:profile xml:lang="nl">
+                <dc:title>first dc title</dc:title>
+                <dcterms:title xml:lang="en">dcterms title</dcterms:title>
+                <dc:title>second dc title</dc:title>
+            </ddm:profile>
+            <ddm:dcmiMetadata>
+                <dcterms:identifier>1</dcterms:identifier>
+                <dc:identifier>2</dc:identifier>
+                <dcterms:identifier>3</dcterms:identifier>
+                <ddm:relation><ddm:nested xml:lang="de">n</ddm:nested></ddm:relation>
+            </ddm:dcmiMetadata>
+        </ddm:DDM>
+        """;
+
+    private Document parse(String xml) throws Exception {
+        var factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void lookups_should_return_same_nodes_in_same_order_as_xpath() throws Exception {
+        // Given
+        var document = parse(DDM);
+
+        // When
+        var elements = DdmElements.read(document);
+
+        // Then
+        assertThat(elements.profile(dc("title"), dcterms("title")).toList())
+            .containsExactlyElementsOf(XPathEvaluator.nodes(document, "/ddm:DDM/ddm:profile/dc:title", "/ddm:DDM/ddm:profile/dcterms:title").toList());
+        assertThat(elements.dcmiMetadata(dcterms("identifier"), dc("identifier")).toList())
+            .containsExactlyElementsOf(XPathEvaluator.nodes(document, "/ddm:DDM/ddm:dcmiMetadata/dcterms:identifier", "/ddm:DDM/ddm:dcmiMetadata/dc:identifier").toList());
+        assertThat(elements.dcmiMetadataDescendants().toList())
+            .containsExactlyElementsOf(XPathEvaluator.nodes(document, "/ddm:DDM/ddm:dcmiMetadata//*").toList());
+        assertThat(elements.languageAttributes().toList())
+            .containsExactlyElementsOf(XPathEvaluator.strings(document, "/ddm:DDM/ddm:profile//@xml:lang", "/ddm:DDM/ddm:dcmiMetadata//@xml:lang").toList());
+    }
+
+    @Test
+    public void lookups_should_be_empty_for_missing_elements() throws Exception {
+        // Given
+        var document = parse(DDM);
+
+        // When
+        var elements = DdmElements.read(document);
+
+        // Then
+        assertThat(elements.profile(ddm("available"))).isEmpty();
+        assertThat(elements.dcmiMetadata(dcterms("rightsHolder"))).isEmpty();
+    }
+}
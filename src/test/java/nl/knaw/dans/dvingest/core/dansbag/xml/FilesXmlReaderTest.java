@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.dansbag.xml;
+
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FilesXmlReaderTest {
+    private final FilesXmlReader reader = new FilesXmlReader();
+
+    private List<FilesXmlEntry> read(String xml) throws Exception {
+        return reader.readFilesXml(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void readFilesXml_should_return_filepath_accessibleToRights_and_descriptions_per_file() throws Exception {
+        // Given
+        var xml = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <files xmlns="http://easy.dans.knaw.nl/schemas/bag/metadata/files/" xmlns:dcterms="http://purl.org/dc/terms/">
+                <file filepath="data/a.txt">
+                    <dcterms:format>text/plain</dcterms:format>
+                    <accessibleToRights>ANONYMOUS</accessibleToRights>
+                    <dcterms:description>first</dcterms:description>
+                    <dcterms:description><![CDATA[second & more]]></dcterms:description>
+                </file>
+                <file filepath="data/sub/b.txt"/>
+            </files>
+            """.strip();
+
+        // When
+        var entries = read(xml);
+
+        // Then
+        assertThat(entries).containsExactly(
+            new FilesXmlEntry("data/a.txt", List.of("ANONYMOUS"), List.of("first", "second & more")),
+            new FilesXmlEntry("data/sub/b.txt", List.of(), List.of()));
+    }
+
+    @Test
+    public void readFilesXml_should_keep_all_accessibleToRights_values() throws Exception {
+        // Given
+        var xml = """
+            <files xmlns="http://easy.dans.knaw.nl/schemas/bag/metadata/files/">
+                <file filepath="data/a.txt">
+                    <accessibleToRights>ANONYMOUS</accessibleToRights>
+                    <accessibleToRights>NONE</accessibleToRights>
+                </file>
+            </files>
+            """;
+
+        // When
+        var entries = read(xml);
+
+        // Then
+        assertThat(entries).containsExactly(new FilesXmlEntry("data/a.txt", List.of("ANONYMOUS", "NONE"), List.of()));
+    }
+
+    @Test
+    public void readFilesXml_should_ignore_elements_in_other_namespaces() throws Exception {
+        // Given
+        var xml = """
+            <files xmlns="http://easy.dans.knaw.nl/schemas/bag/metadata/files/" xmlns:x="urn:other">
+                <x:file filepath="data/not-a-file.txt"/>
+                <file filepath="data/a.txt">
+                    <x:accessibleToRights>NONE</x:accessibleToRights>
+                </file>
+            </files>
+            """;
+
+        // When
+        var entries = read(xml);
+
+        // Then
+        assertThat(entries).containsExactly(new FilesXmlEntry("data/a.txt", List.of(), List.of()));
+    }
+
+    @Test
+    public void readFilesXml_should_reject_doctype_declaration() {
+        // Given
+        var xml = """
+            <!DOCTYPE files [ <!ENTITY x "y"> ]>
+            <files xmlns="http://easy.dans.knaw.nl/schemas/bag/metadata/files/"/>
+            """;
+
+        // When / Then
+        assertThatThrownBy(() -> read(xml)).isInstanceOf(XMLStreamException.class);
+    }
+}
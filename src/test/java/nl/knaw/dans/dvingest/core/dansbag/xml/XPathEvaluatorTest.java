@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.dansbag.xml;
+
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class XPathEvaluatorTest {
+
+    private Document createFilesXml(int numberOfFiles) throws Exception {
+        var xml = new StringBuilder("<files xmlns=\"" + XmlNamespaces.NAMESPACE_FILES_XML + "\" xmlns:dcterms=\"" + XmlNamespaces.NAMESPACE_DCTERMS + "\">");
+        for (int i = 0; i < numberOfFiles; i++) {
+            xml.append("<file filepath=\"data/file").append(i).append(".txt\"><dcterms:description>description ").append(i).append("</dcterms:description></file>");
+        }
+        xml.append("</files>");
+        var factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        return factory.newDocumentBuilder().parse(new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void strings_should_give_same_results_when_called_from_several_threads() throws Exception {
+        // Given
+        var numberOfThreads = 4;
+        var documents = new ArrayList<Document>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            // One document per thread, as DOM trees are not safe for concurrent reading
+            documents.add(createFilesXml(200));
+        }
+        var executor = Executors.newFixedThreadPool(numberOfThreads);
+
+        try {
+            // When
+            var results = new ArrayList<Future<List<String>>>();
+            for (var document : documents) {
+                Callable<List<String>> task = () -> XPathEvaluator.nodes(document, "/files:files/files:file")
+                    .flatMap(file -> XPathEvaluator.strings(file, "dcterms:description"))
+                    .toList();
+                results.add(executor.submit(task));
+            }
+
+            // Then
+            for (var result : results) {
+                var descriptions = result.get();
+                assertThat(descriptions).hasSize(200);
+                assertThat(descriptions.get(0)).isEqualTo("description 0");
+                assertThat(descriptions.get(199)).isEqualTo("description 199");
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.dansbag.xml;
+
+import com.codahale.metrics.Timer;
+import nl.knaw.dans.dvingest.core.TestDirFixture;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.SAXException;
+
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class XmlReaderImplTest extends TestDirFixture {
+
+    @Test
+    public void readXmlFile_should_parse_several_files_with_same_reader_and_record_parse_times() throws Exception {
+        // Given
+        var timer = new Timer();
+        var reader = new XmlReaderImpl(timer);
+        var first = Files.writeString(testDir.resolve("first.xml"), "<files xmlns=\"" + XmlNamespaces.NAMESPACE_FILES_XML + "\"><file filepath=\"data/a.txt\"/></files>");
+        var second = Files.writeString(testDir.resolve("second.xml"), "<root><child/></root>");
+
+        // When
+        var firstDocument = reader.readXmlFile(first);
+        var secondDocument = reader.readXmlFile(second);
+
+        // Then
+        assertThat(firstDocument.getDocumentElement().getLocalName()).isEqualTo("files");
+        assertThat(firstDocument.getDocumentElement().getNamespaceURI()).isEqualTo(XmlNamespaces.NAMESPACE_FILES_XML);
+        assertThat(secondDocument.getDocumentElement().getLocalName()).isEqualTo("root");
+        assertThat(timer.getCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void readXmlFile_should_reject_doctype_declaration_and_parse_next_file() throws Exception {
+        // Given
+        var reader = new XmlReaderImpl();
+        var withDoctype = Files.writeString(testDir.resolve("doctype.xml"), "<!DOCTYPE root [ <!ENTITY x \"y\"> ]><root>&x;</root>");
+        var valid = Files.writeString(testDir.resolve("valid.xml"), "<root/>");
+
+        // When / Then
+        assertThatThrownBy(() -> reader.readXmlFile(withDoctype)).isInstanceOf(SAXException.class);
+        assertThat(reader.readXmlFile(valid).getDocumentElement().getLocalName()).isEqualTo("root");
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import nl.knaw.dans.lib.dataverse.model.RoleAssignment;
+import nl.knaw.dans.lib.dataverse.model.dataset.Embargo;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class CoalescingDataverseServiceTest {
+    private static final String PID = "doi:10.5072/FK2/ABCDEF";
+
+    private final DataverseService delegate = mock(DataverseService.class);
+    private final CoalescingDataverseService dataverseService = new CoalescingDataverseService(delegate);
+
+    private Embargo embargo(String dateAvailable, String reason, int... fileIds) {
+        var embargo = new Embargo();
+        embargo.setDateAvailable(dateAvailable);
+        embargo.setReason(reason);
+        embargo.setFileIds(fileIds);
+        return embargo;
+    }
+
+    private RoleAssignment roleAssignment(String assignee, String role) {
+        var roleAssignment = new RoleAssignment();
+        roleAssignment.setAssignee(assignee);
+        roleAssignment.setRole(role);
+        return roleAssignment;
+    }
+
+    @Test
+    public void addEmbargoes_should_combine_embargoes_with_same_date_and_reason() throws Exception {
+        // Given
+        var embargoes = List.of(
+            embargo("2030-01-01", "reason", 1, 2),
+            embargo("2031-01-01", "reason", 3),
+            embargo("2030-01-01", "reason", 2, 4));
+
+        // When
+        dataverseService.addEmbargoes(PID, embargoes, n -> {});
+
+        // Then
+        var captor = ArgumentCaptor.forClass(Embargo.class);
+        verify(delegate, times(2)).addEmbargo(eq(PID), captor.capture());
+        verifyNoMoreInteractions(delegate);
+        assertThat(captor.getAllValues()).extracting(Embargo::getDateAvailable).containsExactly("2030-01-01", "2031-01-01");
+        assertThat(captor.getAllValues().get(0).getFileIds()).containsExactly(1, 2, 4);
+        assertThat(captor.getAllValues().get(1).getFileIds()).containsExactly(3);
+        assertThat(dataverseService.getNumberOfCallsSaved()).isEqualTo(1);
+    }
+
+    @Test
+    public void addEmbargoes_should_not_combine_embargoes_with_different_reasons() throws Exception {
+        // Given
+        var embargoes = List.of(
+            embargo("2030-01-01", "reason 1", 1),
+            embargo("2030-01-01", "reason 2", 2));
+
+        // When
+        dataverseService.addEmbargoes(PID, embargoes, n -> {});
+
+        // Then
+        verify(delegate, times(2)).addEmbargo(eq(PID), any(Embargo.class));
+        assertThat(dataverseService.getNumberOfCallsSaved()).isZero();
+    }
+
+    @Test
+    public void addRoleAssignments_should_pass_on_each_role_assignment_once() throws Exception {
+        // Given
+        var first = roleAssignment("@user001", "contributor");
+        var second = roleAssignment("@user002", "contributor");
+        var duplicate = roleAssignment("@user001", "contributor");
+
+        // When
+        dataverseService.addRoleAssignments(PID, List.of(first, second, duplicate), n -> {});
+
+        // Then
+        verify(delegate).addRoleAssignments(eq(PID), eq(List.of(first, second)), any(IntConsumer.class));
+        verifyNoMoreInteractions(delegate);
+        assertThat(dataverseService.getNumberOfCallsSaved()).isEqualTo(1);
+    }
+
+    @Test
+    public void addEmbargoes_should_report_progress_in_terms_of_original_embargoes() throws Exception {
+        // Given
+        var embargoes = List.of(
+            embargo("2030-01-01", "reason", 1),
+            embargo("2031-01-01", "reason", 2),
+            embargo("2030-01-01", "reason", 3));
+        var progress = new ArrayList<Integer>();
+
+        // When
+        dataverseService.addEmbargoes(PID, embargoes, progress::add);
+
+        // Then
+        // After the first request, the second embargo is not done yet, so only the first one counts as completed
+        assertThat(progress).containsExactly(1, 3);
+    }
+}
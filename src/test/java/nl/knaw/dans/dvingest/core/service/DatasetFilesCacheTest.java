@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import nl.knaw.dans.lib.dataverse.model.file.Checksum;
+import nl.knaw.dans.lib.dataverse.model.file.DataFile;
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DatasetFilesCacheTest {
+
+    private FileMeta file(int id, String label, String checksum) {
+        var fileMeta = new FileMeta();
+        fileMeta.setLabel(label);
+        var dataFile = new DataFile();
+        dataFile.setId(id);
+        var cs = new Checksum();
+        cs.setType("SHA-1");
+        cs.setValue(checksum);
+        dataFile.setChecksum(cs);
+        fileMeta.setDataFile(dataFile);
+        return fileMeta;
+    }
+
+    @Test
+    public void get_should_load_once_until_invalidated() throws Exception {
+        // Given
+        var cache = new DatasetFilesCache(10, Duration.ofHours(1));
+        var loads = new AtomicInteger();
+        DatasetFilesCache.Loader loader = () -> {
+            loads.incrementAndGet();
+            return List.of(file(1, "a.txt", "abc"));
+        };
+
+        // When
+        cache.get("doi:10.5072/1", DatasetFilesCache.LATEST, loader);
+        cache.get("doi:10.5072/1", DatasetFilesCache.LATEST, loader);
+        cache.invalidate("doi:10.5072/1");
+        cache.get("doi:10.5072/1", DatasetFilesCache.LATEST, loader);
+
+        // Then
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    public void get_should_not_cache_file_list_invalidated_while_loading() throws Exception {
+        // Given
+        var cache = new DatasetFilesCache(10, Duration.ofHours(1));
+        var loads = new AtomicInteger();
+        DatasetFilesCache.Loader loader = () -> {
+            if (loads.incrementAndGet() == 1) {
+                // The dataset is changed by another thread while the first listing is in progress
+                cache.invalidate("doi:10.5072/1");
+            }
+            return List.of(file(1, "a.txt", "abc"));
+        };
+
+        // When
+        cache.get("doi:10.5072/1", DatasetFilesCache.LATEST, loader);
+        cache.get("doi:10.5072/1", DatasetFilesCache.LATEST, loader);
+
+        // Then
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.isCached("doi:10.5072/1", DatasetFilesCache.LATEST)).isTrue();
+    }
+
+    @Test
+    public void get_should_not_cache_file_list_with_more_than_max_files() throws Exception {
+        // Given
+        var cache = new DatasetFilesCache(10, 1, Duration.ofHours(1));
+
+        // When
+        var files = cache.get("doi:10.5072/1", DatasetFilesCache.LATEST, () -> List.of(file(1, "a.txt", "abc"), file(2, "b.txt", "def")));
+
+        // Then
+        assertThat(files).hasSize(2);
+        assertThat(cache.isCached("doi:10.5072/1", DatasetFilesCache.LATEST)).isFalse();
+    }
+
+    @Test
+    public void entries_should_expire_after_max_age() throws Exception {
+        // Given
+        var now = Instant.parse("2024-01-01T00:00:00Z");
+        var clock = new Clock() {
+            Instant instant = now;
+
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return instant;
+            }
+        };
+        var cache = new DatasetFilesCache(10, Duration.ofMinutes(15), clock);
+        cache.get("doi:10.5072/1", DatasetFilesCache.LATEST_PUBLISHED, () -> List.of(file(1, "a.txt", "abc")));
+
+        // When
+        clock.instant = now.plus(Duration.ofMinutes(16));
+
+        // Then
+        assertThat(cache.isCached("doi:10.5072/1", DatasetFilesCache.LATEST_PUBLISHED)).isFalse();
+    }
+}
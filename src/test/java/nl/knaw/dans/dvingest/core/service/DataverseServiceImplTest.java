@@ -15,6 +15,7 @@
  */
 package nl.knaw.dans.dvingest.core.service;
 
+import com.codahale.metrics.MetricRegistry;
 import nl.knaw.dans.lib.dataverse.DatasetApi;
 import nl.knaw.dans.lib.dataverse.DataverseClient;
 import nl.knaw.dans.lib.dataverse.DataverseHttpResponse;
@@ -24,6 +25,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -89,6 +91,30 @@ public class DataverseServiceImplTest {
         verifyNoMoreInteractions(dataverseClientMock, datasetApiMock);
     }
 
+    @Test
+    public void getFiles_meters_only_requests_that_reach_dataverse() throws Exception {
+        var persistentId = "doi:10.5072/FK2/ABCDEF";
+        var dataverseClientMock = mock(DataverseClient.class);
+        var httpResponseMock = mock(DataverseHttpResponse.class);
+        var datasetApiMock = mock(DatasetApi.class);
+        var metricRegistry = new MetricRegistry();
+        var dataverseService = DataverseServiceImpl.builder()
+            .dataverseClient(dataverseClientMock)
+            .datasetFilesCache(new DatasetFilesCache(10, Duration.ofMinutes(1)))
+            .callMetrics(new DataverseCallMetrics(metricRegistry, "dataverse/import"))
+            .build();
+        when(dataverseClientMock.dataset(persistentId)).thenReturn(datasetApiMock);
+        when(datasetApiMock.getFiles(DatasetFilesCache.LATEST_PUBLISHED)).thenReturn(httpResponseMock);
+        when(httpResponseMock.getData()).thenReturn(List.of(new FileMeta(), new FileMeta(), new FileMeta()));
+
+        dataverseService.getFiles(persistentId, false);
+        var result = dataverseService.getFiles(persistentId, false);
+
+        assertThat(result).hasSize(3);
+        assertThat(metricRegistry.timer("dataverse/import.getFiles").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.histogram("dataverse/import.getFiles.files").getSnapshot().getValues()).containsExactly(3);
+    }
+
     private DataverseServiceImpl createDataverseService(DataverseClient dataverseClient) {
         return DataverseServiceImpl.builder()
             .dataverseClient(dataverseClient)
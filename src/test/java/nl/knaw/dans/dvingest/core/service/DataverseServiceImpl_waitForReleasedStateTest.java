@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import nl.knaw.dans.lib.dataverse.DatasetApi;
+import nl.knaw.dans.lib.dataverse.DataverseClient;
+import nl.knaw.dans.lib.dataverse.DataverseHttpResponse;
+import nl.knaw.dans.lib.dataverse.Version;
+import nl.knaw.dans.lib.dataverse.model.dataset.DatasetVersion;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class DataverseServiceImpl_waitForReleasedStateTest {
+    private static final String PID = "doi:10.5072/FK2/ABCDEF";
+
+    private final DataverseClient dataverseClientMock = mock(DataverseClient.class);
+    private final DatasetApi datasetApiMock = mock(DatasetApi.class);
+    private final DataverseHttpResponse<DatasetVersion> httpResponseMock = mock(DataverseHttpResponse.class);
+
+    private DatasetVersion version(String state) {
+        var version = new DatasetVersion();
+        version.setVersionState(state);
+        return version;
+    }
+
+    @Test
+    void waitForReleasedState_polls_until_released_and_records_duration() throws Exception {
+        var history = new PublishDurationHistory(10);
+        var dataverseService = DataverseServiceImpl.builder()
+            .dataverseClient(dataverseClientMock)
+            .leadTimePerFile(0)
+            .pollingInterval(10)
+            .timeout(10000)
+            .publishDurationHistory(history)
+            .build();
+        when(dataverseClientMock.dataset(PID)).thenReturn(datasetApiMock);
+        when(datasetApiMock.getVersion(Version.LATEST.toString(), true)).thenReturn(httpResponseMock);
+        when(httpResponseMock.getData()).thenReturn(version("DRAFT"), version("DRAFT"), version("RELEASED"));
+
+        dataverseService.waitForReleasedState(PID, 3);
+
+        verify(datasetApiMock, times(3)).getVersion(Version.LATEST.toString(), true);
+        assertThat(history.estimate(3)).isPresent();
+    }
+
+    @Test
+    void waitForReleasedState_seeds_history_if_released_at_first_check_without_estimate() throws Exception {
+        var history = new PublishDurationHistory(10);
+        var dataverseService = DataverseServiceImpl.builder()
+            .dataverseClient(dataverseClientMock)
+            .leadTimePerFile(1000)
+            .pollingInterval(10)
+            .timeout(10000)
+            .publishDurationHistory(history)
+            .build();
+        when(dataverseClientMock.dataset(PID)).thenReturn(datasetApiMock);
+        when(datasetApiMock.getVersion(Version.LATEST.toString(), true)).thenReturn(httpResponseMock);
+        when(httpResponseMock.getData()).thenReturn(version("RELEASED"));
+        assertThat(history.estimate(3)).isEmpty();
+
+        var start = System.currentTimeMillis();
+        dataverseService.waitForReleasedState(PID, 3);
+
+        // Without an estimate only a fraction of the 3000 ms lead time is waited, and the measured duration becomes the estimate
+        var elapsed = System.currentTimeMillis() - start;
+        assertThat(elapsed).isLessThan(3000);
+        assertThat(history.estimate(3)).isPresent();
+        assertThat(history.estimate(3).getAsLong()).isLessThan(3000);
+    }
+
+    @Test
+    void waitForReleasedState_throws_if_not_released_within_timeout() throws Exception {
+        var dataverseService = DataverseServiceImpl.builder()
+            .dataverseClient(dataverseClientMock)
+            .leadTimePerFile(0)
+            .pollingInterval(10)
+            .timeout(50)
+            .build();
+        when(dataverseClientMock.dataset(PID)).thenReturn(datasetApiMock);
+        when(datasetApiMock.getVersion(Version.LATEST.toString(), true)).thenReturn(httpResponseMock);
+        when(httpResponseMock.getData()).thenReturn(version("DRAFT"));
+
+        var exception = assertThrows(IllegalStateException.class, () -> dataverseService.waitForReleasedState(PID, 3));
+        assertThat(exception).hasMessageContaining("did not reach state RELEASED");
+    }
+}
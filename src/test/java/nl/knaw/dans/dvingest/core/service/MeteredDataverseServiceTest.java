@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import com.codahale.metrics.MetricRegistry;
+import nl.knaw.dans.dvingest.core.TestDirFixture;
+import nl.knaw.dans.lib.dataverse.model.dataset.FileList;
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MeteredDataverseServiceTest extends TestDirFixture {
+    private static final String PID = "doi:10.5072/FK2/ABCDEF";
+
+    private final DataverseService delegate = mock(DataverseService.class);
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final MeteredDataverseService dataverseService = new MeteredDataverseService(delegate, metricRegistry, "dataverse/import");
+
+    @Test
+    public void addFile_should_record_duration_and_bytes_sent() throws Exception {
+        // Given
+        var file = Files.writeString(testDir.resolve("file.txt"), "0123456789");
+        var fileList = new FileList();
+        when(delegate.addFile(PID, file, null)).thenReturn(fileList);
+
+        // When
+        var result = dataverseService.addFile(PID, file, null);
+
+        // Then
+        assertThat(result).isSameAs(fileList);
+        assertThat(metricRegistry.timer("dataverse/import.addFile").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.histogram("dataverse/import.addFile.bytes").getSnapshot().getValues()).containsExactly(10);
+        assertThat(metricRegistry.counter("dataverse/import.bytes-sent").getCount()).isEqualTo(10);
+        assertThat(metricRegistry.meter("dataverse/import.addFile.errors").getCount()).isZero();
+    }
+
+    @Test
+    public void publishDataset_should_record_error_and_rethrow() throws Exception {
+        // Given
+        var exception = new IOException("Connection reset");
+        doThrow(exception).when(delegate).publishDataset(eq(PID), any());
+
+        // When / Then
+        assertThatThrownBy(() -> dataverseService.publishDataset(PID, null)).isSameAs(exception);
+        assertThat(metricRegistry.timer("dataverse/import.publishDataset").getCount()).isEqualTo(1);
+        assertThat(metricRegistry.meter("dataverse/import.publishDataset.errors").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void getFiles_should_not_be_metered_because_it_may_be_served_from_a_cache() throws Exception {
+        // Given
+        when(delegate.getFiles(PID, false)).thenReturn(List.of(new FileMeta(), new FileMeta(), new FileMeta()));
+
+        // When
+        var files = dataverseService.getFiles(PID, false);
+
+        // Then
+        assertThat(files).hasSize(3);
+        assertThat(metricRegistry.getTimers()).doesNotContainKey("dataverse/import.getFiles");
+    }
+
+    @Test
+    public void addZipStream_should_record_bytes_written_by_content() throws Exception {
+        // Given
+        when(delegate.addZipStream(eq(PID), any(), eq(false))).thenAnswer(invocation -> {
+            StreamingContent content = invocation.getArgument(1);
+            content.writeTo(new ByteArrayOutputStream());
+            return new FileList();
+        });
+
+        // When
+        dataverseService.addZipStream(PID, outputStream -> outputStream.write(new byte[42]), false);
+
+        // Then
+        assertThat(metricRegistry.histogram("dataverse/import.addZipStream.bytes").getSnapshot().getValues()).containsExactly(42);
+    }
+}
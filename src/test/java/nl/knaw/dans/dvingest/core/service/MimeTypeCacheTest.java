@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import nl.knaw.dans.dvingest.core.TestDirFixture;
+import org.apache.tika.Tika;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class MimeTypeCacheTest extends TestDirFixture {
+
+    @Test
+    public void getMimeType_should_detect_unchanged_file_only_once() throws Exception {
+        // Given
+        var file = Files.writeString(testDir.resolve("file.txt"), "some text");
+        var tika = spy(new Tika());
+        var cache = new MimeTypeCache(tika, 10);
+
+        // When
+        var first = cache.getMimeType(file);
+        var second = cache.getMimeType(file);
+
+        // Then
+        assertThat(first).isEqualTo("text/plain");
+        assertThat(second).isEqualTo(first);
+        verify(tika, times(1)).detect(any(Path.class));
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    public void getMimeType_should_detect_again_after_file_is_modified() throws Exception {
+        // Given
+        var file = Files.writeString(testDir.resolve("file.txt"), "some text");
+        var cache = new MimeTypeCache(new Tika(), 10);
+        cache.getMimeType(file);
+
+        // When
+        Files.writeString(file, "some longer text");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(60)));
+        cache.getMimeType(file);
+
+        // Then
+        assertThat(cache.getHits()).isZero();
+        assertThat(cache.getMisses()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PagedFilesReaderTest {
+
+    private final PagedFilesReader reader = new PagedFilesReader(URI.create("http://localhost:8080"), "apiKey", 2, Duration.ofSeconds(1));
+
+    @Test
+    public void parsePage_should_hand_each_file_in_data_to_consumer() throws Exception {
+        // Given
+        var json = """
+            {
+              "status": "OK",
+              "data": [
+                { "label": "a.txt", "directoryLabel": "dir", "dataFile": { "id": 1, "extra": { "ignored": [1, 2] } } },
+                { "label": "b.txt", "dataFile": { "id": 2 } }
+              ],
+              "totalCount": 2
+            }
+            """;
+        var files = new ArrayList<FileMeta>();
+
+        // When
+        var count = reader.parsePage(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), files::add);
+
+        // Then
+        assertThat(count).isEqualTo(2);
+        assertThat(files).extracting(FileMeta::getLabel).containsExactly("a.txt", "b.txt");
+        assertThat(files.get(0).getDirectoryLabel()).isEqualTo("dir");
+        assertThat(files.get(1).getDataFile().getId()).isEqualTo(2);
+    }
+
+    @Test
+    public void parsePage_should_return_zero_for_empty_page() throws Exception {
+        // Given
+        var json = "{\"status\": \"OK\", \"data\": []}";
+        var files = new ArrayList<FileMeta>();
+
+        // When
+        var count = reader.parsePage(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), files::add);
+
+        // Then
+        assertThat(count).isZero();
+        assertThat(files).isEmpty();
+    }
+}
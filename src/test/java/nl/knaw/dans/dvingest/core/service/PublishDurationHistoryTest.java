@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PublishDurationHistoryTest {
+
+    @Test
+    public void estimate_should_be_empty_without_samples() {
+        // Given
+        var history = new PublishDurationHistory(10);
+
+        // When / Then
+        assertThat(history.estimate(100)).isEmpty();
+    }
+
+    @Test
+    public void estimate_should_scale_median_duration_per_file_of_closest_samples() {
+        // Given
+        var history = new PublishDurationHistory(10);
+        // Small datasets: relatively expensive per file, so must not influence the estimate for large datasets
+        history.record(0, 5000);
+        history.record(1, 8000);
+        // Large datasets: 3, 4 and 5 ms per file (plus one)
+        history.record(9999, 30000);
+        history.record(19999, 80000);
+        history.record(4999, 25000);
+        history.record(9999, 50000);
+        history.record(14999, 60000);
+
+        // When
+        var estimate = history.estimate(9999);
+
+        // Then
+        assertThat(estimate).hasValue(40000);
+    }
+
+    @Test
+    public void record_should_drop_oldest_sample_when_full() {
+        // Given
+        var history = new PublishDurationHistory(1);
+        history.record(99, 100000);
+
+        // When
+        history.record(99, 1000);
+
+        // Then
+        assertThat(history.estimate(99)).hasValue(1000);
+    }
+}
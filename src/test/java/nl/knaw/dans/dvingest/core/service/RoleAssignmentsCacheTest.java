@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import nl.knaw.dans.lib.dataverse.model.RoleAssignmentReadOnly;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RoleAssignmentsCacheTest {
+
+    private RoleAssignmentReadOnly roleAssignment(String assignee, String role) {
+        var roleAssignment = new RoleAssignmentReadOnly();
+        roleAssignment.setAssignee(assignee);
+        roleAssignment.set_roleAlias(role);
+        return roleAssignment;
+    }
+
+    @Test
+    public void getOnDataset_should_load_once_until_invalidated() throws Exception {
+        // Given
+        var cache = new RoleAssignmentsCache(10, Duration.ofMinutes(1));
+        var loads = new AtomicInteger();
+        RoleAssignmentsCache.Loader loader = () -> {
+            loads.incrementAndGet();
+            return List.of(roleAssignment("@user001", "contributor"));
+        };
+
+        // When
+        cache.getOnDataset("doi:10.5072/1", loader);
+        var cached = cache.getOnDataset("doi:10.5072/1", loader);
+        cache.invalidateDataset("doi:10.5072/1");
+        cache.getOnDataset("doi:10.5072/1", loader);
+
+        // Then
+        assertThat(cached).extracting(RoleAssignmentReadOnly::getAssignee).containsExactly("@user001");
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    public void getOnDataset_should_not_cache_role_assignments_invalidated_while_loading() throws Exception {
+        // Given
+        var cache = new RoleAssignmentsCache(10, Duration.ofMinutes(1));
+        var loads = new AtomicInteger();
+        RoleAssignmentsCache.Loader loader = () -> {
+            if (loads.incrementAndGet() == 1) {
+                // A role is assigned by another thread while the first listing is in progress
+                cache.invalidateDataset("doi:10.5072/1");
+            }
+            return List.of(roleAssignment("@user001", "contributor"));
+        };
+
+        // When
+        cache.getOnDataset("doi:10.5072/1", loader);
+        cache.getOnDataset("doi:10.5072/1", loader);
+        cache.getOnDataset("doi:10.5072/1", loader);
+
+        // Then
+        assertThat(loads.get()).isEqualTo(2);
+        assertThat(cache.getHits()).isEqualTo(1);
+    }
+
+    @Test
+    public void dataverse_and_dataset_with_same_id_should_be_cached_separately() throws Exception {
+        // Given
+        var cache = new RoleAssignmentsCache(10, Duration.ofMinutes(1));
+
+        // When
+        cache.getOnDataverse("root", () -> List.of(roleAssignment("@user001", "dsContributor")));
+        var onDataset = cache.getOnDataset("root", () -> List.of(roleAssignment("@user002", "contributor")));
+
+        // Then
+        assertThat(onDataset).extracting(RoleAssignmentReadOnly::getAssignee).containsExactly("@user002");
+        assertThat(cache.getMisses()).isEqualTo(2);
+    }
+
+    @Test
+    public void entries_should_expire_after_max_age() throws Exception {
+        // Given
+        var now = Instant.parse("2024-01-01T00:00:00Z");
+        var clock = new Clock() {
+            Instant instant = now;
+
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return instant;
+            }
+        };
+        var cache = new RoleAssignmentsCache(10, Duration.ofMinutes(1), clock);
+        var loads = new AtomicInteger();
+        RoleAssignmentsCache.Loader loader = () -> {
+            loads.incrementAndGet();
+            return List.of();
+        };
+
+        // When
+        cache.getOnDataverse("root", loader);
+        clock.instant = now.plusSeconds(59);
+        cache.getOnDataverse("root", loader);
+        clock.instant = now.plusSeconds(61);
+        cache.getOnDataverse("root", loader);
+
+        // Then
+        assertThat(loads.get()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import nl.knaw.dans.dvingest.core.TestDirFixture;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StoredZipWrapperTest extends TestDirFixture {
+
+    @Test
+    public void writeTo_path_should_create_zip_file_with_one_stored_entry() throws Exception {
+        // Given
+        var content = "some zipped content".getBytes(StandardCharsets.UTF_8);
+        var file = Files.write(testDir.resolve("file.zip"), content);
+        var target = testDir.resolve("wrapped.zip");
+        var crc = new CRC32();
+        crc.update(content);
+
+        // When
+        new StoredZipWrapper(file, "file.zip").writeTo(target);
+
+        // Then
+        try (var zipFile = new ZipFile(target.toFile())) {
+            assertThat(zipFile.size()).isEqualTo(1);
+            var entry = zipFile.getEntry("file.zip");
+            assertThat(entry.getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(entry.getSize()).isEqualTo(content.length);
+            assertThat(entry.getCrc()).isEqualTo(crc.getValue());
+            assertThat(zipFile.getInputStream(entry).readAllBytes()).isEqualTo(content);
+        }
+    }
+
+    @Test
+    public void writeTo_stream_should_produce_zip_that_can_be_read_sequentially() throws Exception {
+        // Given
+        var content = "some zipped content".getBytes(StandardCharsets.UTF_8);
+        var file = Files.write(testDir.resolve("file.zip"), content);
+        var out = new ByteArrayOutputStream();
+
+        // When
+        new StoredZipWrapper(file, "file.zip").writeTo(out);
+
+        // Then
+        try (var zipInputStream = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            var entry = zipInputStream.getNextEntry();
+            assertThat(entry.getName()).isEqualTo("file.zip");
+            assertThat(zipInputStream.readAllBytes()).isEqualTo(content);
+            assertThat(zipInputStream.getNextEntry()).isNull();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UploadBatchSizerTest {
+    private static final long GIB = 1024L * 1024 * 1024;
+
+    @Test
+    public void slow_batch_should_lower_both_limits_by_at_most_half() {
+        // Given
+        var sizer = new UploadBatchSizer(1000, GIB, Duration.ofMinutes(1));
+
+        // When
+        sizer.recordUpload(1000, 100 * 1024 * 1024, Duration.ofMinutes(10));
+
+        // Then
+        assertThat(sizer.getFilesPerBatch()).isEqualTo(500);
+        assertThat(sizer.getBytesPerBatch()).isEqualTo(50 * 1024 * 1024);
+    }
+
+    @Test
+    public void fast_batch_should_raise_the_limit_that_cut_off_the_batch_but_not_beyond_hard_limit() {
+        // Given
+        var sizer = new UploadBatchSizer(1000, GIB, Duration.ofMinutes(1));
+        sizer.recordUpload(1000, 10 * 1024 * 1024, Duration.ofMinutes(4)); // lowers files to 500
+        assertThat(sizer.getFilesPerBatch()).isEqualTo(500);
+
+        // When
+        sizer.recordUpload(500, 5 * 1024 * 1024, Duration.ofSeconds(20));
+        sizer.recordUpload(1000, 10 * 1024 * 1024, Duration.ofSeconds(20));
+
+        // Then
+        assertThat(sizer.getFilesPerBatch()).isEqualTo(1000);
+    }
+
+    @Test
+    public void fast_partial_batch_should_not_change_limits() {
+        // Given
+        var sizer = new UploadBatchSizer(1000, GIB, Duration.ofMinutes(1));
+
+        // When
+        sizer.recordUpload(10, 1024, Duration.ofSeconds(30));
+
+        // Then
+        assertThat(sizer.getFilesPerBatch()).isEqualTo(1000);
+        assertThat(sizer.getBytesPerBatch()).isEqualTo(GIB);
+    }
+
+    @Test
+    public void slow_batch_should_not_raise_byte_limit_above_configured_maximum_below_floor() {
+        // Given
+        var sizer = new UploadBatchSizer(1000, 512 * 1024, Duration.ofMinutes(1));
+
+        // When
+        sizer.recordUpload(10, 512 * 1024, Duration.ofMinutes(10));
+
+        // Then
+        assertThat(sizer.getBytesPerBatch()).isEqualTo(512 * 1024);
+    }
+}
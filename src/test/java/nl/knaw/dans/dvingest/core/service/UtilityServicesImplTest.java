@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.service;
+
+import nl.knaw.dans.dvingest.core.TestDirFixture;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UtilityServicesImplTest extends TestDirFixture {
+
+    private UtilityServicesImpl createUtilityServices(int maxNumberOfFilesPerUpload, long maxUploadSize) {
+        return UtilityServicesImpl.builder()
+            .tempDir(testDir.resolve("temp"))
+            .maxNumberOfFilesPerUpload(maxNumberOfFilesPerUpload)
+            .maxUploadSize(maxUploadSize)
+            .maxNumberOfUploadBatchesInFlight(1)
+            .build();
+    }
+
+    private List<Path> createFiles(int number, int size) throws Exception {
+        var files = new ArrayList<Path>();
+        for (int i = 0; i < number; i++) {
+            var file = testDir.resolve("data/file" + i + ".txt");
+            Files.createDirectories(file.getParent());
+            Files.write(file, new byte[size]);
+            files.add(file);
+        }
+        return files;
+    }
+
+    private List<Path> createFilesWithSizes(int... sizes) throws Exception {
+        var files = new ArrayList<Path>();
+        for (int i = 0; i < sizes.length; i++) {
+            var file = testDir.resolve("data/file" + i + ".txt");
+            Files.createDirectories(file.getParent());
+            Files.write(file, new byte[sizes[i]]);
+            files.add(file);
+        }
+        return files;
+    }
+
+    @Test
+    public void planUploadBatches_should_respect_max_number_of_files() throws Exception {
+        // Given
+        var files = createFiles(5, 10);
+        var utilityServices = createUtilityServices(2, 1000);
+
+        // When
+        var batches = utilityServices.planUploadBatches(files);
+
+        // Then
+        assertThat(batches).containsExactly(
+            List.of(files.get(0), files.get(1)),
+            List.of(files.get(2), files.get(3)),
+            List.of(files.get(4)));
+    }
+
+    @Test
+    public void planUploadBatches_should_fill_batches_around_large_files() throws Exception {
+        // Given
+        var files = createFilesWithSizes(10, 80, 10, 70, 20, 30);
+        var utilityServices = createUtilityServices(10, 100);
+
+        // When
+        var batches = utilityServices.planUploadBatches(files);
+
+        // Then
+        assertThat(batches).containsExactly(
+            List.of(files.get(1), files.get(4)),
+            List.of(files.get(3), files.get(5)),
+            List.of(files.get(0), files.get(2)));
+    }
+
+    @Test
+    public void planUploadBatches_should_give_file_larger_than_max_upload_size_its_own_batch() throws Exception {
+        // Given
+        var files = createFilesWithSizes(10, 500, 10);
+        var utilityServices = createUtilityServices(10, 100);
+
+        // When
+        var batches = utilityServices.planUploadBatches(files);
+
+        // Then
+        assertThat(batches).containsExactly(
+            List.of(files.get(1)),
+            List.of(files.get(0), files.get(2)));
+    }
+
+    @Test
+    public void zipFiles_should_write_entries_relative_to_root_dir_and_apply_renames() throws Exception {
+        // Given
+        var files = createFiles(2, 10);
+        var utilityServices = createUtilityServices(10, 1000);
+        var out = new ByteArrayOutputStream();
+
+        // When
+        utilityServices.zipFiles(testDir, files, Map.of("data/file1.txt", "data/renamed.txt"), out);
+
+        // Then
+        var entryNames = new ArrayList<String>();
+        try (var zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (var entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entryNames.add(entry.getName());
+            }
+        }
+        assertThat(entryNames).containsExactly("data/file0.txt", "data/renamed.txt");
+    }
+}
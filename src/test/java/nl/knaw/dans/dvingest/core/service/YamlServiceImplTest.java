@@ -17,16 +17,21 @@ package nl.knaw.dans.dvingest.core.service;
 
 import io.dropwizard.configuration.ConfigurationParsingException;
 import nl.knaw.dans.dvingest.config.YamlServiceConfig;
+import nl.knaw.dans.dvingest.core.TestDirFixture;
+import nl.knaw.dans.dvingest.core.yaml.EditFilesRoot;
 import nl.knaw.dans.lib.dataverse.model.dataset.Dataset;
 import org.junit.jupiter.api.Test;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 
-public class YamlServiceImplTest {
+public class YamlServiceImplTest extends TestDirFixture {
     static private final Path yamlFile = Path.of("src/test/resources/test-deposits/072625c6-c2a8-43a6-9f35-f49b2db9435c/1/dataset.yml");
+    static private final Path editFilesYamlFile = Path.of("src/test/resources/test-deposits/072625c6-c2a8-43a6-9f35-f49b2db9435c/1/edit-files.yml");
 
     @Test
     public void tooBigYaml() {
@@ -49,4 +54,37 @@ public class YamlServiceImplTest {
             customYamlService.readYaml(yamlFile, Dataset.class)
         );
     }
+
+    @Test
+    public void readYaml_should_read_edit_files_without_configuration_factory() throws Exception {
+        var customYamlService = new YamlServiceImpl(new YamlServiceConfig());
+
+        var editFiles = customYamlService.readYaml(editFilesYamlFile, EditFilesRoot.class).getEditFiles();
+
+        assertThat(editFiles.getAddRestrictedFiles()).containsExactly("subdir/file2-restricted.txt", "file4-restricted.txt");
+        assertThat(editFiles.getUpdateFileMetas()).extracting("label").containsExactly("file3-desc.txt");
+    }
+
+    @Test
+    public void readYaml_should_reject_unknown_property_in_edit_files() throws Exception {
+        var customYamlService = new YamlServiceImpl(new YamlServiceConfig());
+        var file = testDir.resolve("edit-files.yml");
+        Files.writeString(file, "editFiles:\n  addRestrictedFile:\n    - 'file1.txt'\n");
+
+        assertThatThrownBy(() -> customYamlService.readYaml(file, EditFilesRoot.class))
+            .isInstanceOf(ConfigurationParsingException.class)
+            .hasMessageStartingWith(file + " has an error:")
+            .hasMessageContaining("addRestrictedFile");
+    }
+
+    @Test
+    public void readYaml_should_apply_code_point_limit_to_edit_files() {
+        var yamlServiceConfig = new YamlServiceConfig();
+        yamlServiceConfig.getLoaderOptions().setCodePointLimit(20);
+        var customYamlService = new YamlServiceImpl(yamlServiceConfig);
+
+        assertThatThrownBy(() -> customYamlService.readYaml(editFilesYamlFile, EditFilesRoot.class))
+            .isInstanceOf(ConfigurationParsingException.class)
+            .hasMessageStartingWith(editFilesYamlFile + " has an error:");
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.yaml;
+
+import nl.knaw.dans.dvingest.core.TestDirFixture;
+import nl.knaw.dans.lib.dataverse.model.file.FileMeta;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EditFilesSidecarTest extends TestDirFixture {
+
+    private EditFiles createEditFiles() {
+        var editFiles = new EditFiles();
+        editFiles.setAddRestrictedFiles(List.of("a.txt", "sub/b.txt"));
+        editFiles.setAddUnrestrictedFiles(List.of("c.txt"));
+        editFiles.setDeleteFiles(List.of("old.txt"));
+        editFiles.setMoveFiles(List.of(new FromTo("x.txt", "sub/x.txt")));
+        editFiles.setAutoRenameFiles(List.of(new FromTo("sub/<b>.txt", "sub/_b_.txt")));
+        var embargo = new AddEmbargo();
+        embargo.setDateAvailable("2030-01-01");
+        embargo.setFilePaths(List.of("a.txt", "sub/b.txt"));
+        editFiles.setAddEmbargoes(List.of(embargo));
+        var fileMeta = new FileMeta();
+        fileMeta.setLabel("c.txt");
+        fileMeta.setDescription("A description");
+        editFiles.setUpdateFileMetas(List.of(fileMeta));
+        return editFiles;
+    }
+
+    @Test
+    public void readIfFresh_should_return_edit_files_as_written() throws Exception {
+        // Given
+        var yamlFile = testDir.resolve("edit-files.yml");
+        var sidecar = testDir.resolve(EditFilesSidecar.EDIT_FILES_BIN);
+        var editFiles = createEditFiles();
+        Files.writeString(yamlFile, "editFiles: {}\n");
+        EditFilesSidecar.write(editFiles, sidecar, yamlFile);
+
+        // When
+        var result = EditFilesSidecar.readIfFresh(sidecar, yamlFile);
+
+        // Then
+        assertThat(result).contains(editFiles);
+    }
+
+    @Test
+    public void readIfFresh_should_share_one_instance_per_distinct_path() throws Exception {
+        // Given
+        var yamlFile = testDir.resolve("edit-files.yml");
+        var sidecar = testDir.resolve(EditFilesSidecar.EDIT_FILES_BIN);
+        Files.writeString(yamlFile, "editFiles: {}\n");
+        EditFilesSidecar.write(createEditFiles(), sidecar, yamlFile);
+
+        // When
+        var result = EditFilesSidecar.readIfFresh(sidecar, yamlFile).orElseThrow();
+
+        // Then
+        assertThat(result.getAddEmbargoes().get(0).getFilePaths().get(0)).isSameAs(result.getAddRestrictedFiles().get(0));
+    }
+
+    @Test
+    public void readIfFresh_should_return_empty_when_yaml_changed_after_writing() throws Exception {
+        // Given
+        var yamlFile = testDir.resolve("edit-files.yml");
+        var sidecar = testDir.resolve(EditFilesSidecar.EDIT_FILES_BIN);
+        Files.writeString(yamlFile, "editFiles: {}\n");
+        EditFilesSidecar.write(createEditFiles(), sidecar, yamlFile);
+
+        // When
+        Files.writeString(yamlFile, "editFiles:\n  deleteFiles: ['a.txt']\n");
+
+        // Then
+        assertThat(EditFilesSidecar.readIfFresh(sidecar, yamlFile)).isEmpty();
+    }
+
+    @Test
+    public void readIfFresh_should_return_empty_when_sidecar_is_truncated() throws Exception {
+        // Given
+        var yamlFile = testDir.resolve("edit-files.yml");
+        var sidecar = testDir.resolve(EditFilesSidecar.EDIT_FILES_BIN);
+        Files.writeString(yamlFile, "editFiles: {}\n");
+        EditFilesSidecar.write(createEditFiles(), sidecar, yamlFile);
+        var bytes = Files.readAllBytes(sidecar);
+
+        // When
+        Files.write(sidecar, Arrays.copyOf(bytes, bytes.length / 2));
+
+        // Then
+        assertThat(EditFilesSidecar.readIfFresh(sidecar, yamlFile)).isEmpty();
+    }
+}
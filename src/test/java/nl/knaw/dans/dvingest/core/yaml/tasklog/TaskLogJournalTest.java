@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2024 DANS - Data Archiving and Networked Services (info@dans.knaw.nl)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package nl.knaw.dans.dvingest.core.yaml.tasklog;
+
+import nl.knaw.dans.dvingest.core.TestDirFixture;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TaskLogJournalTest extends TestDirFixture {
+
+    @Test
+    public void replay_should_apply_recorded_changes_to_fresh_task_log() throws Exception {
+        // Given
+        var file = testDir.resolve(TaskLogJournal.TASK_LOG_JOURNAL);
+        var taskLog = new TaskLog();
+        try (var ignored = TaskLogJournal.open(file, taskLog)) {
+            taskLog.getInit().setTargetPid("doi:10.5072/FK2/ABCDEF");
+            taskLog.getInit().getCreate().setCompleted(true);
+            taskLog.getEditFiles().getAddEmbargoes().setNumberCompleted(3);
+            taskLog.getEditFiles().getAddRestrictedFiles().setPlan(List.of(List.of("a.txt", "b.txt"), List.of("c.txt")));
+            taskLog.getDataset().setCompleted(true);
+        }
+
+        // When
+        var replayed = new TaskLog();
+        var numberApplied = TaskLogJournal.replay(file, replayed);
+
+        // Then
+        assertThat(numberApplied).isEqualTo(5);
+        assertThat(replayed).isEqualTo(taskLog);
+    }
+
+    @Test
+    public void replay_should_skip_partially_written_last_line() throws Exception {
+        // Given
+        var file = testDir.resolve(TaskLogJournal.TASK_LOG_JOURNAL);
+        var taskLog = new TaskLog();
+        try (var ignored = TaskLogJournal.open(file, taskLog)) {
+            taskLog.getEditFiles().getDeleteFiles().setCompleted(true);
+        }
+        Files.writeString(file, "editFiles.replaceFiles\tnumberCompleted\t1", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        // When
+        var replayed = new TaskLog();
+        var numberApplied = TaskLogJournal.replay(file, replayed);
+
+        // Then
+        assertThat(numberApplied).isEqualTo(1);
+        assertThat(replayed.getEditFiles().getDeleteFiles().isCompleted()).isTrue();
+        assertThat(replayed.getEditFiles().getReplaceFiles().getNumberCompleted()).isZero();
+    }
+
+    @Test
+    public void changes_after_close_should_not_be_recorded() throws Exception {
+        // Given
+        var file = testDir.resolve(TaskLogJournal.TASK_LOG_JOURNAL);
+        var taskLog = new TaskLog();
+        var journal = TaskLogJournal.open(file, taskLog);
+        journal.close();
+
+        // When
+        taskLog.getUpdateState().setCompleted(true);
+
+        // Then
+        assertThat(Files.readAllLines(file)).isEmpty();
+    }
+}